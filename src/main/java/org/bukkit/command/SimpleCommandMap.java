@@ -15,6 +15,10 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.Server;
 import org.bukkit.command.defaults.*;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.ExecutionWatchdog;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.timings.Timing;
+import org.bukkit.timings.Timings;
 import org.bukkit.util.StringUtil;
 
 public class SimpleCommandMap implements CommandMap {
@@ -158,6 +162,46 @@ public class SimpleCommandMap implements CommandMap {
         return registered;
     }
 
+    /**
+     * Registers a command under every label another command is registered
+     * under, in its place
+     *
+     * @param command the registered command
+     * @param replacement the command to register instead
+     */
+    public synchronized void replace(Command command, Command replacement) {
+        Validate.notNull(command, "Command cannot be null");
+        Validate.notNull(replacement, "Replacement cannot be null");
+
+        for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+            if (entry.getValue() == command) {
+                entry.setValue(replacement);
+            }
+        }
+
+        replacement.setLabel(command.getLabel());
+        replacement.setAliases(new ArrayList<String>(command.getAliases()));
+        command.unregister(this);
+        replacement.register(this);
+    }
+
+    /**
+     * Unregisters every command owned by a plugin, under all of its labels
+     *
+     * @param plugin the plugin whose commands to unregister
+     */
+    public synchronized void unregisterAll(Plugin plugin) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+
+        for (Iterator<Command> it = knownCommands.values().iterator(); it.hasNext();) {
+            Command command = it.next();
+            if (command instanceof PluginIdentifiableCommand && plugin.equals(((PluginIdentifiableCommand) command).getPlugin())) {
+                it.remove();
+                command.unregister(this);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -175,6 +219,12 @@ public class SimpleCommandMap implements CommandMap {
             return false;
         }
 
+        Timing timing = Timings.isEnabled() ? Timings.ofCommand(target) : null;
+        if (timing != null) {
+            timing.start();
+        }
+        ExecutionWatchdog watchdog = server.getPluginManager().getExecutionWatchdog();
+        boolean watched = watchdog.enter(target instanceof PluginIdentifiableCommand ? ((PluginIdentifiableCommand) target).getPlugin() : null, target, null);
         try {
             // Note: we don't return the result of target.execute as thats success / failure, we return handled (true) or not handled (false)
             target.execute(sender, sentCommandLabel, Arrays_copyOfRange(args, 1, args.length));
@@ -182,6 +232,13 @@ public class SimpleCommandMap implements CommandMap {
             throw ex;
         } catch (Throwable ex) {
             throw new CommandException("Unhandled exception executing '" + commandLine + "' in " + target, ex);
+        } finally {
+            if (watched) {
+                watchdog.exit();
+            }
+            if (timing != null) {
+                timing.stop();
+            }
         }
 
         // return true as command was handled
@@ -1,17 +1,25 @@
 package org.bukkit.command.defaults;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
 
+import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.util.StringUtil;
+
+import com.google.common.collect.ImmutableList;
 
 public class ReloadCommand extends BukkitCommand {
     public ReloadCommand(String name) {
         super(name);
-        this.description = "Reloads the server configuration and plugins";
-        this.usageMessage = "/reload";
+        this.description = "Reloads the server configuration and plugins, or a single plugin";
+        this.usageMessage = "/reload [plugin name]";
         this.setPermission("bukkit.command.reload");
         this.setAliases(Arrays.asList("rl"));
     }
@@ -20,9 +28,57 @@ public class ReloadCommand extends BukkitCommand {
     public boolean execute(CommandSender sender, String currentAlias, String[] args) {
         if (!testPermission(sender)) return true;
 
-        Bukkit.reload();
-        Command.broadcastCommandMessage(sender, ChatColor.GREEN + "Reload complete.");
+        if (args.length == 0) {
+            Bukkit.reload();
+            Command.broadcastCommandMessage(sender, ChatColor.GREEN + "Reload complete.");
+            return true;
+        }
+
+        Plugin plugin = Bukkit.getPluginManager().getPlugin(args[0]);
+        if (plugin == null) {
+            for (Plugin candidate : Bukkit.getPluginManager().getPlugins()) {
+                if (candidate.getName().equalsIgnoreCase(args[0])) {
+                    plugin = candidate;
+                    break;
+                }
+            }
+        }
+
+        if (plugin == null) {
+            sender.sendMessage(ChatColor.RED + "This server is not running any plugin by that name.");
+            return true;
+        }
+
+        try {
+            plugin = Bukkit.getPluginManager().reloadPlugin(plugin);
+        } catch (IllegalStateException ex) {
+            sender.sendMessage(ChatColor.RED + ex.getMessage());
+            return true;
+        } catch (Throwable ex) {
+            Bukkit.getLogger().log(Level.SEVERE, "Could not reload " + plugin.getDescription().getFullName(), ex);
+            sender.sendMessage(ChatColor.RED + "Could not reload " + plugin.getName() + ", see the console for details.");
+            return true;
+        }
 
+        Command.broadcastCommandMessage(sender, ChatColor.GREEN + "Reloaded " + plugin.getDescription().getFullName() + ".");
         return true;
     }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
+        Validate.notNull(sender, "Sender cannot be null");
+        Validate.notNull(args, "Arguments cannot be null");
+        Validate.notNull(alias, "Alias cannot be null");
+
+        if (args.length == 1) {
+            List<String> completions = new ArrayList<String>();
+            for (Plugin plugin : Bukkit.getPluginManager().getPlugins()) {
+                if (StringUtil.startsWithIgnoreCase(plugin.getName(), args[0])) {
+                    completions.add(plugin.getName());
+                }
+            }
+            return completions;
+        }
+        return ImmutableList.of();
+    }
 }
@@ -1,10 +1,15 @@
 package org.bukkit.command.defaults;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
@@ -14,28 +19,37 @@ import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.StartupProfiler;
 import org.bukkit.plugin.TimedRegisteredListener;
+import org.bukkit.timings.Timings;
 import org.bukkit.util.StringUtil;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 
 public class TimingsCommand extends BukkitCommand {
-    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("merged", "reset", "separate");
+    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("csv", "json", "merged", "reset", "sample", "separate", "startup");
+    private static final int STARTUP_REPORT_SIZE = 10;
 
     public TimingsCommand(String name) {
         super(name);
         this.description = "Records timings for all plugin events";
-        this.usageMessage = "/timings <reset|merged|separate>";
+        this.usageMessage = "/timings <reset|merged|separate|json|csv|sample <interval>|startup>";
         this.setPermission("bukkit.command.timings");
     }
 
     @Override
     public boolean execute(CommandSender sender, String currentAlias, String[] args) {
         if (!testPermission(sender)) return true;
-        if (args.length != 1)  {
+        if (args.length == 0 || args.length != ("sample".equals(args[0]) ? 2 : 1))  {
             sender.sendMessage(ChatColor.RED + "Usage: " + usageMessage);
             return false;
         }
+        if ("startup".equals(args[0])) {
+            // Always recorded, independent of plugin-profiling
+            reportStartup(sender);
+            return true;
+        }
         if (!sender.getServer().getPluginManager().useTimings()) {
             sender.sendMessage("Please enable timings by setting \"settings.plugin-profiling\" to true in bukkit.yml");
             return true;
@@ -50,7 +64,46 @@ public class TimingsCommand extends BukkitCommand {
                     }
                 }
             }
+            Timings.reset();
             sender.sendMessage("Timings reset");
+        } else if ("sample".equals(args[0])) {
+            int interval;
+            try {
+                interval = Integer.parseInt(args[1]);
+            } catch (NumberFormatException ex) {
+                interval = 0;
+            }
+            if (interval < 1) {
+                sender.sendMessage(ChatColor.RED + "Sample interval must be a positive number");
+                return true;
+            }
+            Timings.setSampleInterval(interval);
+            sender.sendMessage(interval == 1 ? "Timing every call" : "Timing one in " + interval + " calls");
+        } else if ("json".equals(args[0]) || "csv".equals(args[0])) {
+            File timingFolder = new File("timings");
+            timingFolder.mkdirs();
+            int index = 0;
+            File export = new File(timingFolder, "timings." + args[0]);
+            while (export.exists()) export = new File(timingFolder, "timings" + (++index) + "." + args[0]);
+            Writer writer = null;
+            try {
+                writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(export), Charsets.UTF_8));
+                if ("json".equals(args[0])) {
+                    Timings.exportJson(writer);
+                } else {
+                    Timings.exportCsv(writer);
+                }
+                sender.sendMessage("Timings written to " + export.getPath());
+            } catch (IOException e) {
+                sender.sendMessage(ChatColor.RED + "Could not write timings: " + e.getMessage());
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
         } else if ("merged".equals(args[0]) || separate) {
 
             int index = 0;
@@ -107,6 +160,46 @@ public class TimingsCommand extends BukkitCommand {
         return true;
     }
 
+    private void reportStartup(CommandSender sender) {
+        StartupProfiler profiler = sender.getServer().getPluginManager().getStartupProfiler();
+        List<StartupProfiler.Profile> profiles = profiler.getProfiles();
+        sender.sendMessage("Slowest plugins to load and enable:");
+        for (StartupProfiler.Profile profile : profiles.subList(0, Math.min(STARTUP_REPORT_SIZE, profiles.size()))) {
+            sender.sendMessage(String.format("%s%s%s: %d ms (load %d ms, enable %d ms, %d classes in %d ms, %d listeners, %d commands)",
+                    ChatColor.GREEN,
+                    profile.getPlugin(),
+                    ChatColor.WHITE,
+                    TimeUnit.NANOSECONDS.toMillis(profile.getTotalTime()),
+                    TimeUnit.NANOSECONDS.toMillis(profile.getTime(StartupProfiler.Phase.CLASS_LOADER) + profile.getTime(StartupProfiler.Phase.LOAD)),
+                    TimeUnit.NANOSECONDS.toMillis(profile.getTime(StartupProfiler.Phase.ENABLE)),
+                    profile.getCount(StartupProfiler.Phase.CLASS_LOAD),
+                    TimeUnit.NANOSECONDS.toMillis(profile.getTime(StartupProfiler.Phase.CLASS_LOAD)),
+                    profile.getListenerCount(),
+                    profile.getCommandCount()));
+        }
+
+        File timingFolder = new File("timings");
+        timingFolder.mkdirs();
+        int index = 0;
+        File export = new File(timingFolder, "startup.json");
+        while (export.exists()) export = new File(timingFolder, "startup" + (++index) + ".json");
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(export), Charsets.UTF_8));
+            profiler.writeJson(writer);
+            sender.sendMessage("Startup profile written to " + export.getPath());
+        } catch (IOException e) {
+            sender.sendMessage(ChatColor.RED + "Could not write startup profile: " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+    }
+
     @Override
     public List<String> tabComplete(CommandSender sender, String alias, String[] args) {
         Validate.notNull(sender, "Sender cannot be null");
@@ -0,0 +1,178 @@
+package org.bukkit.configuration;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A path into a {@link MemorySection} that has been split into its
+ * individual keys ahead of time.
+ * <p>
+ * Lookups through a ConfigPath skip re-parsing the path string, and the
+ * section holding the final key is remembered between calls until the
+ * structure of the configuration changes. Paths that are read often should
+ * be compiled once and kept, for example in a constant.
+ * <p>
+ * A ConfigPath may be used with any section; the remembered section only
+ * applies to the section it was last used from.
+ */
+public final class ConfigPath {
+    private final String path;
+    private final char separator;
+    private final String[] keys;
+    private volatile Resolution resolution;
+
+    private ConfigPath(String path, char separator) {
+        this.path = path;
+        this.separator = separator;
+
+        if (path.length() == 0) {
+            this.keys = new String[0];
+            return;
+        }
+
+        int count = 1;
+        for (int i = 0; i < path.length(); i++) {
+            if (path.charAt(i) == separator) {
+                count++;
+            }
+        }
+
+        this.keys = new String[count];
+        // i1 is the leading (higher) index
+        // i2 is the trailing (lower) index
+        int i1 = -1, i2, index = 0;
+        while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
+            keys[index++] = path.substring(i2, i1).intern();
+        }
+        keys[index] = path.substring(i2).intern();
+    }
+
+    /**
+     * Compiles a path using the default path separator, '.'.
+     *
+     * @param path Path to compile
+     * @return Compiled path
+     * @throws IllegalArgumentException Thrown if path is null
+     */
+    public static ConfigPath of(String path) {
+        return of(path, '.');
+    }
+
+    /**
+     * Compiles a path using the specified path separator.
+     *
+     * @param path Path to compile
+     * @param separator Char separating the keys of the path
+     * @return Compiled path
+     * @throws IllegalArgumentException Thrown if path is null
+     */
+    public static ConfigPath of(String path, char separator) {
+        Validate.notNull(path, "Path cannot be null");
+
+        return new ConfigPath(path, separator);
+    }
+
+    /**
+     * Gets the path this was compiled from.
+     *
+     * @return Original path
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the char that separated the keys of the original path.
+     *
+     * @return Path separator
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Gets the number of keys in this path.
+     *
+     * @return Number of keys, 0 for the empty path
+     */
+    public int getKeyCount() {
+        return keys.length;
+    }
+
+    /**
+     * Gets the key at the given position in this path.
+     *
+     * @param index Position of the key
+     * @return Key at that position
+     * @throws IndexOutOfBoundsException Thrown if there is no such key
+     */
+    public String getKey(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Gets this path joined with the given separator.
+     *
+     * @param separator Char to place between keys
+     * @return Joined path
+     */
+    String toPath(char separator) {
+        if (separator == this.separator) {
+            return path;
+        }
+
+        StringBuilder builder = new StringBuilder(path.length());
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(keys[i]);
+        }
+        return builder.toString();
+    }
+
+    Resolution getResolution() {
+        return resolution;
+    }
+
+    void setResolution(Resolution resolution) {
+        this.resolution = resolution;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ConfigPath)) {
+            return false;
+        }
+        ConfigPath other = (ConfigPath) obj;
+        return separator == other.separator && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode() * 31 + separator;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    /**
+     * The section holding the last key of a path, as resolved from one
+     * section at one structural version of its configuration.
+     */
+    static final class Resolution {
+        final MemorySection origin;
+        final int version;
+        final ConfigurationSection section;
+
+        Resolution(MemorySection origin, int version, ConfigurationSection section) {
+            this.origin = origin;
+            this.version = version;
+            this.section = section;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Color;
@@ -24,6 +25,7 @@ public class MemorySection implements ConfigurationSection {
     private final ConfigurationSection parent;
     private final String path;
     private final String fullPath;
+    private final AtomicInteger structure;
 
     /**
      * Creates an empty MemorySection for use as a root {@link Configuration}
@@ -44,6 +46,7 @@ public class MemorySection implements ConfigurationSection {
         this.fullPath = "";
         this.parent = null;
         this.root = (Configuration) this;
+        this.structure = new AtomicInteger();
     }
 
     /**
@@ -66,6 +69,7 @@ public class MemorySection implements ConfigurationSection {
         Validate.notNull(root, "Path cannot be orphaned");
 
         this.fullPath = createPath(parent, path);
+        this.structure = (parent instanceof MemorySection) ? ((MemorySection) parent).structure : new AtomicInteger();
     }
 
     public Set<String> getKeys(boolean deep) {
@@ -117,6 +121,21 @@ public class MemorySection implements ConfigurationSection {
         return get(path, null) != null;
     }
 
+    public boolean contains(ConfigPath path) {
+        return get(path) != null;
+    }
+
+    public boolean isSet(ConfigPath path) {
+        Configuration root = getRoot();
+        if (root == null) {
+            return false;
+        }
+        if (root.options().copyDefaults()) {
+            return contains(path);
+        }
+        return get(path, null) != null;
+    }
+
     public String getCurrentPath() {
         return fullPath;
     }
@@ -184,18 +203,36 @@ public class MemorySection implements ConfigurationSection {
 
         String key = path.substring(i2);
         if (section == this) {
-            if (value == null) {
-                map.remove(key);
-            } else {
-                map.put(key, value);
-            }
+            putValue(key, value);
+        } else {
+            section.set(key, value);
+        }
+    }
+
+    /**
+     * Sets the specified path to the given value, creating any sections
+     * along the path that do not exist yet.
+     *
+     * @param path Compiled path of the object to set
+     * @param value New value to set the path to
+     * @see #set(String, Object)
+     */
+    public void set(ConfigPath path, Object value) {
+        Validate.notNull(path, "Path cannot be null");
+        Validate.isTrue(path.getKeyCount() > 0, "Cannot set to an empty path");
+
+        ConfigurationSection section = resolve(path, true);
+        String key = path.getKey(path.getKeyCount() - 1);
+        if (section instanceof MemorySection) {
+            ((MemorySection) section).putValue(key, value);
         } else {
             section.set(key, value);
         }
     }
 
     public Object get(String path) {
-        return get(path, getDefault(path));
+        Object val = get(path, null);
+        return (val != null) ? val : getDefault(path);
     }
 
     public Object get(String path, Object def) {
@@ -230,6 +267,40 @@ public class MemorySection implements ConfigurationSection {
         return section.get(key, def);
     }
 
+    public Object get(ConfigPath path) {
+        Object val = get(path, null);
+        return (val != null) ? val : getDefault(path);
+    }
+
+    /**
+     * Gets the requested Object by compiled path, returning a default value
+     * if not found.
+     *
+     * @param path Compiled path of the Object to get
+     * @param def The default value to return if the path is not found
+     * @return Requested Object
+     * @see #get(String, Object)
+     */
+    public Object get(ConfigPath path, Object def) {
+        Validate.notNull(path, "Path cannot be null");
+
+        if (path.getKeyCount() == 0) {
+            return this;
+        }
+
+        ConfigurationSection section = resolve(path, false);
+        if (section == null) {
+            return def;
+        }
+
+        String key = path.getKey(path.getKeyCount() - 1);
+        if (section instanceof MemorySection) {
+            Object result = ((MemorySection) section).map.get(key);
+            return (result == null) ? def : result;
+        }
+        return section.get(key, def);
+    }
+
     public ConfigurationSection createSection(String path) {
         Validate.notEmpty(path, "Cannot create section at empty path");
         Configuration root = getRoot();
@@ -255,12 +326,20 @@ public class MemorySection implements ConfigurationSection {
         String key = path.substring(i2);
         if (section == this) {
             ConfigurationSection result = new MemorySection(this, key);
-            map.put(key, result);
+            putValue(key, result);
             return result;
         }
         return section.createSection(key);
     }
 
+    public ConfigurationSection createSection(ConfigPath path) {
+        Validate.notNull(path, "Path cannot be null");
+        Validate.isTrue(path.getKeyCount() > 0, "Cannot create section at empty path");
+
+        ConfigurationSection section = resolve(path, true);
+        return section.createSection(path.getKey(path.getKeyCount() - 1));
+    }
+
     public ConfigurationSection createSection(String path, Map<?, ?> map) {
         ConfigurationSection section = createSection(path);
 
@@ -291,6 +370,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof String;
     }
 
+    public String getString(ConfigPath path) {
+        Object val = get(path, null);
+        if (val != null) {
+            return val.toString();
+        }
+
+        Object def = getDefault(path);
+        return (def != null) ? def.toString() : null;
+    }
+
+    public String getString(ConfigPath path, String def) {
+        Object val = get(path, null);
+        return (val != null) ? val.toString() : def;
+    }
+
+    public boolean isString(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof String;
+    }
+
     public int getInt(String path) {
         Object def = getDefault(path);
         return getInt(path, (def instanceof Number) ? toInt(def) : 0);
@@ -306,6 +405,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Integer;
     }
 
+    public int getInt(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Number) {
+            return toInt(val);
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Number) ? toInt(def) : 0;
+    }
+
+    public int getInt(ConfigPath path, int def) {
+        Object val = get(path, null);
+        return (val instanceof Number) ? toInt(val) : def;
+    }
+
+    public boolean isInt(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Integer;
+    }
+
     public boolean getBoolean(String path) {
         Object def = getDefault(path);
         return getBoolean(path, (def instanceof Boolean) ? (Boolean) def : false);
@@ -321,6 +440,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Boolean;
     }
 
+    public boolean getBoolean(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Boolean) {
+            return (Boolean) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Boolean) ? (Boolean) def : false;
+    }
+
+    public boolean getBoolean(ConfigPath path, boolean def) {
+        Object val = get(path, null);
+        return (val instanceof Boolean) ? (Boolean) val : def;
+    }
+
+    public boolean isBoolean(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Boolean;
+    }
+
     public double getDouble(String path) {
         Object def = getDefault(path);
         return getDouble(path, (def instanceof Number) ? toDouble(def) : 0);
@@ -336,6 +475,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Double;
     }
 
+    public double getDouble(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Number) {
+            return toDouble(val);
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Number) ? toDouble(def) : 0;
+    }
+
+    public double getDouble(ConfigPath path, double def) {
+        Object val = get(path, null);
+        return (val instanceof Number) ? toDouble(val) : def;
+    }
+
+    public boolean isDouble(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Double;
+    }
+
     public long getLong(String path) {
         Object def = getDefault(path);
         return getLong(path, (def instanceof Number) ? toLong(def) : 0);
@@ -351,6 +510,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Long;
     }
 
+    public long getLong(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Number) {
+            return toLong(val);
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Number) ? toLong(def) : 0;
+    }
+
+    public long getLong(ConfigPath path, long def) {
+        Object val = get(path, null);
+        return (val instanceof Number) ? toLong(val) : def;
+    }
+
+    public boolean isLong(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Long;
+    }
+
     // Java
     public List<?> getList(String path) {
         Object def = getDefault(path);
@@ -367,8 +546,35 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof List;
     }
 
+    public List<?> getList(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof List) {
+            return (List<?>) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof List) ? (List<?>) def : null;
+    }
+
+    public List<?> getList(ConfigPath path, List<?> def) {
+        Object val = get(path, null);
+        return (val instanceof List) ? (List<?>) val : def;
+    }
+
+    public boolean isList(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof List;
+    }
+
     public List<String> getStringList(String path) {
-        List<?> list = getList(path);
+        return toStringList(getList(path));
+    }
+
+    public List<String> getStringList(ConfigPath path) {
+        return toStringList(getList(path));
+    }
+
+    private List<String> toStringList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<String>(0);
@@ -386,7 +592,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Integer> getIntegerList(String path) {
-        List<?> list = getList(path);
+        return toIntegerList(getList(path));
+    }
+
+    public List<Integer> getIntegerList(ConfigPath path) {
+        return toIntegerList(getList(path));
+    }
+
+    private List<Integer> toIntegerList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Integer>(0);
@@ -413,7 +626,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Boolean> getBooleanList(String path) {
-        List<?> list = getList(path);
+        return toBooleanList(getList(path));
+    }
+
+    public List<Boolean> getBooleanList(ConfigPath path) {
+        return toBooleanList(getList(path));
+    }
+
+    private List<Boolean> toBooleanList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Boolean>(0);
@@ -437,7 +657,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Double> getDoubleList(String path) {
-        List<?> list = getList(path);
+        return toDoubleList(getList(path));
+    }
+
+    public List<Double> getDoubleList(ConfigPath path) {
+        return toDoubleList(getList(path));
+    }
+
+    private List<Double> toDoubleList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Double>(0);
@@ -464,7 +691,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Float> getFloatList(String path) {
-        List<?> list = getList(path);
+        return toFloatList(getList(path));
+    }
+
+    public List<Float> getFloatList(ConfigPath path) {
+        return toFloatList(getList(path));
+    }
+
+    private List<Float> toFloatList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Float>(0);
@@ -491,7 +725,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Long> getLongList(String path) {
-        List<?> list = getList(path);
+        return toLongList(getList(path));
+    }
+
+    public List<Long> getLongList(ConfigPath path) {
+        return toLongList(getList(path));
+    }
+
+    private List<Long> toLongList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Long>(0);
@@ -518,7 +759,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Byte> getByteList(String path) {
-        List<?> list = getList(path);
+        return toByteList(getList(path));
+    }
+
+    public List<Byte> getByteList(ConfigPath path) {
+        return toByteList(getList(path));
+    }
+
+    private List<Byte> toByteList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Byte>(0);
@@ -545,7 +793,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Character> getCharacterList(String path) {
-        List<?> list = getList(path);
+        return toCharacterList(getList(path));
+    }
+
+    public List<Character> getCharacterList(ConfigPath path) {
+        return toCharacterList(getList(path));
+    }
+
+    private List<Character> toCharacterList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Character>(0);
@@ -571,7 +826,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Short> getShortList(String path) {
-        List<?> list = getList(path);
+        return toShortList(getList(path));
+    }
+
+    public List<Short> getShortList(ConfigPath path) {
+        return toShortList(getList(path));
+    }
+
+    private List<Short> toShortList(List<?> list) {
 
         if (list == null) {
             return new ArrayList<Short>(0);
@@ -598,7 +860,14 @@ public class MemorySection implements ConfigurationSection {
     }
 
     public List<Map<?, ?>> getMapList(String path) {
-        List<?> list = getList(path);
+        return toMapList(getList(path));
+    }
+
+    public List<Map<?, ?>> getMapList(ConfigPath path) {
+        return toMapList(getList(path));
+    }
+
+    private List<Map<?, ?>> toMapList(List<?> list) {
         List<Map<?, ?>> result = new ArrayList<Map<?, ?>>();
 
         if (list == null) {
@@ -630,6 +899,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Vector;
     }
 
+    public Vector getVector(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Vector) {
+            return (Vector) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Vector) ? (Vector) def : null;
+    }
+
+    public Vector getVector(ConfigPath path, Vector def) {
+        Object val = get(path, null);
+        return (val instanceof Vector) ? (Vector) val : def;
+    }
+
+    public boolean isVector(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Vector;
+    }
+
     public OfflinePlayer getOfflinePlayer(String path) {
         Object def = getDefault(path);
         return getOfflinePlayer(path, (def instanceof OfflinePlayer) ? (OfflinePlayer) def : null);
@@ -645,6 +934,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof OfflinePlayer;
     }
 
+    public OfflinePlayer getOfflinePlayer(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof OfflinePlayer) {
+            return (OfflinePlayer) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof OfflinePlayer) ? (OfflinePlayer) def : null;
+    }
+
+    public OfflinePlayer getOfflinePlayer(ConfigPath path, OfflinePlayer def) {
+        Object val = get(path, null);
+        return (val instanceof OfflinePlayer) ? (OfflinePlayer) val : def;
+    }
+
+    public boolean isOfflinePlayer(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof OfflinePlayer;
+    }
+
     public ItemStack getItemStack(String path) {
         Object def = getDefault(path);
         return getItemStack(path, (def instanceof ItemStack) ? (ItemStack) def : null);
@@ -660,6 +969,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof ItemStack;
     }
 
+    public ItemStack getItemStack(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof ItemStack) {
+            return (ItemStack) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof ItemStack) ? (ItemStack) def : null;
+    }
+
+    public ItemStack getItemStack(ConfigPath path, ItemStack def) {
+        Object val = get(path, null);
+        return (val instanceof ItemStack) ? (ItemStack) val : def;
+    }
+
+    public boolean isItemStack(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof ItemStack;
+    }
+
     public Color getColor(String path) {
         Object def = getDefault(path);
         return getColor(path, (def instanceof Color) ? (Color) def : null);
@@ -675,6 +1004,26 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof Color;
     }
 
+    public Color getColor(ConfigPath path) {
+        Object val = get(path, null);
+        if (val instanceof Color) {
+            return (Color) val;
+        }
+
+        Object def = getDefault(path);
+        return (def instanceof Color) ? (Color) def : null;
+    }
+
+    public Color getColor(ConfigPath path, Color def) {
+        Object val = get(path, null);
+        return (val instanceof Color) ? (Color) val : def;
+    }
+
+    public boolean isColor(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof Color;
+    }
+
     public ConfigurationSection getConfigurationSection(String path) {
         Object val = get(path, null);
         if (val != null) {
@@ -690,6 +1039,21 @@ public class MemorySection implements ConfigurationSection {
         return val instanceof ConfigurationSection;
     }
 
+    public ConfigurationSection getConfigurationSection(ConfigPath path) {
+        Object val = get(path, null);
+        if (val != null) {
+            return (val instanceof ConfigurationSection) ? (ConfigurationSection) val : null;
+        }
+
+        val = getDefault(path);
+        return (val instanceof ConfigurationSection) ? createSection(path) : null;
+    }
+
+    public boolean isConfigurationSection(ConfigPath path) {
+        Object val = get(path);
+        return val instanceof ConfigurationSection;
+    }
+
     protected boolean isPrimitiveWrapper(Object input) {
         return input instanceof Integer || input instanceof Boolean ||
                 input instanceof Character || input instanceof Byte ||
@@ -705,6 +1069,71 @@ public class MemorySection implements ConfigurationSection {
         return (defaults == null) ? null : defaults.get(createPath(this, path));
     }
 
+    protected Object getDefault(ConfigPath path) {
+        Validate.notNull(path, "Path cannot be null");
+
+        Configuration root = getRoot();
+        Configuration defaults = root == null ? null : root.getDefaults();
+        return (defaults == null) ? null : defaults.get(createPath(this, path.toPath(root.options().pathSeparator())));
+    }
+
+    /**
+     * Finds the section holding the last key of the given path, reusing the
+     * section remembered by the path if nothing has been added to or removed
+     * from this configuration in a way that could change the result.
+     *
+     * @param path Compiled path to resolve
+     * @param create Whether missing sections should be created
+     * @return Section holding the last key, or null if one was missing
+     */
+    private ConfigurationSection resolve(ConfigPath path, boolean create) {
+        int last = path.getKeyCount() - 1;
+        if (last <= 0) {
+            return this;
+        }
+
+        int version = structure.get();
+        ConfigPath.Resolution resolution = path.getResolution();
+        if (resolution != null && resolution.origin == this && resolution.version == version) {
+            return resolution.section;
+        }
+
+        boolean cacheable = true;
+        ConfigurationSection section = this;
+        for (int i = 0; i < last; i++) {
+            String node = path.getKey(i);
+            Object val = (section instanceof MemorySection) ? ((MemorySection) section).map.get(node) : null;
+            ConfigurationSection subSection = (val instanceof ConfigurationSection) ? (ConfigurationSection) val : section.getConfigurationSection(node);
+            if (subSection == null) {
+                if (!create) {
+                    return null;
+                }
+                subSection = section.createSection(node);
+            }
+            section = subSection;
+            cacheable = cacheable && (section instanceof MemorySection) && ((MemorySection) section).structure == structure;
+        }
+
+        if (cacheable) {
+            path.setResolution(new ConfigPath.Resolution(this, version, section));
+        }
+        return section;
+    }
+
+    /**
+     * Stores a value directly in this section, invalidating resolved
+     * {@link ConfigPath}s when an existing section is replaced or removed.
+     *
+     * @param key Key in this section
+     * @param value Value to store, or null to remove the key
+     */
+    private void putValue(String key, Object value) {
+        Object previous = (value == null) ? map.remove(key) : map.put(key, value);
+        if (previous instanceof ConfigurationSection && previous != value) {
+            structure.incrementAndGet();
+        }
+    }
+
     protected void mapChildrenKeys(Set<String> output, ConfigurationSection section, boolean deep) {
         if (section instanceof MemorySection) {
             MemorySection sec = (MemorySection) section;
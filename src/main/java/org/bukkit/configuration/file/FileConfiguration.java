@@ -7,6 +7,7 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.configuration.InvalidConfigurationException;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -100,17 +101,33 @@ public abstract class FileConfiguration extends MemoryConfiguration {
 
         Files.createParentDirs(file);
 
-        String data = saveToString();
-
-        Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF8_OVERRIDE && !UTF_BIG ? Charsets.UTF_8 : Charset.defaultCharset());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), UTF8_OVERRIDE && !UTF_BIG ? Charsets.UTF_8 : Charset.defaultCharset()));
 
         try {
-            writer.write(data);
+            save(writer);
         } finally {
             writer.close();
         }
     }
 
+    /**
+     * Saves this {@link FileConfiguration} to the specified writer.
+     * <p>
+     * Implementations may write the configuration as it is serialized,
+     * without building it as a string first. The writer is flushed, but not
+     * closed.
+     *
+     * @param writer Writer to save to.
+     * @throws IOException Thrown when the writer throws an IOException.
+     * @throws IllegalArgumentException Thrown when writer is null.
+     */
+    public void save(Writer writer) throws IOException {
+        Validate.notNull(writer, "Writer cannot be null");
+
+        writer.write(saveToString());
+        writer.flush();
+    }
+
     /**
      * Saves this {@link FileConfiguration} to the specified location.
      * <p>
@@ -2,9 +2,11 @@ package org.bukkit.configuration.file;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.Map;
 import java.util.logging.Level;
 
@@ -31,10 +33,7 @@ public class YamlConfiguration extends FileConfiguration {
 
     @Override
     public String saveToString() {
-        yamlOptions.setIndent(options().indent());
-        yamlOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
-        yamlOptions.setAllowUnicode(SYSTEM_UTF);
-        yamlRepresenter.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        configureDumper();
 
         String header = buildHeader();
         String dump = yaml.dump(getValues(false));
@@ -46,6 +45,80 @@ public class YamlConfiguration extends FileConfiguration {
         return header + dump;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The configuration is emitted straight to the writer, without building
+     * it as a string first.
+     */
+    @Override
+    public void save(Writer writer) throws IOException {
+        Validate.notNull(writer, "Writer cannot be null");
+
+        configureDumper();
+
+        writer.write(buildHeader());
+
+        Map<String, Object> values = getValues(false);
+        if (!values.isEmpty()) {
+            try {
+                yaml.dump(values, writer);
+            } catch (YAMLException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        writer.flush();
+    }
+
+    private void configureDumper() {
+        yamlOptions.setIndent(options().indent());
+        yamlOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        yamlOptions.setAllowUnicode(SYSTEM_UTF);
+        yamlRepresenter.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The reader is passed straight to the parser, and the header is parsed
+     * from the characters as they are read, so the contents are never held
+     * as a string.
+     */
+    @Override
+    public void load(Reader reader) throws IOException, InvalidConfigurationException {
+        Validate.notNull(reader, "Reader cannot be null");
+
+        HeaderReader input = new HeaderReader(reader);
+        Map<?, ?> map;
+        String header;
+        try {
+            try {
+                map = (Map<?, ?>) yaml.load(input);
+            } catch (YAMLException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new InvalidConfigurationException(e);
+            } catch (ClassCastException e) {
+                throw new InvalidConfigurationException("Top level is not a Map.");
+            }
+            header = input.getHeader();
+        } finally {
+            input.close();
+        }
+
+        if (header.length() > 0) {
+            options().header(header);
+        }
+
+        if (map != null) {
+            convertMapsToSections(map, this);
+        }
+    }
+
     @Override
     public void loadFromString(String contents) throws InvalidConfigurationException {
         Validate.notNull(contents, "Contents cannot be null");
@@ -111,6 +184,137 @@ public class YamlConfiguration extends FileConfiguration {
         return result.toString();
     }
 
+    /**
+     * Passes characters through while parsing the header from them, the same
+     * way as {@link YamlConfiguration#parseHeader(String)}. Only comment lines
+     * of the header are kept.
+     */
+    private static final class HeaderReader extends FilterReader {
+        private final StringBuilder header = new StringBuilder();
+        private final StringBuilder line = new StringBuilder();
+        private boolean otherLine = false;
+        private int lineNumber = 0;
+        private boolean foundHeader = false;
+        private boolean readingHeader = true;
+        private boolean ended = false;
+
+        HeaderReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c == -1) {
+                end();
+            } else if (readingHeader) {
+                accept((char) c);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read == -1) {
+                end();
+            }
+            for (int i = offset; i < offset + read && readingHeader; i++) {
+                accept(buffer[i]);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            char[] buffer = new char[(int) Math.min(n, 1024)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readAheadLimit) throws IOException {
+            throw new IOException("mark() not supported");
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("reset() not supported");
+        }
+
+        private void accept(char c) {
+            if (c == '\n') {
+                endLine();
+            } else if (!otherLine) {
+                line.append(c);
+                // Only comment lines, and whether a line is empty, matter
+                if (line.length() == COMMENT_PREFIX.length() && !COMMENT_PREFIX.contentEquals(line)) {
+                    otherLine = true;
+                    line.setLength(0);
+                }
+            }
+        }
+
+        private void endLine() {
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+
+            if (!otherLine && line.length() >= COMMENT_PREFIX.length() && line.indexOf(COMMENT_PREFIX) == 0) {
+                if (lineNumber > 0) {
+                    header.append('\n');
+                }
+                header.append(line, COMMENT_PREFIX.length(), line.length());
+                foundHeader = true;
+            } else if (foundHeader && !otherLine && line.length() == 0) {
+                header.append('\n');
+            } else if (foundHeader) {
+                readingHeader = false;
+            }
+
+            line.setLength(0);
+            otherLine = false;
+            lineNumber++;
+        }
+
+        private void end() {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (readingHeader && (otherLine || line.length() > 0)) {
+                endLine();
+            }
+            // Like a trailing line break followed by an empty line
+            if (readingHeader) {
+                endLine();
+            }
+        }
+
+        /**
+         * Reads the rest of the header if needed, and returns it
+         */
+        String getHeader() throws IOException {
+            char[] buffer = new char[1024];
+            while (readingHeader && !ended && read(buffer, 0, buffer.length) != -1) {
+            }
+            end();
+            return header.toString();
+        }
+    }
+
     @Override
     protected String buildHeader() {
         String header = options().header();
@@ -0,0 +1,18 @@
+package org.bukkit.event;
+
+/**
+ * A {@link Cancellable} {@link ConcurrentEvent}, whose listeners of one
+ * priority may run in parallel.
+ * <p>
+ * Implementations must read and write their cancellation state only through
+ * {@link #getCancellationState()}.
+ */
+public interface AsyncCancellable extends Cancellable, ConcurrentEvent {
+
+    /**
+     * Gets the object holding the cancellation state of this event
+     *
+     * @return the cancellation state
+     */
+    public CancellationState getCancellationState();
+}
@@ -0,0 +1,30 @@
+package org.bukkit.event;
+
+/**
+ * Thrown by a batch executor to name the event of a batch that could not be
+ * handled, so the failure is reported against that event.
+ */
+public class BatchEventException extends EventException {
+    private static final long serialVersionUID = -2863512393735817745L;
+    private final Event event;
+
+    /**
+     * Constructs a new BatchEventException for the given event
+     *
+     * @param event The event that could not be handled
+     * @param cause The exception that caused this
+     */
+    public BatchEventException(Event event, Throwable cause) {
+        super(cause);
+        this.event = event;
+    }
+
+    /**
+     * Gets the event of the batch that could not be handled
+     *
+     * @return The failed event
+     */
+    public Event getEvent() {
+        return event;
+    }
+}
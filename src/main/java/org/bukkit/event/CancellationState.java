@@ -0,0 +1,63 @@
+package org.bukkit.event;
+
+/**
+ * Holds the cancellation state of an {@link AsyncCancellable} event.
+ * <p>
+ * When the plugin manager runs listeners of one priority in parallel, each
+ * listener thread works on its own view of the state, starting from the
+ * state the priority level started with. The plugin manager then applies
+ * the views in registration order once the level has finished.
+ */
+public final class CancellationState {
+    private final ThreadLocal<boolean[]> view = new ThreadLocal<boolean[]>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * Gets the cancellation state, as seen by the current thread
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        boolean[] local = view.get();
+        return local != null ? local[0] : cancelled;
+    }
+
+    /**
+     * Sets the cancellation state, as seen by the current thread
+     *
+     * @param cancel true to cancel
+     */
+    public void setCancelled(boolean cancel) {
+        boolean[] local = view.get();
+        if (local != null) {
+            local[0] = cancel;
+        } else {
+            cancelled = cancel;
+        }
+    }
+
+    /**
+     * Starts a view of this state for the current thread. Until {@link
+     * #endView()} is called, changes made by this thread are only visible
+     * to this thread.
+     * <p>
+     * This is meant for the plugin manager, not for listeners.
+     */
+    public void beginView() {
+        view.set(new boolean[] { cancelled });
+    }
+
+    /**
+     * Ends the view of this state for the current thread, without applying
+     * it
+     * <p>
+     * This is meant for the plugin manager, not for listeners.
+     *
+     * @return the cancellation state as last seen by the current thread
+     */
+    public boolean endView() {
+        boolean[] local = view.get();
+        view.remove();
+        return local != null ? local[0] : cancelled;
+    }
+}
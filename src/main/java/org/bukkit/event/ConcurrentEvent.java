@@ -0,0 +1,13 @@
+package org.bukkit.event;
+
+/**
+ * An asynchronous event that may be passed to several listeners of one
+ * priority at the same time.
+ * <p>
+ * Implementations must keep all of their state safe for concurrent use by
+ * listeners. A cancellable event must implement {@link AsyncCancellable} to
+ * have its cancellation state merged in registration order; other
+ * cancellable events are never passed to listeners at the same time.
+ */
+public interface ConcurrentEvent {
+}
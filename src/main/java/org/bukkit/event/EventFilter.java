@@ -0,0 +1,380 @@
+package org.bukkit.event;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.block.BlockEvent;
+import org.bukkit.event.entity.EntityEvent;
+import org.bukkit.event.hanging.HangingEvent;
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.vehicle.VehicleEvent;
+import org.bukkit.event.weather.WeatherEvent;
+import org.bukkit.event.world.WorldEvent;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Restricts the events a listener receives by world, material, entity type,
+ * cause and movement granularity, without the listener being called.
+ * <p>
+ * Each criterion is only checked when it is not empty, and an event matches
+ * when it matches every non-empty criterion. An event that does not have a
+ * value for a checked criterion, such as a world filter on a server event,
+ * does not match.
+ * <p>
+ * Values are taken from the event as follows:
+ * <ul>
+ * <li>World: the world of the player, block, entity, vehicle or hanging
+ *     entity of the event, or the world of world and weather events.
+ * <li>Material: the type of the block of block events, or the type of the
+ *     item of {@link PlayerInteractEvent}s.
+ * <li>Entity type: the type of the entity, vehicle or hanging entity of the
+ *     event, or {@link EntityType#PLAYER} for player events.
+ * <li>Cause: the name of the enum returned by the event's
+ *     <code>getCause()</code>, <code>getSpawnReason()</code>,
+ *     <code>getRegainReason()</code> or <code>getReason()</code> method.
+ * </ul>
+ * <p>
+ * The movement granularity only affects movement events, see {@link
+ * MovementGranularity#crossedBy(Event)}.
+ *
+ * @see EventHandler#world()
+ * @see EventHandler#material()
+ * @see EventHandler#entityType()
+ * @see EventHandler#cause()
+ * @see EventHandler#granularity()
+ */
+public final class EventFilter {
+    static final int WORLD = 1;
+    static final int MATERIAL = 1 << 1;
+    static final int ENTITY_TYPE = 1 << 2;
+    static final int CAUSE = 1 << 3;
+
+    /**
+     * A filter that matches every event
+     */
+    public static final EventFilter NONE = new EventFilter(Collections.<String>emptySet(), EnumSet.noneOf(Material.class), EnumSet.noneOf(EntityType.class), Collections.<String>emptySet(), MovementGranularity.ANY);
+
+    private static final String[] CAUSE_METHODS = { "getCause", "getSpawnReason", "getRegainReason", "getReason" };
+    private static final Method NO_CAUSE;
+    // Cleared per class loader by EventTypeRegistry.invalidate
+    static final Map<Class<?>, Method> causeMethods = new ConcurrentHashMap<Class<?>, Method>();
+
+    static {
+        try {
+            NO_CAUSE = Object.class.getMethod("toString");
+        } catch (NoSuchMethodException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final Set<String> worlds;
+    private final Set<Material> materials;
+    private final Set<EntityType> entityTypes;
+    private final Set<String> causes;
+    private final MovementGranularity granularity;
+    private final int mask;
+
+    private EventFilter(Collection<String> worlds, Collection<Material> materials, Collection<EntityType> entityTypes, Collection<String> causes, MovementGranularity granularity) {
+        this.worlds = ImmutableSet.copyOf(worlds);
+        this.materials = materials.isEmpty() ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(materials);
+        this.entityTypes = entityTypes.isEmpty() ? EnumSet.noneOf(EntityType.class) : EnumSet.copyOf(entityTypes);
+        this.causes = ImmutableSet.copyOf(causes);
+        this.granularity = granularity;
+        this.mask = (this.worlds.isEmpty() ? 0 : WORLD)
+                | (this.materials.isEmpty() ? 0 : MATERIAL)
+                | (this.entityTypes.isEmpty() ? 0 : ENTITY_TYPE)
+                | (this.causes.isEmpty() ? 0 : CAUSE);
+    }
+
+    /**
+     * Creates a filter
+     *
+     * @param worlds names of the accepted worlds, or empty for any
+     * @param materials accepted materials, or empty for any
+     * @param entityTypes accepted entity types, or empty for any
+     * @param causes names of the accepted causes, or empty for any
+     * @return the filter
+     */
+    public static EventFilter of(Collection<String> worlds, Collection<Material> materials, Collection<EntityType> entityTypes, Collection<String> causes) {
+        Validate.notNull(worlds, "Worlds cannot be null");
+        Validate.notNull(materials, "Materials cannot be null");
+        Validate.notNull(entityTypes, "Entity types cannot be null");
+        Validate.notNull(causes, "Causes cannot be null");
+
+        if (worlds.isEmpty() && materials.isEmpty() && entityTypes.isEmpty() && causes.isEmpty()) {
+            return NONE;
+        }
+        return new EventFilter(worlds, materials, entityTypes, causes, MovementGranularity.ANY);
+    }
+
+    /**
+     * Creates the filter declared by an event handler annotation
+     *
+     * @param handler the annotation
+     * @return the filter
+     */
+    public static EventFilter of(EventHandler handler) {
+        return of(Arrays.asList(handler.world()), Arrays.asList(handler.material()), Arrays.asList(handler.entityType()), Arrays.asList(handler.cause())).withGranularity(handler.granularity());
+    }
+
+    /**
+     * Creates a filter with the same criteria as this filter, but the given
+     * movement granularity
+     *
+     * @param granularity the minimum movement to deliver
+     * @return the filter
+     */
+    public EventFilter withGranularity(MovementGranularity granularity) {
+        Validate.notNull(granularity, "Granularity cannot be null");
+
+        if (granularity == this.granularity) {
+            return this;
+        }
+        if (mask == 0 && granularity == MovementGranularity.ANY) {
+            return NONE;
+        }
+        return new EventFilter(worlds, materials, entityTypes, causes, granularity);
+    }
+
+    /**
+     * Gets the names of the accepted worlds
+     *
+     * @return the world names, empty if any world is accepted
+     */
+    public Set<String> getWorlds() {
+        return worlds;
+    }
+
+    /**
+     * Gets the accepted materials
+     *
+     * @return the materials, empty if any material is accepted
+     */
+    public Set<Material> getMaterials() {
+        return Collections.unmodifiableSet(materials);
+    }
+
+    /**
+     * Gets the accepted entity types
+     *
+     * @return the entity types, empty if any entity type is accepted
+     */
+    public Set<EntityType> getEntityTypes() {
+        return Collections.unmodifiableSet(entityTypes);
+    }
+
+    /**
+     * Gets the names of the accepted causes
+     *
+     * @return the cause names, empty if any cause is accepted
+     */
+    public Set<String> getCauses() {
+        return causes;
+    }
+
+    /**
+     * Gets the minimum movement for movement events to be delivered
+     *
+     * @return the granularity, {@link MovementGranularity#ANY} if every
+     *     movement is accepted
+     */
+    public MovementGranularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Gets whether this filter accepts every event
+     *
+     * @return true if no criterion is set
+     */
+    public boolean isEmpty() {
+        return mask == 0 && granularity == MovementGranularity.ANY;
+    }
+
+    /**
+     * Checks whether the given event passes this filter
+     *
+     * @param event the event to check
+     * @return true if the event matches every criterion of this filter
+     */
+    public boolean matches(Event event) {
+        if (granularity != MovementGranularity.ANY && MovementGranularity.crossedBy(event).compareTo(granularity) < 0) {
+            return false;
+        }
+        return mask == 0 || matches(new Key(event, mask));
+    }
+
+    int getMask() {
+        return mask;
+    }
+
+    boolean matches(Key key) {
+        if ((mask & WORLD) != 0 && (key.world == null || !worlds.contains(key.world))) {
+            return false;
+        }
+        if ((mask & MATERIAL) != 0 && (key.material == null || !materials.contains(key.material))) {
+            return false;
+        }
+        if ((mask & ENTITY_TYPE) != 0 && (key.entityType == null || !entityTypes.contains(key.entityType))) {
+            return false;
+        }
+        if ((mask & CAUSE) != 0 && (key.cause == null || !causes.contains(key.cause))) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "EventFilter{worlds=" + worlds + ", materials=" + materials + ", entityTypes=" + entityTypes + ", causes=" + causes + ", granularity=" + granularity + "}";
+    }
+
+    /**
+     * The filtered values of one event. Only the values selected by the mask
+     * are extracted, so events can be keyed cheaply by what the registered
+     * filters actually check.
+     */
+    static final class Key {
+        final String world;
+        final Material material;
+        final EntityType entityType;
+        final String cause;
+
+        Key(Event event, int mask) {
+            world = (mask & WORLD) != 0 ? worldOf(event) : null;
+            material = (mask & MATERIAL) != 0 ? materialOf(event) : null;
+            entityType = (mask & ENTITY_TYPE) != 0 ? entityTypeOf(event) : null;
+            cause = (mask & CAUSE) != 0 ? causeOf(event) : null;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = world == null ? 0 : world.hashCode();
+            hash = 31 * hash + (material == null ? 0 : material.hashCode());
+            hash = 31 * hash + (entityType == null ? 0 : entityType.hashCode());
+            return 31 * hash + (cause == null ? 0 : cause.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return material == other.material
+                    && entityType == other.entityType
+                    && (world == null ? other.world == null : world.equals(other.world))
+                    && (cause == null ? other.cause == null : cause.equals(other.cause));
+        }
+    }
+
+    private static String worldOf(Event event) {
+        World world = null;
+        if (event instanceof PlayerEvent) {
+            Entity player = ((PlayerEvent) event).getPlayer();
+            world = player == null ? null : player.getWorld();
+        } else if (event instanceof BlockEvent) {
+            Block block = ((BlockEvent) event).getBlock();
+            world = block == null ? null : block.getWorld();
+        } else if (event instanceof EntityEvent) {
+            Entity entity = ((EntityEvent) event).getEntity();
+            world = entity == null ? null : entity.getWorld();
+        } else if (event instanceof VehicleEvent) {
+            Entity vehicle = ((VehicleEvent) event).getVehicle();
+            world = vehicle == null ? null : vehicle.getWorld();
+        } else if (event instanceof HangingEvent) {
+            Entity hanging = ((HangingEvent) event).getEntity();
+            world = hanging == null ? null : hanging.getWorld();
+        } else if (event instanceof WorldEvent) {
+            world = ((WorldEvent) event).getWorld();
+        } else if (event instanceof WeatherEvent) {
+            world = ((WeatherEvent) event).getWorld();
+        }
+        return world == null ? null : world.getName();
+    }
+
+    private static Material materialOf(Event event) {
+        if (event instanceof BlockEvent) {
+            Block block = ((BlockEvent) event).getBlock();
+            return block == null ? null : block.getType();
+        } else if (event instanceof PlayerInteractEvent) {
+            return ((PlayerInteractEvent) event).getMaterial();
+        }
+        return null;
+    }
+
+    private static EntityType entityTypeOf(Event event) {
+        Entity entity = null;
+        if (event instanceof PlayerEvent) {
+            return EntityType.PLAYER;
+        } else if (event instanceof EntityEvent) {
+            entity = ((EntityEvent) event).getEntity();
+        } else if (event instanceof VehicleEvent) {
+            entity = ((VehicleEvent) event).getVehicle();
+        } else if (event instanceof HangingEvent) {
+            entity = ((HangingEvent) event).getEntity();
+        }
+        return entity == null ? null : entity.getType();
+    }
+
+    private static String causeOf(Event event) {
+        Class<?> clazz = event.getClass();
+        Method method = causeMethods.get(clazz);
+        if (method == null) {
+            method = findCauseMethod(clazz);
+            causeMethods.put(clazz, method);
+        }
+        if (method == NO_CAUSE) {
+            return null;
+        }
+
+        try {
+            Object cause = method.invoke(event);
+            return cause == null ? null : ((Enum<?>) cause).name();
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Forgets the cause methods of event classes involving a class defined
+     * by the given class loader
+     */
+    static void invalidate(ClassLoader loader) {
+        for (Iterator<Class<?>> it = causeMethods.keySet().iterator(); it.hasNext();) {
+            if (EventTypeRegistry.involves(it.next(), loader)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static Method findCauseMethod(Class<?> clazz) {
+        for (String name : CAUSE_METHODS) {
+            try {
+                Method method = clazz.getMethod(name);
+                if (Enum.class.isAssignableFrom(method.getReturnType())) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            } catch (NoSuchMethodException ex) {
+                continue;
+            }
+        }
+        return NO_CAUSE;
+    }
+}
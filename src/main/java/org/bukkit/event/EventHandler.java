@@ -5,6 +5,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+
 /**
  * An annotation to mark methods as being event handler methods
  */
@@ -34,4 +37,55 @@ public @interface EventHandler {
      * not called. Otherwise, the method is always called.
      */
     boolean ignoreCancelled() default false;
+
+    /**
+     * Define the names of the worlds the handler receives events from.
+     * <p>
+     * If empty, events from any world are received.
+     *
+     * @see EventFilter
+     */
+    String[] world() default {};
+
+    /**
+     * Define the block or item materials the handler receives events for.
+     * <p>
+     * If empty, events for any material are received.
+     *
+     * @see EventFilter
+     */
+    Material[] material() default {};
+
+    /**
+     * Define the entity types the handler receives events for.
+     * <p>
+     * If empty, events for any entity type are received.
+     *
+     * @see EventFilter
+     */
+    EntityType[] entityType() default {};
+
+    /**
+     * Define the names of the causes the handler receives events for, such
+     * as <code>"FALL"</code> for an {@link
+     * org.bukkit.event.entity.EntityDamageEvent}.
+     * <p>
+     * If empty, events with any cause are received.
+     *
+     * @see EventFilter
+     */
+    String[] cause() default {};
+
+    /**
+     * Define how far a player or vehicle must move before a movement event
+     * is received.
+     * <p>
+     * Only affects {@link org.bukkit.event.player.PlayerMoveEvent}s and
+     * {@link org.bukkit.event.vehicle.VehicleMoveEvent}s. The movement is
+     * measured between the from and to locations when the event is fired,
+     * before any handler changes them.
+     *
+     * @see MovementGranularity
+     */
+    MovementGranularity granularity() default MovementGranularity.ANY;
 }
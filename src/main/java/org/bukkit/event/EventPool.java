@@ -0,0 +1,82 @@
+package org.bukkit.event;
+
+import java.util.ArrayList;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A per-thread pool of {@link ReusableEvent}s.
+ * <p>
+ * Each thread keeps its own instances, so no locking takes place. A thread
+ * may acquire several instances at once, as needed when a handler causes
+ * another event of the same type to be fired.
+ * <p>
+ * Typical use by a server implementation:
+ * <pre>
+ * PlayerMoveEvent event = pool.acquire().reinitialize(player, from, to);
+ * try {
+ *     pluginManager.callEvent(event);
+ *     // read the results
+ * } finally {
+ *     pool.release(event);
+ * }
+ * </pre>
+ *
+ * @param <T> the type of pooled event
+ */
+public abstract class EventPool<T extends Event & ReusableEvent> {
+    private final int maxSize;
+    private final ThreadLocal<ArrayList<T>> pools = new ThreadLocal<ArrayList<T>>() {
+        @Override
+        protected ArrayList<T> initialValue() {
+            return new ArrayList<T>(maxSize);
+        }
+    };
+
+    /**
+     * Creates a new pool
+     *
+     * @param maxSize the maximum number of idle events kept per thread
+     */
+    public EventPool(int maxSize) {
+        Validate.isTrue(maxSize > 0, "Max size must be positive");
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a new, blank event when no pooled instance is available
+     *
+     * @return a new event
+     */
+    protected abstract T create();
+
+    /**
+     * Takes an event from the current thread's pool, or creates one if the
+     * pool is empty. The event is in its reset state.
+     *
+     * @return an event ready to be reinitialized
+     */
+    public T acquire() {
+        ArrayList<T> pool = pools.get();
+        int size = pool.size();
+        if (size == 0) {
+            return create();
+        }
+        return pool.remove(size - 1);
+    }
+
+    /**
+     * Resets the event and returns it to the current thread's pool. The
+     * caller must not use the event afterwards.
+     *
+     * @param event the event to release
+     */
+    public void release(T event) {
+        Validate.notNull(event, "Event cannot be null");
+        event.reset();
+        ArrayList<T> pool = pools.get();
+        if (pool.size() < maxSize) {
+            pool.add(event);
+        }
+    }
+}
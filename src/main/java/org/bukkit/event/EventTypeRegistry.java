@@ -0,0 +1,144 @@
+package org.bukkit.event;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.plugin.IllegalPluginAccessException;
+
+/**
+ * Resolves and caches the {@link HandlerList} of every event class.
+ * <p>
+ * The handler list of an event class is the one returned by the static
+ * <code>getHandlerList()</code> method of the class, or of its closest
+ * superclass declaring one. Each class is resolved once; classes without a
+ * handler list are cached as well, so registering them fails fast.
+ * <p>
+ * Plugin loaders must call {@link #invalidate(ClassLoader)} when they
+ * unload a class loader, so its classes are not kept alive by the cache.
+ */
+public final class EventTypeRegistry {
+    private static final Map<Class<? extends Event>, Resolution> resolutions = new ConcurrentHashMap<Class<? extends Event>, Resolution>();
+
+    private EventTypeRegistry() {}
+
+    /**
+     * Gets the handler list listeners for the given event class are
+     * registered in
+     *
+     * @param type The event class
+     * @return The handler list of the event class
+     * @throws IllegalPluginAccessException If the event class has no
+     *     handler list
+     */
+    public static HandlerList getHandlerList(Class<? extends Event> type) {
+        return resolve(type).getHandlerList();
+    }
+
+    /**
+     * Gets the class declaring the handler list of the given event class
+     *
+     * @param type The event class
+     * @return The event class itself or the superclass declaring its
+     *     handler list
+     * @throws IllegalPluginAccessException If the event class has no
+     *     handler list
+     */
+    public static Class<? extends Event> getRegistrationClass(Class<? extends Event> type) {
+        return resolve(type).getRegistrationClass();
+    }
+
+    /**
+     * Forgets every resolution involving a class defined by the given class
+     * loader, along with the cause methods cached by {@link EventFilter}
+     *
+     * @param loader The class loader being unloaded
+     */
+    public static void invalidate(ClassLoader loader) {
+        Validate.notNull(loader, "Loader cannot be null");
+
+        for (Iterator<Map.Entry<Class<? extends Event>, Resolution>> it = resolutions.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Class<? extends Event>, Resolution> entry = it.next();
+            if (involves(entry.getKey(), loader)) {
+                it.remove();
+            }
+        }
+        EventFilter.invalidate(loader);
+    }
+
+    static boolean involves(Class<?> type, ClassLoader loader) {
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            if (clazz.getClassLoader() == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Resolution resolve(Class<? extends Event> type) {
+        Validate.notNull(type, "Event class cannot be null");
+
+        Resolution resolution = resolutions.get(type);
+        if (resolution == null) {
+            resolution = compute(type);
+            resolutions.put(type, resolution);
+        }
+        return resolution;
+    }
+
+    private static Resolution compute(Class<? extends Event> type) {
+        for (Class<?> clazz = type; clazz != null && !clazz.equals(Event.class) && Event.class.isAssignableFrom(clazz); clazz = clazz.getSuperclass()) {
+            Method method = getHandlerListMethod(clazz);
+            if (method == null) {
+                continue;
+            }
+
+            try {
+                method.setAccessible(true);
+                return new Resolution(clazz.asSubclass(Event.class), (HandlerList) method.invoke(null), null);
+            } catch (Exception e) {
+                return new Resolution(null, null, e.toString());
+            }
+        }
+        return new Resolution(null, null, "Unable to find handler list for event " + type.getName());
+    }
+
+    private static Method getHandlerListMethod(Class<?> clazz) {
+        try {
+            return clazz.getDeclaredMethod("getHandlerList");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The handler list of an event class, or why it has none
+     */
+    private static final class Resolution {
+        private final Class<? extends Event> registrationClass;
+        private final HandlerList handlerList;
+        private final String error;
+
+        Resolution(Class<? extends Event> registrationClass, HandlerList handlerList, String error) {
+            this.registrationClass = registrationClass;
+            this.handlerList = handlerList;
+            this.error = error;
+        }
+
+        HandlerList getHandlerList() {
+            if (error != null) {
+                throw new IllegalPluginAccessException(error);
+            }
+            return handlerList;
+        }
+
+        Class<? extends Event> getRegistrationClass() {
+            if (error != null) {
+                throw new IllegalPluginAccessException(error);
+            }
+            return registrationClass;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.bukkit.plugin.RegisteredListener;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A list of event handlers, stored per-event. Based on lahwran's fevents.
@@ -14,12 +15,22 @@ public class HandlerList {
     /**
      * Handler array. This field being an array is the key to this system's
      * speed.
+     * <p>
+     * The array is never modified once published. Every change to the
+     * handler slots bakes a new array and swaps it in, so readers never need
+     * to lock. It is baked in the constructor and never set back to null.
+     */
+    private volatile RegisteredListener[] handlers;
+
+    /**
+     * Dispatch index for listeners with an {@link EventFilter}, or null if
+     * no registered listener is filtered. Rebuilt on every bake.
      */
-    private volatile RegisteredListener[] handlers = null;
+    private volatile DispatchIndex dispatchIndex = null;
 
     /**
      * Dynamic handler lists. These are changed using register() and
-     * unregister() and are automatically baked to the handlers array any time
+     * unregister() and are immediately baked to the handlers array any time
      * they have changed.
      */
     private final EnumMap<EventPriority, ArrayList<RegisteredListener>> handlerslots;
@@ -29,6 +40,15 @@ public class HandlerList {
      */
     private static ArrayList<HandlerList> allLists = new ArrayList<HandlerList>();
 
+    /**
+     * Registrations of each plugin and of each listener, by handler list, so
+     * they can be unregistered without walking every handler list. Guarded
+     * by indexLock, which is always taken after the lock of a handler list.
+     */
+    private static final Map<Plugin, Map<HandlerList, Set<RegisteredListener>>> byPlugin = new HashMap<Plugin, Map<HandlerList, Set<RegisteredListener>>>();
+    private static final Map<Listener, Map<HandlerList, Set<RegisteredListener>>> byListener = new HashMap<Listener, Map<HandlerList, Set<RegisteredListener>>>();
+    private static final Object indexLock = new Object();
+
     /**
      * Bake all handler lists. Best used just after all normal event
      * registration is complete, ie just after all plugins are loaded if
@@ -52,35 +72,54 @@ public class HandlerList {
                     for (List<RegisteredListener> list : h.handlerslots.values()) {
                         list.clear();
                     }
-                    h.handlers = null;
+                    h.rebake();
                 }
             }
+            synchronized (indexLock) {
+                byPlugin.clear();
+                byListener.clear();
+            }
         }
     }
 
     /**
      * Unregister a specific plugin's listeners from all handler lists.
+     * <p>
+     * Only the handler lists the plugin has listeners in are changed, and
+     * each of them is baked once.
      *
      * @param plugin plugin to unregister
      */
     public static void unregisterAll(Plugin plugin) {
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                h.unregister(plugin);
-            }
+        Map<HandlerList, Set<RegisteredListener>> registrations;
+        synchronized (indexLock) {
+            registrations = byPlugin.remove(plugin);
         }
+        removeAll(registrations);
     }
 
     /**
      * Unregister a specific listener from all handler lists.
+     * <p>
+     * Only the handler lists the listener is registered in are changed, and
+     * each of them is baked once.
      *
      * @param listener listener to unregister
      */
     public static void unregisterAll(Listener listener) {
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                h.unregister(listener);
-            }
+        Map<HandlerList, Set<RegisteredListener>> registrations;
+        synchronized (indexLock) {
+            registrations = byListener.remove(listener);
+        }
+        removeAll(registrations);
+    }
+
+    private static void removeAll(Map<HandlerList, Set<RegisteredListener>> registrations) {
+        if (registrations == null) {
+            return;
+        }
+        for (Map.Entry<HandlerList, Set<RegisteredListener>> entry : registrations.entrySet()) {
+            entry.getKey().remove(entry.getValue());
         }
     }
 
@@ -94,6 +133,7 @@ public class HandlerList {
         for (EventPriority o : EventPriority.values()) {
             handlerslots.put(o, new ArrayList<RegisteredListener>());
         }
+        rebake();
         synchronized (allLists) {
             allLists.add(this);
         }
@@ -105,20 +145,98 @@ public class HandlerList {
      * @param listener listener to register
      */
     public synchronized void register(RegisteredListener listener) {
-        if (handlerslots.get(listener.getPriority()).contains(listener))
-            throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
-        handlers = null;
-        handlerslots.get(listener.getPriority()).add(listener);
+        add(listener);
+        rebake();
     }
 
     /**
      * Register a collection of new listeners in this handler list
+     * <p>
+     * The handler array is only baked once, after all listeners have been
+     * added.
      *
      * @param listeners listeners to register
      */
-    public void registerAll(Collection<RegisteredListener> listeners) {
-        for (RegisteredListener listener : listeners) {
-            register(listener);
+    public synchronized void registerAll(Collection<RegisteredListener> listeners) {
+        try {
+            for (RegisteredListener listener : listeners) {
+                add(listener);
+            }
+        } finally {
+            rebake();
+        }
+    }
+
+    private void add(RegisteredListener listener) {
+        if (handlerslots.get(listener.getPriority()).contains(listener))
+            throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
+        handlerslots.get(listener.getPriority()).add(listener);
+        synchronized (indexLock) {
+            index(byPlugin, listener.getPlugin(), listener);
+            index(byListener, listener.getListener(), listener);
+        }
+    }
+
+    private <K> void index(Map<K, Map<HandlerList, Set<RegisteredListener>>> index, K key, RegisteredListener listener) {
+        Map<HandlerList, Set<RegisteredListener>> lists = index.get(key);
+        if (lists == null) {
+            lists = new LinkedHashMap<HandlerList, Set<RegisteredListener>>();
+            index.put(key, lists);
+        }
+        Set<RegisteredListener> registrations = lists.get(this);
+        if (registrations == null) {
+            registrations = new LinkedHashSet<RegisteredListener>();
+            lists.put(this, registrations);
+        }
+        registrations.add(listener);
+    }
+
+    private <K> void unindex(Map<K, Map<HandlerList, Set<RegisteredListener>>> index, K key, RegisteredListener listener) {
+        Map<HandlerList, Set<RegisteredListener>> lists = index.get(key);
+        if (lists == null) {
+            return;
+        }
+        Set<RegisteredListener> registrations = lists.get(this);
+        if (registrations != null && registrations.remove(listener) && registrations.isEmpty()) {
+            lists.remove(this);
+            if (lists.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private <K> Set<RegisteredListener> indexed(Map<K, Map<HandlerList, Set<RegisteredListener>>> index, K key) {
+        synchronized (indexLock) {
+            Map<HandlerList, Set<RegisteredListener>> lists = index.get(key);
+            Set<RegisteredListener> registrations = lists == null ? null : lists.get(this);
+            return registrations == null ? null : new HashSet<RegisteredListener>(registrations);
+        }
+    }
+
+    /**
+     * Removes the given registrations, touching only the priority slots
+     * they are in, and bakes once
+     */
+    private synchronized void remove(Set<RegisteredListener> registrations) {
+        if (registrations == null || registrations.isEmpty()) {
+            return;
+        }
+        EnumSet<EventPriority> priorities = EnumSet.noneOf(EventPriority.class);
+        for (RegisteredListener listener : registrations) {
+            priorities.add(listener.getPriority());
+        }
+        boolean changed = false;
+        for (EventPriority priority : priorities) {
+            changed |= handlerslots.get(priority).removeAll(registrations);
+        }
+        synchronized (indexLock) {
+            for (RegisteredListener listener : registrations) {
+                unindex(byPlugin, listener.getPlugin(), listener);
+                unindex(byListener, listener.getListener(), listener);
+            }
+        }
+        if (changed) {
+            rebake();
         }
     }
 
@@ -129,7 +247,11 @@ public class HandlerList {
      */
     public synchronized void unregister(RegisteredListener listener) {
         if (handlerslots.get(listener.getPriority()).remove(listener)) {
-            handlers = null;
+            synchronized (indexLock) {
+                unindex(byPlugin, listener.getPlugin(), listener);
+                unindex(byListener, listener.getListener(), listener);
+            }
+            rebake();
         }
     }
 
@@ -139,16 +261,7 @@ public class HandlerList {
      * @param plugin plugin to remove
      */
     public synchronized void unregister(Plugin plugin) {
-        boolean changed = false;
-        for (List<RegisteredListener> list : handlerslots.values()) {
-            for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
-                if (i.next().getPlugin().equals(plugin)) {
-                    i.remove();
-                    changed = true;
-                }
-            }
-        }
-        if (changed) handlers = null;
+        remove(indexed(byPlugin, plugin));
     }
 
     /**
@@ -157,41 +270,86 @@ public class HandlerList {
      * @param listener listener to remove
      */
     public synchronized void unregister(Listener listener) {
-        boolean changed = false;
-        for (List<RegisteredListener> list : handlerslots.values()) {
-            for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
-                if (i.next().getListener().equals(listener)) {
-                    i.remove();
-                    changed = true;
-                }
-            }
-        }
-        if (changed) handlers = null;
+        remove(indexed(byListener, listener));
     }
 
     /**
      * Bake HashMap and ArrayLists to 2d array - does nothing if not necessary
+     * <p>
+     * Every change already bakes a new array before publishing it with a
+     * single volatile write, so concurrent callers of {@link
+     * #getRegisteredListeners()} see either the old or the new array, never
+     * a missing or partial one.
      */
     public synchronized void bake() {
         if (handlers != null) return; // don't re-bake when still valid
+        rebake();
+    }
+
+    private void rebake() {
         List<RegisteredListener> entries = new ArrayList<RegisteredListener>();
+        int filterMask = 0;
+        boolean granular = false;
         for (Entry<EventPriority, ArrayList<RegisteredListener>> entry : handlerslots.entrySet()) {
-            entries.addAll(entry.getValue());
+            for (RegisteredListener listener : entry.getValue()) {
+                entries.add(listener);
+                filterMask |= listener.getFilter().getMask();
+                granular |= listener.getFilter().getGranularity() != MovementGranularity.ANY;
+            }
         }
-        handlers = entries.toArray(new RegisteredListener[entries.size()]);
+        RegisteredListener[] baked = entries.toArray(new RegisteredListener[entries.size()]);
+        // Publish the index first, so a reader of the new array never sees an older index
+        dispatchIndex = (filterMask == 0 && !granular) ? null : new DispatchIndex(baked, filterMask, granular);
+        handlers = baked;
     }
 
     /**
      * Get the baked registered listeners associated with this handler list
+     * <p>
+     * This never locks. The returned array must not be modified.
      *
      * @return the array of registered listeners
      */
     public RegisteredListener[] getRegisteredListeners() {
-        RegisteredListener[] handlers;
-        while ((handlers = this.handlers) == null) bake(); // This prevents fringe cases of returning null
         return handlers;
     }
 
+    /**
+     * Get the baked registered listeners that should receive the given
+     * event, leaving out listeners whose {@link EventFilter} does not match
+     * it
+     * <p>
+     * This never locks. Listeners are baked into one array per movement
+     * granularity, and matching listeners are cached per combination of
+     * filtered values, so repeated dispatch does not re-check filters. The
+     * returned array must not be modified.
+     *
+     * @param event the event about to be dispatched
+     * @return the array of registered listeners for the event
+     */
+    public RegisteredListener[] getRegisteredListeners(Event event) {
+        RegisteredListener[] handlers = getRegisteredListeners();
+        DispatchIndex index = dispatchIndex;
+        if (index == null) {
+            return handlers;
+        }
+        return index.get(event);
+    }
+
+    /**
+     * Gets whether any listener is registered in this handler list.
+     * <p>
+     * This reads the baked handler array and never locks, so it is cheap
+     * enough to check before constructing an event. Registration requires an
+     * enabled plugin and disabling a plugin unregisters its listeners, so
+     * this reflects listeners of enabled plugins.
+     *
+     * @return true if at least one listener is registered
+     */
+    public boolean hasListeners() {
+        return getRegisteredListeners().length != 0;
+    }
+
     /**
      * Get a specific plugin's registered listeners associated with this
      * handler list
@@ -201,16 +359,11 @@ public class HandlerList {
      */
     public static ArrayList<RegisteredListener> getRegisteredListeners(Plugin plugin) {
         ArrayList<RegisteredListener> listeners = new ArrayList<RegisteredListener>();
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                synchronized (h) {
-                    for (List<RegisteredListener> list : h.handlerslots.values()) {
-                        for (RegisteredListener listener : list) {
-                            if (listener.getPlugin().equals(plugin)) {
-                                listeners.add(listener);
-                            }
-                        }
-                    }
+        synchronized (indexLock) {
+            Map<HandlerList, Set<RegisteredListener>> lists = byPlugin.get(plugin);
+            if (lists != null) {
+                for (Set<RegisteredListener> registrations : lists.values()) {
+                    listeners.addAll(registrations);
                 }
             }
         }
@@ -228,4 +381,81 @@ public class HandlerList {
             return (ArrayList<HandlerList>) allLists.clone();
         }
     }
+
+    /**
+     * Holds one baked array per crossed {@link MovementGranularity} when any
+     * listener has a granularity, each with its own filter index when any
+     * listener is filtered
+     */
+    private static final class DispatchIndex {
+        private final RegisteredListener[][] byCrossing;
+        private final FilterIndex[] filtered;
+
+        DispatchIndex(RegisteredListener[] handlers, int mask, boolean granular) {
+            if (granular) {
+                MovementGranularity[] crossings = MovementGranularity.values();
+                byCrossing = new RegisteredListener[crossings.length][];
+                for (MovementGranularity crossed : crossings) {
+                    List<RegisteredListener> entries = new ArrayList<RegisteredListener>(handlers.length);
+                    for (RegisteredListener listener : handlers) {
+                        if (listener.getFilter().getGranularity().compareTo(crossed) <= 0) {
+                            entries.add(listener);
+                        }
+                    }
+                    byCrossing[crossed.ordinal()] = entries.toArray(new RegisteredListener[entries.size()]);
+                }
+            } else {
+                byCrossing = new RegisteredListener[][] { handlers };
+            }
+
+            if (mask == 0) {
+                filtered = null;
+            } else {
+                filtered = new FilterIndex[byCrossing.length];
+                for (int i = 0; i < byCrossing.length; i++) {
+                    filtered[i] = new FilterIndex(byCrossing[i], mask);
+                }
+            }
+        }
+
+        RegisteredListener[] get(Event event) {
+            int crossed = byCrossing.length == 1 ? 0 : MovementGranularity.crossedBy(event).ordinal();
+            return filtered == null ? byCrossing[crossed] : filtered[crossed].get(event);
+        }
+    }
+
+    /**
+     * Caches, for each combination of filtered event values, the listeners
+     * whose filters accept it
+     */
+    private static final class FilterIndex {
+        private static final int MAX_KEYS = 4096;
+
+        private final RegisteredListener[] handlers;
+        private final int mask;
+        private final Map<EventFilter.Key, RegisteredListener[]> byKey = new ConcurrentHashMap<EventFilter.Key, RegisteredListener[]>();
+
+        FilterIndex(RegisteredListener[] handlers, int mask) {
+            this.handlers = handlers;
+            this.mask = mask;
+        }
+
+        RegisteredListener[] get(Event event) {
+            EventFilter.Key key = new EventFilter.Key(event, mask);
+            RegisteredListener[] matching = byKey.get(key);
+            if (matching == null) {
+                List<RegisteredListener> entries = new ArrayList<RegisteredListener>(handlers.length);
+                for (RegisteredListener listener : handlers) {
+                    if (listener.getFilter().matches(key)) {
+                        entries.add(listener);
+                    }
+                }
+                matching = entries.toArray(new RegisteredListener[entries.size()]);
+                if (byKey.size() < MAX_KEYS) {
+                    byKey.put(key, matching);
+                }
+            }
+            return matching;
+        }
+    }
 }
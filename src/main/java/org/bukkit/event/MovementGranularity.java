@@ -0,0 +1,75 @@
+package org.bukkit.event;
+
+import org.bukkit.Location;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+
+/**
+ * Defines how much a player or vehicle must move before a movement event is
+ * delivered to a listener.
+ *
+ * @see EventHandler#granularity()
+ */
+public enum MovementGranularity {
+    /**
+     * Deliver every movement, including head rotation and movement within a
+     * block
+     */
+    ANY,
+    /**
+     * Deliver movements that end in another block
+     */
+    BLOCK,
+    /**
+     * Deliver movements that end in another chunk or another world
+     */
+    CHUNK;
+
+    /**
+     * Gets the coarsest boundary crossed by moving between two locations.
+     * <p>
+     * A listener with a given granularity receives a movement if the
+     * crossed boundary is at least that granularity.
+     *
+     * @param from the location moved from
+     * @param to the location moved to
+     * @return {@link #CHUNK} if the chunk or world changed, {@link #BLOCK}
+     *     if only the block changed, otherwise {@link #ANY}
+     */
+    public static MovementGranularity crossedBetween(Location from, Location to) {
+        if (from == null || to == null || from.getWorld() != to.getWorld()) {
+            return CHUNK;
+        }
+
+        int fromX = from.getBlockX();
+        int fromZ = from.getBlockZ();
+        int toX = to.getBlockX();
+        int toZ = to.getBlockZ();
+        if ((fromX >> 4) != (toX >> 4) || (fromZ >> 4) != (toZ >> 4)) {
+            return CHUNK;
+        }
+        if (fromX != toX || fromZ != toZ || from.getBlockY() != to.getBlockY()) {
+            return BLOCK;
+        }
+        return ANY;
+    }
+
+    /**
+     * Gets the coarsest boundary crossed by a movement event, based on its
+     * current from and to locations. Events that are not movement events are
+     * treated as crossing every boundary.
+     *
+     * @param event the event
+     * @return the crossed boundary
+     */
+    public static MovementGranularity crossedBy(Event event) {
+        if (event instanceof PlayerMoveEvent) {
+            PlayerMoveEvent move = (PlayerMoveEvent) event;
+            return crossedBetween(move.getFrom(), move.getTo());
+        } else if (event instanceof VehicleMoveEvent) {
+            VehicleMoveEvent move = (VehicleMoveEvent) event;
+            return crossedBetween(move.getFrom(), move.getTo());
+        }
+        return CHUNK;
+    }
+}
@@ -0,0 +1,18 @@
+package org.bukkit.event;
+
+/**
+ * Represents an event whose instances may be reused for many occurrences,
+ * typically through an {@link EventPool}.
+ * <p>
+ * Listeners must not keep a reference to a reusable event, or pass it to
+ * code that runs later, once their handler has returned. The same instance
+ * is reset and reinitialized with the details of the next occurrence.
+ */
+public interface ReusableEvent {
+
+    /**
+     * Clears all state of this event, so that it holds no references to
+     * players, locations or other objects of the last occurrence.
+     */
+    public void reset();
+}
@@ -4,13 +4,14 @@ import org.bukkit.block.Block;
 import org.bukkit.Material;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.ReusableEvent;
 
 /**
  * Thrown when a block physics check is called
  */
-public class BlockPhysicsEvent extends BlockEvent implements Cancellable {
+public class BlockPhysicsEvent extends BlockEvent implements Cancellable, ReusableEvent {
     private static final HandlerList handlers = new HandlerList();
-    private final int changed;
+    private int changed;
     private boolean cancel = false;
 
     /**
@@ -51,6 +52,30 @@ public class BlockPhysicsEvent extends BlockEvent implements Cancellable {
         this.cancel = cancel;
     }
 
+    /**
+     * Reinitializes this event for another physics check, resetting
+     * cancellation
+     *
+     * @param block the block the physics check is for
+     * @param changed the type id of the block that changed
+     * @return this event
+     * @see ReusableEvent
+     * @deprecated Magic value
+     */
+    @Deprecated
+    public BlockPhysicsEvent reinitialize(final Block block, final int changed) {
+        this.block = block;
+        this.changed = changed;
+        this.cancel = false;
+        return this;
+    }
+
+    public void reset() {
+        block = null;
+        changed = 0;
+        cancel = false;
+    }
+
     @Override
     public HandlerList getHandlers() {
         return handlers;
@@ -4,11 +4,12 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.ReusableEvent;
 
 /**
  * Holds information for player movement events
  */
-public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
+public class PlayerMoveEvent extends PlayerEvent implements Cancellable, ReusableEvent {
     private static final HandlerList handlers = new HandlerList();
     private boolean cancel = false;
     private Location from;
@@ -84,6 +85,31 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
         this.to = to;
     }
 
+    /**
+     * Reinitializes this event for another movement, resetting all other
+     * state including cancellation
+     *
+     * @param player the player who moved
+     * @param from the location the player moved from
+     * @param to the location the player moved to
+     * @return this event
+     * @see ReusableEvent
+     */
+    public PlayerMoveEvent reinitialize(final Player player, final Location from, final Location to) {
+        reset();
+        this.player = player;
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public void reset() {
+        player = null;
+        from = null;
+        to = null;
+        cancel = false;
+    }
+
     @Override
     public HandlerList getHandlers() {
         return handlers;
@@ -4,6 +4,7 @@ import org.bukkit.Location;
 import org.bukkit.TravelAgent;
 import org.bukkit.entity.Player;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.ReusableEvent;
 
 /**
  * Called when a player is about to teleport because it is in contact with a
@@ -26,6 +27,46 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
         this.travelAgent = pta;
     }
 
+    /**
+     * Reinitializes this event for another portal teleport with an unknown
+     * cause, resetting all other state including cancellation
+     *
+     * @param player the player who teleported
+     * @param from the location the player teleported from
+     * @param to the location the player teleported to
+     * @param pta the Travel Agent to use
+     * @return this event
+     * @see ReusableEvent
+     */
+    public PlayerPortalEvent reinitialize(final Player player, final Location from, final Location to, final TravelAgent pta) {
+        return reinitialize(player, from, to, pta, TeleportCause.UNKNOWN);
+    }
+
+    /**
+     * Reinitializes this event for another portal teleport, resetting all
+     * other state including cancellation
+     *
+     * @param player the player who teleported
+     * @param from the location the player teleported from
+     * @param to the location the player teleported to
+     * @param pta the Travel Agent to use
+     * @param cause the cause of the teleport
+     * @return this event
+     * @see ReusableEvent
+     */
+    public PlayerPortalEvent reinitialize(final Player player, final Location from, final Location to, final TravelAgent pta, final TeleportCause cause) {
+        super.reinitialize(player, from, to, cause);
+        this.travelAgent = pta;
+        return this;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        useTravelAgent = true;
+        travelAgent = null;
+    }
+
     /**
      * Sets whether or not the Travel Agent will be used.
      * <p>
@@ -3,6 +3,7 @@ package org.bukkit.event.player;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.ReusableEvent;
 
 /**
  * Holds information for player teleport events
@@ -30,6 +31,44 @@ public class PlayerTeleportEvent extends PlayerMoveEvent {
         return cause;
     }
 
+    /**
+     * Reinitializes this event for another teleport with an unknown cause,
+     * resetting all other state including cancellation
+     *
+     * @param player the player who teleported
+     * @param from the location the player teleported from
+     * @param to the location the player teleported to
+     * @return this event
+     * @see ReusableEvent
+     */
+    @Override
+    public PlayerTeleportEvent reinitialize(final Player player, final Location from, final Location to) {
+        return reinitialize(player, from, to, TeleportCause.UNKNOWN);
+    }
+
+    /**
+     * Reinitializes this event for another teleport, resetting all other
+     * state including cancellation
+     *
+     * @param player the player who teleported
+     * @param from the location the player teleported from
+     * @param to the location the player teleported to
+     * @param cause the cause of the teleport
+     * @return this event
+     * @see ReusableEvent
+     */
+    public PlayerTeleportEvent reinitialize(final Player player, final Location from, final Location to, final TeleportCause cause) {
+        super.reinitialize(player, from, to);
+        this.cause = cause;
+        return this;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        cause = TeleportCause.UNKNOWN;
+    }
+
     public enum TeleportCause {
         /**
          * Indicates the teleporation was caused by a player throwing an Ender
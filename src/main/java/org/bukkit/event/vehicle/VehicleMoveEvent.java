@@ -3,14 +3,15 @@ package org.bukkit.event.vehicle;
 import org.bukkit.Location;
 import org.bukkit.entity.Vehicle;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.ReusableEvent;
 
 /**
  * Raised when a vehicle moves.
  */
-public class VehicleMoveEvent extends VehicleEvent {
+public class VehicleMoveEvent extends VehicleEvent implements ReusableEvent {
     private static final HandlerList handlers = new HandlerList();
-    private final Location from;
-    private final Location to;
+    private Location from;
+    private Location to;
 
     public VehicleMoveEvent(final Vehicle vehicle, final Location from, final Location to) {
         super(vehicle);
@@ -37,6 +38,27 @@ public class VehicleMoveEvent extends VehicleEvent {
         return to;
     }
 
+    /**
+     * Reinitializes this event for another movement
+     *
+     * @param vehicle the vehicle that moved
+     * @param from the previous position
+     * @param to the next position
+     * @return this event
+     * @see ReusableEvent
+     */
+    public VehicleMoveEvent reinitialize(final Vehicle vehicle, final Location from, final Location to) {
+        this.vehicle = vehicle;
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    public void reset() {
+        vehicle = null;
+        from = null;
+        to = null;
+    }
 
     @Override
     public HandlerList getHandlers() {
@@ -0,0 +1,290 @@
+package org.bukkit.plugin;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+import org.bukkit.Server;
+import org.bukkit.event.AsyncCancellable;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.CancellationState;
+import org.bukkit.event.ConcurrentEvent;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Dispatches asynchronous events off the calling thread.
+ * <p>
+ * Priority levels run one after another. Every listener is submitted to the
+ * executor of its plugin, which has a bounded number of threads, and must
+ * finish within the listener timeout, counted from when it starts running.
+ * <p>
+ * Listeners of one level run in parallel only for a {@link ConcurrentEvent}
+ * that is either not cancellable or an {@link AsyncCancellable}, whose
+ * listeners each work on their own view of its cancellation state. The views
+ * are applied in registration order once the level has finished. Listeners
+ * of any other event run one at a time, so they never change the event
+ * concurrently.
+ */
+final class AsyncEventPipeline {
+    private static final int COORDINATOR_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final SimplePluginManager manager;
+    private final Server server;
+    private final Map<Plugin, ThreadPoolExecutor> executors = new ConcurrentHashMap<Plugin, ThreadPoolExecutor>();
+    private final ThreadPoolExecutor coordinator;
+    private volatile int threadsPerPlugin = 4;
+    private volatile long timeoutNanos = TimeUnit.SECONDS.toNanos(10);
+
+    AsyncEventPipeline(SimplePluginManager manager, Server server) {
+        this.manager = manager;
+        this.server = server;
+        this.coordinator = new ThreadPoolExecutor(COORDINATOR_THREADS, COORDINATOR_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("Async Event Pipeline - %1$d").setDaemon(true).build());
+        this.coordinator.allowCoreThreadTimeOut(true);
+    }
+
+    void setThreadsPerPlugin(int threads) {
+        threadsPerPlugin = threads;
+    }
+
+    int getThreadsPerPlugin() {
+        return threadsPerPlugin;
+    }
+
+    void setTimeout(long timeout, TimeUnit unit) {
+        timeoutNanos = unit.toNanos(timeout);
+    }
+
+    long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    <T extends Event> ListenableFuture<T> submit(final T event) {
+        final SettableFuture<T> result = SettableFuture.create();
+        coordinator.execute(new Runnable() {
+            public void run() {
+                try {
+                    dispatch(event);
+                    result.set(event);
+                } catch (Throwable ex) {
+                    result.setException(ex);
+                }
+            }
+        });
+        return result;
+    }
+
+    private void dispatch(Event event) throws InterruptedException {
+        RegisteredListener[] listeners = event.getHandlers().getRegisteredListeners(event);
+
+        int start = 0;
+        while (start < listeners.length) {
+            EventPriority priority = listeners[start].getPriority();
+            int end = start + 1;
+            while (end < listeners.length && listeners[end].getPriority() == priority) {
+                end++;
+            }
+            dispatchLevel(event, listeners, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Runs one priority level and waits for it, collecting failures and
+     * timeouts in registration order, then applies the cancellation views
+     */
+    private void dispatchLevel(Event event, RegisteredListener[] listeners, int start, int end) throws InterruptedException {
+        final boolean cancelled = event instanceof Cancellable && ((Cancellable) event).isCancelled();
+        final boolean parallel = event instanceof ConcurrentEvent && (event instanceof AsyncCancellable || !(event instanceof Cancellable));
+        final CancellationState state = (parallel && event instanceof AsyncCancellable) ? ((AsyncCancellable) event).getCancellationState() : null;
+        ListenerTask[] tasks = new ListenerTask[end - start];
+
+        try {
+            for (int i = start; i < end; i++) {
+                RegisteredListener registration = listeners[i];
+                if (!registration.getPlugin().isEnabled() || (cancelled && registration.isIgnoringCancelled())) {
+                    continue;
+                }
+
+                ListenerTask task = new ListenerTask(registration, event, state);
+                try {
+                    getExecutor(registration.getPlugin()).execute(task.future);
+                } catch (RejectedExecutionException ex) {
+                    // The plugin is being disabled, or was disabled already
+                    continue;
+                }
+                tasks[i - start] = task;
+
+                if (!parallel) {
+                    await(task);
+                }
+            }
+
+            if (parallel) {
+                for (ListenerTask task : tasks) {
+                    if (task != null) {
+                        await(task);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (ListenerTask task : tasks) {
+                if (task != null) {
+                    task.future.cancel(true);
+                }
+            }
+            throw ex;
+        }
+
+        if (state != null) {
+            for (ListenerTask task : tasks) {
+                if (task != null && task.completed && task.result != cancelled) {
+                    state.setCancelled(task.result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for a listener to start, then for it to finish within the
+     * timeout. Time spent queued behind other listeners of the same plugin
+     * is not counted against the listener, but it may only wait one timeout
+     * to start.
+     */
+    private void await(ListenerTask task) throws InterruptedException {
+        RegisteredListener registration = task.registration;
+        if (!task.started.await(timeoutNanos, TimeUnit.NANOSECONDS)) {
+            task.future.cancel(true);
+            server.getLogger().log(Level.WARNING, String.format(
+                    "%s could not start handling %s within %d ms, continuing without it",
+                    registration.getPlugin().getDescription().getFullName(),
+                    task.event.getEventName(),
+                    TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                    ));
+            return;
+        }
+
+        try {
+            task.future.get(Math.max(0, task.startedAt + timeoutNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            task.completed = true;
+        } catch (ExecutionException ex) {
+            task.completed = true;
+            manager.handleEventException(registration, task.event, ex.getCause());
+        } catch (CancellationException ex) {
+            // Cancelled while starting, after the wait above timed out
+        } catch (TimeoutException ex) {
+            task.future.cancel(true);
+            server.getLogger().log(Level.WARNING, String.format(
+                    "%s took longer than %d ms to handle %s, continuing without it",
+                    registration.getPlugin().getDescription().getFullName(),
+                    TimeUnit.NANOSECONDS.toMillis(timeoutNanos),
+                    task.event.getEventName()
+                    ));
+        }
+    }
+
+    /**
+     * One listener call, recording when it started and, for an {@link
+     * AsyncCancellable} event, the cancellation state it left behind
+     */
+    private static final class ListenerTask implements Callable<Void> {
+        final RegisteredListener registration;
+        final Event event;
+        final CancellationState state;
+        final FutureTask<Void> future = new FutureTask<Void>(this);
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile long startedAt;
+        volatile boolean result;
+        // Only used by the coordinator thread
+        boolean completed = false;
+
+        ListenerTask(RegisteredListener registration, Event event, CancellationState state) {
+            this.registration = registration;
+            this.event = event;
+            this.state = state;
+        }
+
+        public Void call() throws Exception {
+            startedAt = System.nanoTime();
+            started.countDown();
+            if (state == null) {
+                registration.callEvent(event);
+                return null;
+            }
+
+            state.beginView();
+            try {
+                registration.callEvent(event);
+            } finally {
+                result = state.endView();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Gets the executor of a plugin, creating it if needed
+     *
+     * @throws RejectedExecutionException if the plugin is disabled
+     */
+    private ExecutorService getExecutor(Plugin plugin) {
+        ThreadPoolExecutor executor = executors.get(plugin);
+        if (executor == null) {
+            synchronized (executors) {
+                executor = executors.get(plugin);
+                if (executor == null) {
+                    // Checked under the lock of shutdown, so a disabled plugin is never kept here
+                    if (!plugin.isEnabled()) {
+                        throw new RejectedExecutionException(plugin.getDescription().getFullName() + " is disabled");
+                    }
+                    int threads = threadsPerPlugin;
+                    executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                            new ThreadFactoryBuilder().setNameFormat(plugin.getDescription().getName().replace("%", "%%") + " Async Event Thread - %1$d").setDaemon(true).build());
+                    executor.allowCoreThreadTimeOut(true);
+                    executors.put(plugin, executor);
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the executor of a plugin, interrupting its running listeners
+     *
+     * @param plugin the plugin being disabled
+     */
+    void shutdown(Plugin plugin) {
+        ExecutorService executor;
+        synchronized (executors) {
+            executor = executors.remove(plugin);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    void shutdownAll() {
+        synchronized (executors) {
+            for (ExecutorService executor : executors.values()) {
+                executor.shutdownNow();
+            }
+            executors.clear();
+        }
+    }
+}
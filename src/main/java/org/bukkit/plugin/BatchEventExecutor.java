@@ -0,0 +1,33 @@
+package org.bukkit.plugin;
+
+import java.util.List;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+
+/**
+ * An {@link EventExecutor} that can handle several events in one call.
+ * <p>
+ * When events are fired with {@link PluginManager#callEvents(Event[])},
+ * executors implementing this interface receive every event of the batch
+ * that passes their registration at once, instead of one call per event.
+ */
+public interface BatchEventExecutor extends EventExecutor {
+
+    /**
+     * Handles a batch of events, in the order they were fired.
+     * <p>
+     * Events that are cancelled when the batch reaches this executor have
+     * already been removed if the registration ignores cancelled events. All
+     * events of one batch share a {@link org.bukkit.event.HandlerList}.
+     * <p>
+     * To have a failure reported against the event that caused it, throw a
+     * {@link org.bukkit.event.BatchEventException} naming that event.
+     *
+     * @param listener The listener of the registration
+     * @param events The events, never empty
+     * @throws EventException If handling any of the events failed
+     */
+    public void executeBatch(Listener listener, List<Event> events) throws EventException;
+}
@@ -0,0 +1,30 @@
+package org.bukkit.plugin;
+
+import java.io.File;
+
+/**
+ * Represents a plugin loader able to load a plugin from a description that
+ * was read beforehand
+ * <p>
+ * {@link SimplePluginManager#loadPlugins(File)} reads every description
+ * before loading any plugin, and passes them here, so that a description is
+ * only read once.
+ */
+public interface DescribedPluginLoader extends PluginLoader {
+
+    /**
+     * Loads the plugin contained in the specified file, described by the
+     * given description
+     *
+     * @param file File to attempt to load
+     * @param description Description of the plugin, as read from the file
+     *     by {@link #getPluginDescription(File)}
+     * @return Plugin that was contained in the specified file, or null if
+     *     unsuccessful
+     * @throws InvalidPluginException Thrown when the specified file is not a
+     *     plugin
+     * @throws UnknownDependencyException If a required dependency could not
+     *     be found
+     */
+    public Plugin loadPlugin(File file, PluginDescriptionFile description) throws InvalidPluginException, UnknownDependencyException;
+}
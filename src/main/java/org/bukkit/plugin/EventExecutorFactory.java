@@ -0,0 +1,28 @@
+package org.bukkit.plugin;
+
+import java.lang.reflect.Method;
+
+import org.bukkit.event.Event;
+
+/**
+ * Creates the {@link EventExecutor}s used to call annotated
+ * {@link org.bukkit.event.EventHandler} methods
+ */
+public interface EventExecutorFactory {
+
+    /**
+     * Creates an executor that calls the given handler method.
+     * <p>
+     * The returned executor must silently ignore events that are not an
+     * instance of the event class, and must wrap anything thrown by the
+     * handler method in an {@link org.bukkit.event.EventException}.
+     *
+     * @param plugin The plugin registering the handler
+     * @param method The handler method
+     * @param eventClass The event class accepted by the handler method
+     * @return The executor, or null if this factory cannot handle the method
+     *     and the plugin loader should fall back to reflection
+     * @throws Exception If the executor could not be created
+     */
+    public EventExecutor createExecutor(Plugin plugin, Method method, Class<? extends Event> eventClass) throws Exception;
+}
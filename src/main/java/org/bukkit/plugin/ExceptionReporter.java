@@ -0,0 +1,439 @@
+package org.bukkit.plugin;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.Validate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Aggregates exceptions thrown by plugin code that runs repeatedly, such as
+ * event listeners and scheduled tasks.
+ * <p>
+ * Failures are keyed by their source (a {@link RegisteredListener}, a task,
+ * ...) and the site the exception was thrown from. The first failure of a
+ * key is logged with its stack trace. Further failures are only counted,
+ * and the count is logged, without a stack trace, at most once per report
+ * interval. Counts still pending when failures stop are logged by a
+ * background thread once the interval has passed, or as soon as their
+ * source is forgotten. Optionally, a source that fails too often within one
+ * second is reported as over the limit, so the caller can stop running it.
+ */
+public final class ExceptionReporter {
+    private static final int MAX_FAILURES = 4096;
+
+    private final Logger logger;
+    private final ConcurrentMap<Key, Failure> failures = new ConcurrentHashMap<Key, Failure>();
+    private final ConcurrentMap<Object, Rate> rates = new ConcurrentHashMap<Object, Rate>();
+    private volatile long reportIntervalNanos = TimeUnit.SECONDS.toNanos(60);
+    private volatile int maxFailuresPerSecond = 0;
+    private final AtomicBoolean flushPending = new AtomicBoolean(false);
+    private ScheduledExecutorService executor = null;
+
+    public ExceptionReporter(Logger logger) {
+        Validate.notNull(logger, "Logger cannot be null");
+        this.logger = logger;
+    }
+
+    /**
+     * Records a failure, logging it if it is the first of its kind or the
+     * report interval of its kind has passed
+     *
+     * @param plugin The plugin owning the failed code
+     * @param source The failed code, for example a {@link RegisteredListener}
+     * @param message Description of what failed
+     * @param ex The thrown exception
+     * @return False if the source failed more often in the last second than
+     *     allowed by {@link #getMaxFailuresPerSecond()}, true otherwise
+     */
+    public boolean report(Plugin plugin, Object source, String message, Throwable ex) {
+        Validate.notNull(source, "Source cannot be null");
+        Validate.notNull(ex, "Exception cannot be null");
+
+        final long now = System.nanoTime();
+        final Key key = new Key(source, getSite(ex));
+        Failure failure = failures.get(key);
+        if (failure == null) {
+            if (failures.size() >= MAX_FAILURES) {
+                // Too many distinct failures to track, log without aggregating
+                logger.log(Level.SEVERE, message, ex);
+                return checkRate(source, now);
+            }
+            failure = new Failure(plugin, source, key.site, now);
+            Failure existing = failures.putIfAbsent(key, failure);
+            if (existing == null) {
+                failure.count.incrementAndGet();
+                logger.log(Level.SEVERE, message, ex);
+                return checkRate(source, now);
+            }
+            failure = existing;
+        }
+
+        failure.count.incrementAndGet();
+        failure.lastFailure = now;
+        failure.message = message;
+        failure.suppressed.incrementAndGet();
+        if (now - failure.lastReport.get() >= reportIntervalNanos) {
+            logSuppressed(failure, now);
+        } else {
+            scheduleFlush();
+        }
+        return checkRate(source, now);
+    }
+
+    /**
+     * Logs the failures not logged yet whose report interval has passed
+     */
+    public void flush() {
+        final long now = System.nanoTime();
+        boolean pending = false;
+        for (Failure failure : failures.values()) {
+            if (failure.suppressed.get() == 0) {
+                continue;
+            }
+            if (now - failure.lastReport.get() >= reportIntervalNanos) {
+                logSuppressed(failure, now);
+            } else {
+                pending = true;
+            }
+        }
+        if (pending) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Logs the count of the failures not logged yet, unless another thread
+     * is logging it already
+     */
+    private void logSuppressed(Failure failure, long now) {
+        long lastReport = failure.lastReport.get();
+        if (!failure.lastReport.compareAndSet(lastReport, now)) {
+            return;
+        }
+        int suppressed = failure.suppressed.getAndSet(0);
+        if (suppressed == 0) {
+            return;
+        }
+        logger.log(Level.SEVERE, String.format(
+                "%s (failed %d more time%s in the last %d seconds: %s)",
+                failure.message,
+                suppressed,
+                suppressed == 1 ? "" : "s",
+                TimeUnit.NANOSECONDS.toSeconds(now - lastReport),
+                failure.site
+                ));
+    }
+
+    private synchronized void scheduleFlush() {
+        if (!flushPending.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Plugin Exception Reporter").setDaemon(true).build());
+        }
+        executor.schedule(new Runnable() {
+            public void run() {
+                flushPending.set(false);
+                try {
+                    flush();
+                } catch (Throwable ex) {
+                    logger.log(Level.WARNING, "Could not log suppressed plugin failures", ex);
+                }
+            }
+        }, reportIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean checkRate(Object source, long now) {
+        int max = maxFailuresPerSecond;
+        if (max <= 0) {
+            return true;
+        }
+
+        Rate rate = rates.get(source);
+        if (rate == null) {
+            rate = new Rate(now);
+            Rate existing = rates.putIfAbsent(source, rate);
+            if (existing != null) {
+                rate = existing;
+            }
+        }
+        return rate.increment(now) <= max;
+    }
+
+    /**
+     * Gets the site a failure is attributed to: the class of the innermost
+     * cause and the frame it was thrown from
+     */
+    private static String getSite(Throwable ex) {
+        Throwable cause = ex;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        StackTraceElement[] trace = cause.getStackTrace();
+        return cause.getClass().getName() + (trace.length == 0 ? "" : " at " + trace[0]);
+    }
+
+    /**
+     * Forgets all failures and rates of a source, for example when it was
+     * unregistered
+     *
+     * @param source The failed code
+     */
+    public void forget(Object source) {
+        rates.remove(source);
+        final long now = System.nanoTime();
+        for (Iterator<Failure> it = failures.values().iterator(); it.hasNext();) {
+            Failure failure = it.next();
+            if (failure.source == source) {
+                it.remove();
+                logSuppressed(failure, now);
+            }
+        }
+    }
+
+    /**
+     * Forgets all failures and rates of the code of a plugin
+     *
+     * @param plugin The plugin
+     */
+    public void forgetAll(Plugin plugin) {
+        final long now = System.nanoTime();
+        for (Iterator<Failure> it = failures.values().iterator(); it.hasNext();) {
+            Failure failure = it.next();
+            if (failure.plugin == plugin) {
+                rates.remove(failure.source);
+                it.remove();
+                logSuppressed(failure, now);
+            }
+        }
+    }
+
+    /**
+     * Forgets all failures
+     */
+    public void reset() {
+        final long now = System.nanoTime();
+        for (Iterator<Failure> it = failures.values().iterator(); it.hasNext();) {
+            Failure failure = it.next();
+            it.remove();
+            logSuppressed(failure, now);
+        }
+        rates.clear();
+    }
+
+    /**
+     * Gets all tracked failures
+     *
+     * @return A snapshot of the tracked failures
+     */
+    public List<Failure> getFailures() {
+        return new ArrayList<Failure>(failures.values());
+    }
+
+    /**
+     * Gets the tracked failures of the code of a plugin
+     *
+     * @param plugin The plugin
+     * @return A snapshot of the tracked failures of the plugin
+     */
+    public List<Failure> getFailures(Plugin plugin) {
+        List<Failure> result = new ArrayList<Failure>();
+        for (Failure failure : failures.values()) {
+            if (failure.plugin == plugin) {
+                result.add(failure);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the minimum time between two logged counts of the same failure
+     *
+     * @param unit The unit of the result
+     * @return The report interval
+     */
+    public long getReportInterval(TimeUnit unit) {
+        return unit.convert(reportIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the minimum time between two logged counts of the same failure
+     *
+     * @param interval The report interval
+     * @param unit The unit of the interval
+     */
+    public void setReportInterval(long interval, TimeUnit unit) {
+        Validate.isTrue(interval >= 0, "Interval cannot be negative");
+        reportIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Gets how many failures a source may have within one second before
+     * {@link #report(Plugin, Object, String, Throwable)} returns false
+     *
+     * @return The maximum failures per second, or 0 if unlimited
+     */
+    public int getMaxFailuresPerSecond() {
+        return maxFailuresPerSecond;
+    }
+
+    /**
+     * Sets how many failures a source may have within one second before
+     * {@link #report(Plugin, Object, String, Throwable)} returns false. Event
+     * listeners over the limit are unregistered.
+     *
+     * @param max The maximum failures per second, or 0 for no limit
+     */
+    public void setMaxFailuresPerSecond(int max) {
+        Validate.isTrue(max >= 0, "Maximum cannot be negative");
+        maxFailuresPerSecond = max;
+    }
+
+    /**
+     * Counters of one kind of failure of one source
+     */
+    public static final class Failure {
+        private final Plugin plugin;
+        private final Object source;
+        private final String site;
+        private final long firstFailure;
+        private volatile long lastFailure;
+        private volatile String message;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private final AtomicLong lastReport;
+
+        private Failure(Plugin plugin, Object source, String site, long now) {
+            this.plugin = plugin;
+            this.source = source;
+            this.site = site;
+            this.firstFailure = now;
+            this.lastFailure = now;
+            this.lastReport = new AtomicLong(now);
+        }
+
+        /**
+         * Gets the plugin owning the failed code
+         *
+         * @return The plugin
+         */
+        public Plugin getPlugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets the failed code, for example a {@link RegisteredListener}
+         *
+         * @return The source of the failures
+         */
+        public Object getSource() {
+            return source;
+        }
+
+        /**
+         * Gets the class of the innermost cause and the stack frame it was
+         * thrown from
+         *
+         * @return Description of the failure site
+         */
+        public String getSite() {
+            return site;
+        }
+
+        /**
+         * Gets how many times this failure happened
+         *
+         * @return The number of failures
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Gets how many failures were not logged yet
+         *
+         * @return The number of unlogged failures
+         */
+        public int getSuppressedCount() {
+            return suppressed.get();
+        }
+
+        /**
+         * Gets how long ago this failure happened first
+         *
+         * @param unit The unit of the result
+         * @return Time since the first failure
+         */
+        public long getTimeSinceFirst(TimeUnit unit) {
+            return unit.convert(System.nanoTime() - firstFailure, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets how long ago this failure happened last
+         *
+         * @param unit The unit of the result
+         * @return Time since the last failure
+         */
+        public long getTimeSinceLast(TimeUnit unit) {
+            return unit.convert(System.nanoTime() - lastFailure, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static final class Key {
+        private final Object source;
+        private final String site;
+
+        Key(Object source, String site) {
+            this.source = source;
+            this.site = site;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source) * 31 + site.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return source == other.source && site.equals(other.site);
+        }
+    }
+
+    /**
+     * Failures of a source within the current one second window
+     */
+    private static final class Rate {
+        private long windowStart;
+        private int count;
+
+        Rate(long now) {
+            windowStart = now;
+        }
+
+        synchronized int increment(long now) {
+            if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count;
+        }
+    }
+}
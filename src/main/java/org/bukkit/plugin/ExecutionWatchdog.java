@@ -0,0 +1,436 @@
+package org.bukkit.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.command.Command;
+import org.bukkit.event.Event;
+
+/**
+ * Watches plugin code running on one thread, normally the primary server
+ * thread, and reports code that runs longer than a budget.
+ * <p>
+ * Dispatchers call {@link #enter(Plugin, Object, Object)} before running
+ * plugin code, such as a {@link RegisteredListener}, a command or a
+ * scheduled task, and {@link #exit()} afterwards. This costs a few field
+ * writes and is skipped entirely while the watchdog is stopped. A
+ * background thread checks the innermost running code periodically and,
+ * once it is over budget, samples the stack of the watched thread until it
+ * returns. A compact report naming the plugin, the code and the most
+ * sampled frames is then logged and kept.
+ */
+public final class ExecutionWatchdog {
+    private static final int MAX_REPORTS = 16;
+    private static final int MAX_FRAMES = 5;
+
+    private final Logger logger;
+    private final LinkedList<Report> reports = new LinkedList<Report>();
+
+    private volatile Thread watched;
+    private volatile Thread thread;
+    private volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    private volatile long sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // Written by the watched thread only, and read by the watchdog thread
+    // when the sequence is even and the same before and after reading
+    private volatile long sequence;
+    private volatile int depth;
+    private Plugin[] plugins = new Plugin[8];
+    private Object[] sources = new Object[8];
+    private Object[] contexts = new Object[8];
+    private long[] starts = new long[8];
+
+    public ExecutionWatchdog(Logger logger) {
+        Validate.notNull(logger, "Logger cannot be null");
+        this.logger = logger;
+    }
+
+    /**
+     * Starts watching a thread
+     *
+     * @param thread The thread to watch, normally the primary thread
+     * @param budget How long code may run before it is sampled
+     * @param unit The unit of the budget
+     */
+    public synchronized void start(Thread thread, long budget, TimeUnit unit) {
+        Validate.notNull(thread, "Thread cannot be null");
+        Validate.isTrue(budget > 0, "Budget must be positive");
+        stop();
+
+        budgetNanos = unit.toNanos(budget);
+        watched = thread;
+        Thread checker = new Thread(new Runnable() {
+            public void run() {
+                check();
+            }
+        }, "Bukkit Watchdog");
+        checker.setDaemon(true);
+        this.thread = checker;
+        checker.start();
+    }
+
+    /**
+     * Stops watching, waiting for a pending report to be written
+     */
+    public synchronized void stop() {
+        Thread checker = thread;
+        thread = null;
+        watched = null;
+        if (checker != null) {
+            checker.interrupt();
+            try {
+                checker.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gets whether a thread is being watched
+     *
+     * @return True if the watchdog is running
+     */
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Gets how long code may run before it is sampled
+     *
+     * @param unit The unit of the result
+     * @return The budget
+     */
+    public long getBudget(TimeUnit unit) {
+        return unit.convert(budgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets how often running code is checked, and sampled once over budget
+     *
+     * @param interval The sample interval
+     * @param unit The unit of the interval
+     */
+    public void setSampleInterval(long interval, TimeUnit unit) {
+        Validate.isTrue(interval > 0, "Interval must be positive");
+        sampleIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Gets how often running code is checked, and sampled once over budget
+     *
+     * @param unit The unit of the result
+     * @return The sample interval
+     */
+    public long getSampleInterval(TimeUnit unit) {
+        return unit.convert(sampleIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Marks the start of plugin code on the current thread. Must be followed
+     * by {@link #exit()} if, and only if, this returns true.
+     *
+     * @param plugin The plugin owning the code
+     * @param source The code, for example a {@link RegisteredListener}, a
+     *     {@link Command} or a task
+     * @param context What the code is handling, for example an
+     *     {@link Event}, or null
+     * @return True if the current thread is watched
+     */
+    public boolean enter(Plugin plugin, Object source, Object context) {
+        if (Thread.currentThread() != watched) {
+            return false;
+        }
+
+        int index = depth;
+        if (index == starts.length) {
+            grow();
+        }
+        sequence++;
+        plugins[index] = plugin;
+        sources[index] = source;
+        contexts[index] = context;
+        starts[index] = System.nanoTime();
+        depth = index + 1;
+        sequence++;
+        return true;
+    }
+
+    /**
+     * Marks the end of the plugin code last passed to
+     * {@link #enter(Plugin, Object, Object)} on this thread
+     */
+    public void exit() {
+        int index = depth - 1;
+        if (index < 0) {
+            return;
+        }
+        sequence++;
+        depth = index;
+        plugins[index] = null;
+        sources[index] = null;
+        contexts[index] = null;
+        sequence++;
+    }
+
+    private void grow() {
+        int size = starts.length * 2;
+        Plugin[] newPlugins = new Plugin[size];
+        Object[] newSources = new Object[size];
+        Object[] newContexts = new Object[size];
+        long[] newStarts = new long[size];
+        System.arraycopy(plugins, 0, newPlugins, 0, plugins.length);
+        System.arraycopy(sources, 0, newSources, 0, sources.length);
+        System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
+        System.arraycopy(starts, 0, newStarts, 0, starts.length);
+
+        sequence++;
+        plugins = newPlugins;
+        sources = newSources;
+        contexts = newContexts;
+        starts = newStarts;
+        sequence++;
+    }
+
+    private void check() {
+        Report pending = null;
+        int pendingDepth = -1;
+        Thread target;
+
+        while ((target = watched) != null && !Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sampleIntervalNanos);
+            } catch (InterruptedException ex) {
+                break;
+            }
+
+            long before = sequence;
+            if ((before & 1) != 0) {
+                continue;
+            }
+            int index = depth - 1;
+            Plugin[] plugins = this.plugins;
+            Object[] sources = this.sources;
+            Object[] contexts = this.contexts;
+            long[] starts = this.starts;
+            if (index >= Math.min(Math.min(plugins.length, sources.length), Math.min(contexts.length, starts.length))) {
+                // Read while growing
+                continue;
+            }
+            Plugin plugin = index < 0 ? null : plugins[index];
+            Object source = index < 0 ? null : sources[index];
+            Object context = index < 0 ? null : contexts[index];
+            long start = index < 0 ? 0 : starts[index];
+            if (sequence != before) {
+                // Changed while reading, so it was not stuck
+                continue;
+            }
+
+            long now = System.nanoTime();
+            if (pending != null && (index != pendingDepth || start != pending.start)) {
+                publish(pending);
+                pending = null;
+            }
+            if (index < 0 || now - start < budgetNanos) {
+                continue;
+            }
+
+            StackTraceElement[] stack = target.getStackTrace();
+            if (sequence != before) {
+                continue;
+            }
+            if (pending == null) {
+                pending = new Report(plugin, source, context, start);
+                pendingDepth = index;
+            }
+            pending.sample(stack, now);
+        }
+
+        if (pending != null) {
+            publish(pending);
+        }
+    }
+
+    private void publish(Report report) {
+        synchronized (reports) {
+            reports.addFirst(report);
+            if (reports.size() > MAX_REPORTS) {
+                reports.removeLast();
+            }
+        }
+        logger.log(Level.WARNING, report.toString());
+    }
+
+    /**
+     * Gets the most recent reports, newest first
+     *
+     * @return A snapshot of the kept reports
+     */
+    public List<Report> getReports() {
+        synchronized (reports) {
+            return new ArrayList<Report>(reports);
+        }
+    }
+
+    /**
+     * Forgets all kept reports
+     */
+    public void clearReports() {
+        synchronized (reports) {
+            reports.clear();
+        }
+    }
+
+    /**
+     * Describes one run of plugin code that exceeded the budget
+     */
+    public static final class Report {
+        private final Plugin plugin;
+        private final String source;
+        private final String context;
+        private final String method;
+        private final long start;
+        private long lastSeen;
+        private int samples;
+        private final Map<StackTraceElement, Integer> frames = new HashMap<StackTraceElement, Integer>();
+        private String handler;
+
+        private Report(Plugin plugin, Object source, Object context, long start) {
+            this.plugin = plugin;
+            this.source = describe(source);
+            this.context = context instanceof Event ? ((Event) context).getEventName() : context == null ? null : context.toString();
+            this.method = source instanceof RegisteredListener && ((RegisteredListener) source).getListener() != null ? ((RegisteredListener) source).getListener().getClass().getName() : null;
+            this.start = start;
+        }
+
+        private static String describe(Object source) {
+            if (source instanceof RegisteredListener) {
+                Object listener = ((RegisteredListener) source).getListener();
+                return "listener " + (listener == null ? "?" : listener.getClass().getName());
+            } else if (source instanceof Command) {
+                return "command /" + ((Command) source).getName();
+            }
+            return String.valueOf(source);
+        }
+
+        private synchronized void sample(StackTraceElement[] stack, long now) {
+            lastSeen = now;
+            samples++;
+            if (stack.length == 0) {
+                return;
+            }
+            Integer count = frames.get(stack[0]);
+            frames.put(stack[0], count == null ? 1 : count + 1);
+
+            if (handler == null && method != null) {
+                // Outermost frame of the listener class is the handler method
+                for (int i = stack.length - 1; i >= 0; i--) {
+                    if (stack[i].getClassName().equals(method)) {
+                        handler = format(stack[i]);
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the plugin owning the code
+         *
+         * @return The plugin, or null if the code has no owning plugin
+         */
+        public Plugin getPlugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets a description of the code, such as its listener class
+         *
+         * @return Description of the code
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Gets the handler method of the listener, if it was sampled
+         *
+         * @return The handler method frame, or null if not known
+         */
+        public synchronized String getMethod() {
+            return handler;
+        }
+
+        /**
+         * Gets how long the code was seen running, a lower bound of its run
+         * time
+         *
+         * @param unit The unit of the result
+         * @return Observed run time
+         */
+        public synchronized long getDuration(TimeUnit unit) {
+            return unit.convert(lastSeen - start, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets how many stack samples were taken
+         *
+         * @return The number of samples
+         */
+        public synchronized int getSampleCount() {
+            return samples;
+        }
+
+        /**
+         * Gets the innermost frames of the samples, most sampled first
+         *
+         * @return Frames and how often they were sampled
+         */
+        public synchronized List<Map.Entry<StackTraceElement, Integer>> getHotFrames() {
+            List<Map.Entry<StackTraceElement, Integer>> entries = new ArrayList<Map.Entry<StackTraceElement, Integer>>(frames.entrySet());
+            Collections.sort(entries, new Comparator<Map.Entry<StackTraceElement, Integer>>() {
+                public int compare(Map.Entry<StackTraceElement, Integer> a, Map.Entry<StackTraceElement, Integer> b) {
+                    return b.getValue().compareTo(a.getValue());
+                }
+            });
+            return entries;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(plugin == null ? "Server" : plugin.getDescription().getFullName())
+                    .append(" ran for at least ").append(getDuration(TimeUnit.MILLISECONDS)).append(" ms in ").append(source);
+            if (context != null) {
+                builder.append(" handling ").append(context);
+            }
+            String method = getMethod();
+            if (method != null) {
+                builder.append(" at ").append(method);
+            }
+            builder.append(" (").append(getSampleCount()).append(" samples)");
+
+            List<Map.Entry<StackTraceElement, Integer>> hot = getHotFrames();
+            for (int i = 0; i < hot.size() && i < MAX_FRAMES; i++) {
+                builder.append("\n    ").append(hot.get(i).getValue()).append("x ").append(format(hot.get(i).getKey()));
+            }
+            return builder.toString();
+        }
+
+        /**
+         * Formats a frame the same way on every JDK, without the module or
+         * class loader prefix newer JDKs add
+         */
+        private static String format(StackTraceElement frame) {
+            return frame.getClassName() + "." + frame.getMethodName() + "(" + (frame.getFileName() == null ? "Unknown Source" : frame.getFileName()) + ":" + frame.getLineNumber() + ")";
+        }
+    }
+}
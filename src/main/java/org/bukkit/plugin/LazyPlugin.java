@@ -0,0 +1,31 @@
+package org.bukkit.plugin;
+
+/**
+ * Represents a plugin with {@link PluginActivation#LAZY lazy} activation
+ * until it is first used
+ * <p>
+ * Enabling a lazy plugin registers the commands and {@link
+ * PluginDescriptionFile#getActivationEvents() activation events} of the
+ * plugin it stands in for, without loading it. The first use of one of
+ * them, or a call to {@link PluginManager#activatePlugin(Plugin)}, loads
+ * that plugin, and it replaces the lazy plugin in the plugin manager.
+ */
+public interface LazyPlugin extends Plugin {
+
+    /**
+     * Loads the plugin this stands in for, without enabling it
+     * <p>
+     * This is called by the plugin manager, once.
+     *
+     * @return The loaded plugin
+     * @throws InvalidPluginException If the plugin could not be loaded
+     */
+    public Plugin load() throws InvalidPluginException;
+
+    /**
+     * Gets the plugin this stands in for
+     *
+     * @return The loaded plugin, or null if it was not loaded yet
+     */
+    public Plugin getLoadedPlugin();
+}
@@ -0,0 +1,33 @@
+package org.bukkit.plugin;
+
+import org.bukkit.event.server.PluginEnableEvent;
+
+/**
+ * Represents a plugin loader able to enable plugins off the main thread
+ * <p>
+ * Enabling a plugin is split in two steps. {@link
+ * #enablePluginInParallel(Plugin)} runs the plugin's own enable logic and
+ * may be called from any thread, for several plugins at once. {@link
+ * #completeEnable(Plugin)} is then called on the main thread.
+ */
+public interface ParallelPluginLoader extends PluginLoader {
+
+    /**
+     * Enables the specified plugin without calling its {@link
+     * PluginEnableEvent}
+     * <p>
+     * Attempting to enable a plugin that is already enabled will have no
+     * effect
+     *
+     * @param plugin Plugin to enable
+     */
+    public void enablePluginInParallel(Plugin plugin);
+
+    /**
+     * Calls the {@link PluginEnableEvent} of a plugin enabled by {@link
+     * #enablePluginInParallel(Plugin)}
+     *
+     * @param plugin Plugin that was enabled
+     */
+    public void completeEnable(Plugin plugin);
+}
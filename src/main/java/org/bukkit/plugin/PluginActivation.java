@@ -0,0 +1,17 @@
+package org.bukkit.plugin;
+
+/**
+ * Represents when a plugin is loaded and enabled
+ */
+public enum PluginActivation {
+
+    /**
+     * Indicates that the plugin will be loaded and enabled with the server
+     */
+    EAGER,
+    /**
+     * Indicates that the plugin will only be loaded and enabled when one of
+     * its commands or activation events is first used
+     */
+    LAZY
+}
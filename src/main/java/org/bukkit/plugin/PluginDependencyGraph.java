@@ -0,0 +1,319 @@
+package org.bukkit.plugin;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * The order plugins are loaded in, resolved from the <code>depend</code>,
+ * <code>softdepend</code> and <code>loadbefore</code> entries of their
+ * descriptions.
+ * <p>
+ * A plugin comes after every plugin it depends on, plugins it soft depends
+ * on that are present, and present plugins that load before it. Plugins
+ * with a missing dependency, or depending on such a plugin, are left out,
+ * as are plugins caught in a cycle of <code>depend</code> entries. A cycle
+ * that can be broken by ignoring soft dependencies is broken at the first
+ * plugin, in the order given, without remaining hard dependencies.
+ * <p>
+ * Plugins are also grouped into layers, where every plugin only comes after
+ * plugins in earlier layers. Plugins in the same layer do not depend on one
+ * another.
+ */
+public final class PluginDependencyGraph {
+    private final Map<String, PluginDescriptionFile> descriptions = new LinkedHashMap<String, PluginDescriptionFile>();
+    private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+    private final Map<String, String> unknownDependencies = new LinkedHashMap<String, String>();
+    private final Map<String, List<String>> circularDependencies = new LinkedHashMap<String, List<String>>();
+    private final List<List<String>> brokenCycles = new ArrayList<List<String>>();
+    private final List<String> order = new ArrayList<String>();
+    private final List<List<String>> layers = new ArrayList<List<String>>();
+
+    /**
+     * Resolves the load order of the given plugins
+     *
+     * @param descriptions The descriptions of the plugins, in the order ties
+     *     are broken in. A later description with the same name replaces an
+     *     earlier one.
+     */
+    public PluginDependencyGraph(Collection<PluginDescriptionFile> descriptions) {
+        Validate.notNull(descriptions, "Descriptions cannot be null");
+
+        for (PluginDescriptionFile description : descriptions) {
+            Validate.notNull(description, "Description cannot be null");
+            this.descriptions.put(description.getName(), description);
+        }
+
+        Map<String, Set<String>> hard = new HashMap<String, Set<String>>();
+        for (String name : this.descriptions.keySet()) {
+            hard.put(name, new LinkedHashSet<String>(nonNull(this.descriptions.get(name).getDepend())));
+        }
+        removeUnknown(hard);
+        resolve(hard);
+    }
+
+    private static List<String> nonNull(List<String> list) {
+        return list == null ? Collections.<String>emptyList() : list;
+    }
+
+    /**
+     * Leaves out plugins with a missing dependency, and plugins depending on
+     * them
+     */
+    private void removeUnknown(Map<String, Set<String>> hard) {
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        LinkedList<String> queue = new LinkedList<String>();
+
+        for (String name : descriptions.keySet()) {
+            for (String dependency : hard.get(name)) {
+                if (!descriptions.containsKey(dependency)) {
+                    if (!unknownDependencies.containsKey(name)) {
+                        unknownDependencies.put(name, dependency);
+                        queue.add(name);
+                    }
+                } else {
+                    List<String> list = dependents.get(dependency);
+                    if (list == null) {
+                        list = new ArrayList<String>();
+                        dependents.put(dependency, list);
+                    }
+                    list.add(name);
+                }
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            String unknown = queue.removeFirst();
+            List<String> list = dependents.get(unknown);
+            if (list == null) {
+                continue;
+            }
+            for (String dependent : list) {
+                if (!unknownDependencies.containsKey(dependent)) {
+                    unknownDependencies.put(dependent, unknown);
+                    queue.add(dependent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Orders the remaining plugins with Kahn's algorithm
+     */
+    private void resolve(Map<String, Set<String>> hard) {
+        List<String> nodes = new ArrayList<String>();
+        for (String name : descriptions.keySet()) {
+            if (!unknownDependencies.containsKey(name)) {
+                nodes.add(name);
+                dependencies.put(name, new LinkedHashSet<String>(hard.get(name)));
+            }
+        }
+        for (String name : nodes) {
+            PluginDescriptionFile description = descriptions.get(name);
+            for (String softDependency : nonNull(description.getSoftDepend())) {
+                if (dependencies.containsKey(softDependency) && !softDependency.equals(name)) {
+                    dependencies.get(name).add(softDependency);
+                }
+            }
+            for (String target : nonNull(description.getLoadBefore())) {
+                if (dependencies.containsKey(target) && !target.equals(name)) {
+                    dependencies.get(target).add(name);
+                }
+            }
+        }
+
+        Map<String, List<String>> dependents = new HashMap<String, List<String>>();
+        Map<String, Integer> pending = new HashMap<String, Integer>();
+        Map<String, Integer> hardPending = new HashMap<String, Integer>();
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        LinkedList<String> queue = new LinkedList<String>();
+        for (String name : nodes) {
+            dependents.put(name, new ArrayList<String>());
+            levels.put(name, 0);
+        }
+        for (String name : nodes) {
+            for (String dependency : dependencies.get(name)) {
+                dependents.get(dependency).add(name);
+            }
+            pending.put(name, dependencies.get(name).size());
+            hardPending.put(name, hard.get(name).size());
+            if (dependencies.get(name).isEmpty()) {
+                queue.add(name);
+            }
+        }
+
+        Set<String> done = new HashSet<String>();
+        while (done.size() < nodes.size()) {
+            if (queue.isEmpty()) {
+                // Every remaining plugin waits for another, so break a cycle
+                String breaking = null;
+                for (String name : nodes) {
+                    if (!done.contains(name) && hardPending.get(name) == 0) {
+                        breaking = name;
+                        break;
+                    }
+                }
+
+                if (breaking == null) {
+                    for (String name : nodes) {
+                        if (!done.contains(name)) {
+                            circularDependencies.put(name, findCycle(name, hard, done));
+                        }
+                    }
+                    for (String name : circularDependencies.keySet()) {
+                        dependencies.remove(name);
+                    }
+                    break;
+                }
+
+                brokenCycles.add(findCycle(breaking, dependencies, done));
+                for (Iterator<String> it = dependencies.get(breaking).iterator(); it.hasNext();) {
+                    String dependency = it.next();
+                    if (!done.contains(dependency)) {
+                        it.remove();
+                        dependents.get(dependency).remove(breaking);
+                    }
+                }
+                pending.put(breaking, 0);
+                queue.add(breaking);
+            }
+
+            String name = queue.removeFirst();
+            done.add(name);
+            order.add(name);
+            int level = levels.get(name);
+            while (layers.size() <= level) {
+                layers.add(new ArrayList<String>());
+            }
+            layers.get(level).add(name);
+
+            for (String dependent : dependents.get(name)) {
+                levels.put(dependent, Math.max(levels.get(dependent), level + 1));
+                if (hard.get(dependent).contains(name)) {
+                    hardPending.put(dependent, hardPending.get(dependent) - 1);
+                }
+                int remaining = pending.get(dependent) - 1;
+                pending.put(dependent, remaining);
+                if (remaining == 0) {
+                    queue.add(dependent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Follows unresolved dependencies from a plugin until one repeats
+     *
+     * @return the plugins of the cycle, starting and ending with the same
+     *     plugin
+     */
+    private static List<String> findCycle(String start, Map<String, Set<String>> edges, Set<String> done) {
+        List<String> path = new ArrayList<String>();
+        String current = start;
+        while (current != null && !path.contains(current)) {
+            path.add(current);
+            String next = null;
+            for (String dependency : edges.get(current)) {
+                if (!done.contains(dependency) && edges.containsKey(dependency)) {
+                    next = dependency;
+                    break;
+                }
+            }
+            current = next;
+        }
+
+        if (current == null) {
+            return Collections.unmodifiableList(path);
+        }
+        List<String> cycle = new ArrayList<String>(path.subList(path.indexOf(current), path.size()));
+        cycle.add(current);
+        return Collections.unmodifiableList(cycle);
+    }
+
+    /**
+     * Gets the description of a plugin in this graph
+     *
+     * @param name Name of the plugin
+     * @return The description, or null if the plugin is not in this graph
+     */
+    public PluginDescriptionFile getDescription(String name) {
+        return descriptions.get(name);
+    }
+
+    /**
+     * Gets the plugins that can be loaded, in the order they must be loaded
+     *
+     * @return Names of the plugins in load order
+     */
+    public List<String> getLoadOrder() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * Gets the plugins that can be loaded, grouped into layers. Every plugin
+     * only comes after plugins in earlier layers.
+     *
+     * @return Names of the plugins in each layer, in load order
+     */
+    public List<List<String>> getLayers() {
+        List<List<String>> result = new ArrayList<List<String>>(layers.size());
+        for (List<String> layer : layers) {
+            result.add(Collections.unmodifiableList(layer));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Gets the plugins a plugin was ordered after. This excludes soft
+     * dependencies ignored to break a cycle.
+     *
+     * @param name Name of the plugin
+     * @return Names of the plugins it comes after, or an empty set if the
+     *     plugin cannot be loaded
+     */
+    public Set<String> getDependencies(String name) {
+        Set<String> result = dependencies.get(name);
+        return result == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Gets the plugins left out because a dependency is missing, or cannot
+     * be loaded itself
+     *
+     * @return Names of the plugins, mapped to the missing dependency
+     */
+    public Map<String, String> getUnknownDependencies() {
+        return Collections.unmodifiableMap(unknownDependencies);
+    }
+
+    /**
+     * Gets the plugins left out because they are in, or depend on, a cycle
+     * of <code>depend</code> entries
+     *
+     * @return Names of the plugins, mapped to the cycle found from the
+     *     plugin
+     */
+    public Map<String, List<String>> getCircularDependencies() {
+        return Collections.unmodifiableMap(circularDependencies);
+    }
+
+    /**
+     * Gets the cycles that were broken by ignoring soft dependencies
+     *
+     * @return The cycles, each starting and ending with the same plugin
+     */
+    public List<List<String>> getBrokenCycles() {
+        return Collections.unmodifiableList(brokenCycles);
+    }
+}
@@ -1,5 +1,6 @@
 package org.bukkit.plugin;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
@@ -21,10 +22,12 @@ import org.yaml.snakeyaml.constructor.AbstractConstruct;
 import org.yaml.snakeyaml.constructor.SafeConstructor;
 import org.yaml.snakeyaml.nodes.Node;
 import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CharStreams;
 
 /**
  * This type is the runtime-container for the information in the plugin.yml.
@@ -92,6 +95,14 @@ import com.google.common.collect.ImmutableSet;
  *     <td>{@link #getLoad()}</td>
  *     <td>The phase of server-startup this plugin will load during</td>
  * </tr><tr>
+ *     <td><code>activation</code></td>
+ *     <td>{@link #getActivation()}</td>
+ *     <td>Whether the plugin is loaded with the server or on first use</td>
+ * </tr><tr>
+ *     <td><code>activation-events</code></td>
+ *     <td>{@link #getActivationEvents()}</td>
+ *     <td>The events that load a lazily activated plugin</td>
+ * </tr><tr>
  *     <td><code>depend</code></td>
  *     <td>{@link #getDepend()}</td>
  *     <td>Other required plugins</td>
@@ -104,6 +115,10 @@ import com.google.common.collect.ImmutableSet;
  *     <td>{@link #getLoadBefore()}</td>
  *     <td>The inverse softdepend</td>
  * </tr><tr>
+ *     <td><code>parallel-enable</code></td>
+ *     <td>{@link #isParallelEnable()}</td>
+ *     <td>Indicator that the plugin may be enabled off the main thread</td>
+ * </tr><tr>
  *     <td><code>commands</code></td>
  *     <td>{@link #getCommands()}</td>
  *     <td>The commands the plugin will register</td>
@@ -222,14 +237,18 @@ public final class PluginDescriptionFile {
     private String website = null;
     private String prefix = null;
     private boolean database = false;
+    private boolean parallelEnable = false;
     private PluginLoadOrder order = PluginLoadOrder.POSTWORLD;
+    private PluginActivation activation = PluginActivation.EAGER;
+    private List<String> activationEvents = ImmutableList.of();
     private List<Permission> permissions = null;
     private Map<?, ?> lazyPermissions = null;
     private PermissionDefault defaultPerm = PermissionDefault.OP;
     private Set<PluginAwareness> awareness = ImmutableSet.of();
+    private String source = null;
 
     public PluginDescriptionFile(final InputStream stream) throws InvalidDescriptionException {
-        loadMap(asMap(YAML.get().load(stream)));
+        this(new UnicodeReader(stream));
     }
 
     /**
@@ -240,7 +259,12 @@ public final class PluginDescriptionFile {
      *     invalid
      */
     public PluginDescriptionFile(final Reader reader) throws InvalidDescriptionException {
-        loadMap(asMap(YAML.get().load(reader)));
+        try {
+            source = CharStreams.toString(reader);
+        } catch (IOException ex) {
+            throw new InvalidDescriptionException(ex);
+        }
+        loadMap(asMap(YAML.get().load(source)));
     }
 
     /**
@@ -350,6 +374,52 @@ public final class PluginDescriptionFile {
         return description;
     }
 
+    /**
+     * Gives when the plugin is loaded and enabled.
+     * <ul>
+     * <li>Possible values are in {@link PluginActivation}.
+     * <li>Defaults to {@link PluginActivation#EAGER}.
+     * <li>A <code>LAZY</code> plugin is represented by a {@link LazyPlugin}
+     *     until first used. Its {@link #getCommands() commands} and {@link
+     *     #getActivationEvents() activation events} are registered, but its
+     *     classes are not loaded.
+     * <li>Other plugins calling {@link PluginManager#getPlugin(String)}
+     *     get the {@link LazyPlugin} until the plugin is activated, and
+     *     should call {@link PluginManager#activatePlugin(Plugin)} before
+     *     using its classes.
+     * </ul>
+     * <p>
+     * In the plugin.yml, this entry is named <code>activation</code>.
+     * <p>
+     * Example:<blockquote><pre>activation: lazy</pre></blockquote>
+     *
+     * @return when the plugin is loaded and enabled
+     */
+    public PluginActivation getActivation() {
+        return activation;
+    }
+
+    /**
+     * Gives the events that activate a {@link PluginActivation#LAZY lazy}
+     * plugin.
+     * <ul>
+     * <li>Each entry is the fully qualified name of an {@link
+     *     org.bukkit.event.Event} class of the server.
+     * <li>When one of these events is first called, the plugin is activated
+     *     and the event is passed to its listeners for it.
+     * </ul>
+     * <p>
+     * In the plugin.yml, this entry is named <code>activation-events</code>.
+     * <p>
+     * Example:<blockquote><pre>activation-events:
+     *- org.bukkit.event.player.PlayerJoinEvent</pre></blockquote>
+     *
+     * @return immutable list of event class names
+     */
+    public List<String> getActivationEvents() {
+        return activationEvents;
+    }
+
     /**
      * Gives the phase of server startup that the plugin should be loaded.
      * <ul>
@@ -446,6 +516,30 @@ public final class PluginDescriptionFile {
         return database;
     }
 
+    /**
+     * Gives if the plugin may be enabled alongside other plugins.
+     * <ul>
+     * <li>{@link Plugin#onEnable()} of such a plugin may be called on a
+     *     thread other than the main thread, at the same time as plugins it
+     *     does not depend on. It must only use thread-safe parts of the API.
+     * <li>Commands of the plugin are registered before, and its {@link
+     *     org.bukkit.event.server.PluginEnableEvent} is called after, on the
+     *     main thread.
+     * <li>Valid values include <code>true</code> and <code>false</code>
+     * </ul>
+     * <p>
+     * In the plugin.yml, this entry is named <code>parallel-enable</code>.
+     * <p>
+     * Example:
+     * <blockquote><pre>parallel-enable: true</pre></blockquote>
+     *
+     * @return if this plugin may be enabled in parallel
+     * @see SimplePluginManager#enablePlugins(Plugin[])
+     */
+    public boolean isParallelEnable() {
+        return parallelEnable;
+    }
+
     /**
      * Gives a list of other plugins that the plugin requires.
      * <ul>
@@ -959,6 +1053,14 @@ public final class PluginDescriptionFile {
             }
         }
 
+        if (map.get("parallel-enable") != null) {
+            try {
+                parallelEnable = (Boolean) map.get("parallel-enable");
+            } catch (ClassCastException ex) {
+                throw new InvalidDescriptionException(ex, "parallel-enable is of wrong type");
+            }
+        }
+
         if (map.get("website") != null) {
             website = map.get("website").toString();
         }
@@ -977,6 +1079,30 @@ public final class PluginDescriptionFile {
             }
         }
 
+        if (map.get("activation") != null) {
+            try {
+                activation = PluginActivation.valueOf(((String) map.get("activation")).toUpperCase());
+            } catch (ClassCastException ex) {
+                throw new InvalidDescriptionException(ex, "activation is of wrong type");
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidDescriptionException(ex, "activation is not a valid choice");
+            }
+        }
+
+        if (map.get("activation-events") != null) {
+            ImmutableList.Builder<String> eventsBuilder = ImmutableList.<String>builder();
+            try {
+                for (Object event : (Iterable<?>) map.get("activation-events")) {
+                    eventsBuilder.add(event.toString());
+                }
+            } catch (ClassCastException ex) {
+                throw new InvalidDescriptionException(ex, "activation-events are of wrong type");
+            } catch (NullPointerException ex) {
+                throw new InvalidDescriptionException(ex, "invalid activation-events format");
+            }
+            activationEvents = eventsBuilder.build();
+        }
+
         if (map.get("authors") != null) {
             ImmutableList.Builder<String> authorsBuilder = ImmutableList.<String>builder();
             if (map.get("author") != null) {
@@ -1057,7 +1183,12 @@ public final class PluginDescriptionFile {
         map.put("main", main);
         map.put("version", version);
         map.put("database", database);
+        map.put("parallel-enable", parallelEnable);
         map.put("order", order.toString());
+        map.put("activation", activation.toString());
+        if (!activationEvents.isEmpty()) {
+            map.put("activation-events", activationEvents);
+        }
         map.put("default-permission", defaultPerm.toString());
 
         if (commands != null) {
@@ -1100,6 +1231,15 @@ public final class PluginDescriptionFile {
         throw new InvalidDescriptionException(object + " is not properly structured.");
     }
 
+    /**
+     * Gets the YAML this description was read from
+     *
+     * @return the source YAML, or null if not read from YAML
+     */
+    String getSource() {
+        return source;
+    }
+
     /**
      * @deprecated Internal use
      */
@@ -0,0 +1,218 @@
+package org.bukkit.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.representer.Representer;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Remembers the plugin.yml of every file in a plugins folder, so unchanged
+ * files do not have to be opened again on the next start.
+ * <p>
+ * Entries are keyed by file name and checked against the size and last
+ * modification time of the file, and optionally a SHA-1 hash of its
+ * contents. An entry that does not match, or cannot be parsed, is ignored
+ * and the description is read from the file instead. An index that cannot
+ * be read at all is rebuilt.
+ */
+final class PluginDescriptionIndex {
+    static final String FILE_NAME = ".plugin-descriptions.yml";
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Logger logger;
+    private final boolean hashing;
+    private final Map<String, Map<?, ?>> stored;
+    private final Map<String, Map<String, Object>> entries = new ConcurrentHashMap<String, Map<String, Object>>();
+    private volatile boolean changed = false;
+
+    private PluginDescriptionIndex(File file, Logger logger, boolean hashing, Map<String, Map<?, ?>> stored) {
+        this.file = file;
+        this.logger = logger;
+        this.hashing = hashing;
+        this.stored = stored;
+    }
+
+    /**
+     * Reads the index of a plugins folder, or starts an empty one if there
+     * is none or it cannot be read
+     */
+    static PluginDescriptionIndex load(File directory, Logger logger, boolean hashing) {
+        File file = new File(directory, FILE_NAME);
+        Map<String, Map<?, ?>> stored = new ConcurrentHashMap<String, Map<?, ?>>();
+
+        if (file.isFile()) {
+            InputStream stream = null;
+            try {
+                stream = new FileInputStream(file);
+                Object root = new Yaml(new SafeConstructor()).load(new UnicodeReader(stream));
+                if (root instanceof Map && Integer.valueOf(VERSION).equals(((Map<?, ?>) root).get("version"))) {
+                    Object plugins = ((Map<?, ?>) root).get("plugins");
+                    if (plugins instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) plugins).entrySet()) {
+                            if (entry.getKey() instanceof String && entry.getValue() instanceof Map) {
+                                stored.put((String) entry.getKey(), (Map<?, ?>) entry.getValue());
+                            }
+                        }
+                    }
+                }
+            } catch (Exception ex) {
+                logger.log(Level.WARNING, "Could not read plugin description index " + file.getPath() + ", rebuilding it", ex);
+                stored.clear();
+            } finally {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    } catch (IOException ex) {
+                    }
+                }
+            }
+        }
+
+        return new PluginDescriptionIndex(file, logger, hashing, stored);
+    }
+
+    /**
+     * Gets the description of a file from the index
+     *
+     * @return the indexed description, or null if the file changed or is not
+     *     indexed
+     */
+    PluginDescriptionFile get(File plugin, PluginLoader loader) {
+        Map<?, ?> entry = stored.get(plugin.getName());
+        if (entry == null) {
+            return null;
+        }
+
+        try {
+            if (!loader.getClass().getName().equals(entry.get("loader"))
+                    || ((Number) entry.get("size")).longValue() != plugin.length()
+                    || ((Number) entry.get("modified")).longValue() != plugin.lastModified()) {
+                return null;
+            }
+            if (hashing && (entry.get("sha1") == null || !entry.get("sha1").equals(hash(plugin)))) {
+                return null;
+            }
+
+            PluginDescriptionFile description = new PluginDescriptionFile(new StringReader((String) entry.get("description")));
+            @SuppressWarnings("unchecked")
+            Map<String, Object> kept = (Map<String, Object>) entry;
+            entries.put(plugin.getName(), kept);
+            return description;
+        } catch (Exception ex) {
+            // Corrupt entry, read the file instead
+            return null;
+        }
+    }
+
+    /**
+     * Adds the description read from a file to the index
+     */
+    void put(File plugin, PluginLoader loader, PluginDescriptionFile description) {
+        String source = description.getSource();
+        if (source == null) {
+            return;
+        }
+
+        Map<String, Object> entry = new LinkedHashMap<String, Object>();
+        entry.put("loader", loader.getClass().getName());
+        entry.put("size", plugin.length());
+        entry.put("modified", plugin.lastModified());
+        if (hashing) {
+            try {
+                entry.put("sha1", hash(plugin));
+            } catch (IOException ex) {
+                return;
+            }
+        }
+        entry.put("description", source);
+        entries.put(plugin.getName(), entry);
+        changed = true;
+    }
+
+    /**
+     * Writes the index if any file was added, changed or removed since it
+     * was read. Only files passed to {@link #get(File, PluginLoader)} or
+     * {@link #put(File, PluginLoader, PluginDescriptionFile)} are kept.
+     */
+    void save() {
+        if (!changed && entries.keySet().equals(stored.keySet())) {
+            return;
+        }
+
+        Map<String, Object> root = new LinkedHashMap<String, Object>();
+        root.put("version", VERSION);
+        root.put("plugins", new TreeMap<String, Object>(entries));
+
+        DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        File temporary = new File(file.getParentFile(), file.getName() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(temporary), Charsets.UTF_8);
+            new Yaml(new SafeConstructor(), new Representer(), options).dump(root, writer);
+            writer.close();
+            writer = null;
+
+            if (!temporary.renameTo(file) && (!file.delete() || !temporary.renameTo(file))) {
+                throw new IOException("Could not replace " + file.getPath());
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Could not write plugin description index " + file.getPath(), ex);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                }
+            }
+            temporary.delete();
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex.toString());
+        }
+
+        InputStream stream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } finally {
+            stream.close();
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+}
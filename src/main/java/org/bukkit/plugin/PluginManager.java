@@ -4,11 +4,14 @@ import java.io.File;
 import java.util.Set;
 
 import org.bukkit.event.Event;
+import org.bukkit.event.EventFilter;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Handles all plugin management from the Server
  */
@@ -33,6 +36,18 @@ public interface PluginManager {
      */
     public Plugin getPlugin(String name);
 
+    /**
+     * Activates a plugin that is loaded on first use
+     * <p>
+     * If the plugin is a {@link LazyPlugin}, the plugin it stands in for is
+     * loaded and replaces it, and is enabled if the lazy plugin was.
+     * Other plugins are returned as they are.
+     *
+     * @param plugin Plugin to activate
+     * @return The activated plugin, or null if it could not be loaded
+     */
+    public Plugin activatePlugin(Plugin plugin);
+
     /**
      * Gets a list of all currently loaded plugins
      *
@@ -104,6 +119,79 @@ public interface PluginManager {
      */
     public void callEvent(Event event) throws IllegalStateException;
 
+    /**
+     * Calls several events at once, such as the block events of one
+     * explosion.
+     * <p>
+     * Consecutive events that share a handler list are dispatched together:
+     * each listener is visited once, in priority order, and is passed every
+     * one of those events it is registered for before the next listener
+     * runs. Cancellation is still tracked per event. Listeners registered
+     * with a {@link BatchEventExecutor} receive all of them in a single call.
+     * <p>
+     * Events of different types are not regrouped, so listeners see a mixed
+     * batch in the order it was fired. Fire events of one type next to each
+     * other to get the most out of batching.
+     * <p>
+     * All events must be either synchronous or asynchronous.
+     *
+     * @param events Events to call, in order
+     * @throws IllegalStateException Thrown when asynchronous events are fired
+     *     from synchronous code.
+     * @throws IllegalArgumentException Thrown when synchronous and
+     *     asynchronous events are mixed.
+     */
+    public void callEvents(Event[] events) throws IllegalStateException, IllegalArgumentException;
+
+    /**
+     * Calls an asynchronous event without blocking the calling thread.
+     * <p>
+     * Priority levels still run in order, each plugin's listeners on its own
+     * bounded set of threads. A listener taking longer than the configured
+     * timeout, counted from when it starts running, is interrupted and
+     * skipped.
+     * <p>
+     * Listeners of the same priority run in parallel for a {@link
+     * org.bukkit.event.ConcurrentEvent}, so one slow listener does not delay
+     * listeners of other plugins at its level. For an {@link
+     * org.bukkit.event.AsyncCancellable} event, each listener of a level sees
+     * the cancellation state the level started with and its own changes
+     * only. Once the level has finished, the changes of the listeners that
+     * did not time out are applied in registration order, so the last
+     * listener to change the state decides it. A cancellable event that is
+     * not an AsyncCancellable, or any other event, has the listeners of a
+     * level run one at a time instead. Listeners ignoring cancelled events
+     * are skipped if the event was cancelled when their priority level
+     * started.
+     * <p>
+     * A listener that timed out may keep running after it is interrupted.
+     * Only its cancellation changes are guaranteed to be discarded; other
+     * changes it makes to the event may still be seen.
+     * <p>
+     * This may be called from any thread, including the primary thread.
+     *
+     * @param event Event details
+     * @param <T> the type of event
+     * @return a future completed with the event once every listener ran
+     * @throws IllegalArgumentException Thrown when the event is not
+     *     asynchronous
+     */
+    public <T extends Event> ListenableFuture<T> callEventAsync(T event) throws IllegalArgumentException;
+
+    /**
+     * Checks whether any listener would receive an event of the given type.
+     * <p>
+     * Listeners registered to the event's registration class, the closest
+     * class declaring <code>getHandlerList()</code>, are included. Callers
+     * may use this to skip constructing events nobody listens to.
+     *
+     * @param event Event type to check
+     * @return true if at least one listener is registered for the event
+     * @throws IllegalPluginAccessException Thrown when the event type has no
+     *     handler list
+     */
+    public boolean isListened(Class<? extends Event> event);
+
     /**
      * Registers all the events in the given listener class
      *
@@ -135,6 +223,21 @@ public interface PluginManager {
      */
     public void registerEvent(Class<? extends Event> event, Listener listener, EventPriority priority, EventExecutor executor, Plugin plugin, boolean ignoreCancelled);
 
+    /**
+     * Registers the specified executor to the given event class, only
+     * receiving events accepted by the given filter
+     *
+     * @param event Event type to register
+     * @param listener Listener to register
+     * @param priority Priority to register this event at
+     * @param executor EventExecutor to register
+     * @param plugin Plugin to register
+     * @param ignoreCancelled Whether to pass cancelled events or not
+     * @param filter Filter restricting the events passed, including the
+     *     movement granularity
+     */
+    public void registerEvent(Class<? extends Event> event, Listener listener, EventPriority priority, EventExecutor executor, Plugin plugin, boolean ignoreCancelled, EventFilter filter);
+
     /**
      * Enables the specified plugin
      * <p>
@@ -154,6 +257,30 @@ public interface PluginManager {
      */
     public void disablePlugin(Plugin plugin);
 
+    /**
+     * Reloads the specified plugin from the file it was loaded from, leaving
+     * every other plugin untouched
+     * <p>
+     * The plugin is disabled, its commands and permissions are unregistered
+     * and it is loaded again with a new class loader. The new plugin is
+     * enabled if the old one was. If loading fails, the old plugin stays
+     * unloaded.
+     *
+     * @param plugin Plugin to reload
+     * @return The reloaded plugin
+     * @throws IllegalArgumentException If the plugin was not loaded from a
+     *     file by this plugin manager
+     * @throws IllegalStateException If other loaded plugins depend or soft
+     *     depend on the plugin, and may hold references to its classes
+     * @throws InvalidPluginException Thrown when the file is no longer a
+     *     valid plugin
+     * @throws InvalidDescriptionException Thrown when the file contains an
+     *     invalid description
+     * @throws UnknownDependencyException If a required dependency could not
+     *     be resolved
+     */
+    public Plugin reloadPlugin(Plugin plugin) throws InvalidPluginException, InvalidDescriptionException, UnknownDependencyException;
+
     /**
      * Gets a {@link Permission} from its fully qualified name
      *
@@ -291,4 +418,29 @@ public interface PluginManager {
      * @return True if event timings are to be used
      */
     public boolean useTimings();
+
+    /**
+     * Gets the reporter aggregating exceptions thrown by event listeners.
+     * Its counters can be inspected, and it can be configured to unregister
+     * listeners that keep failing.
+     *
+     * @return The exception reporter
+     */
+    public ExceptionReporter getExceptionReporter();
+
+    /**
+     * Gets the watchdog reporting listeners, commands and tasks that run
+     * longer than a budget. It is stopped until started by the server.
+     *
+     * @return The execution watchdog
+     */
+    public ExecutionWatchdog getExecutionWatchdog();
+
+    /**
+     * Gets the profiler recording how long each plugin took to load and
+     * enable
+     *
+     * @return The startup profiler
+     */
+    public StartupProfiler getStartupProfiler();
 }
@@ -1,5 +1,8 @@
 package org.bukkit.plugin;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.bukkit.event.*;
 
 /**
@@ -11,13 +14,19 @@ public class RegisteredListener {
     private final Plugin plugin;
     private final EventExecutor executor;
     private final boolean ignoreCancelled;
+    private final EventFilter filter;
 
     public RegisteredListener(final Listener listener, final EventExecutor executor, final EventPriority priority, final Plugin plugin, final boolean ignoreCancelled) {
+        this(listener, executor, priority, plugin, ignoreCancelled, EventFilter.NONE);
+    }
+
+    public RegisteredListener(final Listener listener, final EventExecutor executor, final EventPriority priority, final Plugin plugin, final boolean ignoreCancelled, final EventFilter filter) {
         this.listener = listener;
         this.priority = priority;
         this.plugin = plugin;
         this.executor = executor;
         this.ignoreCancelled = ignoreCancelled;
+        this.filter = filter == null ? EventFilter.NONE : filter;
     }
 
     /**
@@ -47,6 +56,16 @@ public class RegisteredListener {
         return priority;
     }
 
+    /**
+     * Gets the filter of this registration. Events not matching the filter
+     * are not dispatched to this listener by the plugin manager.
+     *
+     * @return Registered filter, {@link EventFilter#NONE} if unfiltered
+     */
+    public EventFilter getFilter() {
+        return filter;
+    }
+
     /**
      * Calls the event executor
      *
@@ -62,6 +81,62 @@ public class RegisteredListener {
         executor.execute(listener, event);
     }
 
+    /**
+     * Gets whether the executor of this registration handles batches of
+     * events itself
+     *
+     * @return True if the executor is a {@link BatchEventExecutor}
+     */
+    public boolean isBatchAware() {
+        return executor instanceof BatchEventExecutor;
+    }
+
+    /**
+     * Calls the event executor for a batch of events sharing a handler list.
+     * Cancelled events are skipped when ignoring cancelled events.
+     * <p>
+     * The plugin manager only uses this for batch aware registrations, and
+     * calls {@link #callEvent(Event)} once per event for the others so each
+     * failure is reported on its own. If the executor is not batch aware,
+     * this calls {@link #callEvent(Event)} for each event in turn and stops
+     * at the first event that fails.
+     *
+     * @param events The events
+     * @throws EventException If an event handler throws an exception.
+     */
+    public void callEvents(final List<Event> events) throws EventException {
+        if (!isBatchAware()) {
+            for (Event event : events) {
+                callEvent(event);
+            }
+            return;
+        }
+
+        List<Event> accepted = events;
+        if (isIgnoringCancelled()) {
+            accepted = new ArrayList<Event>(events.size());
+            for (Event event : events) {
+                if (!(event instanceof Cancellable) || !((Cancellable) event).isCancelled()) {
+                    accepted.add(event);
+                }
+            }
+        }
+        if (!accepted.isEmpty()) {
+            callBatch(accepted);
+        }
+    }
+
+    /**
+     * Passes accepted events to the batch executor of this registration.
+     * Subclasses may override this to wrap each batch call.
+     *
+     * @param events The events, never empty
+     * @throws EventException If an event handler throws an exception.
+     */
+    protected void callBatch(final List<Event> events) throws EventException {
+        ((BatchEventExecutor) executor).executeBatch(listener, events);
+    }
+
      /**
      * Whether this listener accepts cancelled events
      *
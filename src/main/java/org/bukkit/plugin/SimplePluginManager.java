@@ -2,18 +2,28 @@ package org.bukkit.plugin;
 
 import java.io.File;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -21,18 +31,30 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang.Validate;
 import org.bukkit.Server;
 import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.command.PluginCommandYamlParser;
 import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.event.BatchEventException;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventFilter;
 import org.bukkit.event.EventPriority;
+import org.bukkit.event.EventTypeRegistry;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.ReusableEvent;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.timings.Timings;
 import org.bukkit.util.FileUtil;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
  * Handles all plugin management from the Server
@@ -42,17 +64,33 @@ public final class SimplePluginManager implements PluginManager {
     private final Map<Pattern, PluginLoader> fileAssociations = new HashMap<Pattern, PluginLoader>();
     private final List<Plugin> plugins = new ArrayList<Plugin>();
     private final Map<String, Plugin> lookupNames = new HashMap<String, Plugin>();
+    private final Map<String, File> pluginFiles = new HashMap<String, File>();
     private static File updateDirectory = null;
     private final SimpleCommandMap commandMap;
     private final Map<String, Permission> permissions = new HashMap<String, Permission>();
     private final Map<Boolean, Set<Permission>> defaultPerms = new LinkedHashMap<Boolean, Set<Permission>>();
     private final Map<String, Map<Permissible, Boolean>> permSubs = new HashMap<String, Map<Permissible, Boolean>>();
     private final Map<Boolean, Map<Permissible, Boolean>> defSubs = new HashMap<Boolean, Map<Permissible, Boolean>>();
+    private final Object offThreadEventLock = new Object();
+    private final Object activationLock = new Object();
+    private final AsyncEventPipeline asyncPipeline;
+    private final ExceptionReporter exceptionReporter;
+    private final ExecutionWatchdog watchdog;
+    private final StartupProfiler profiler = new StartupProfiler();
     private boolean useTimings = false;
+    private volatile int descriptionThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private volatile boolean descriptionIndexHashing = false;
+    private volatile int enableThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private volatile PluginDependencyGraph dependencyGraph = null;
+    private volatile boolean detectRetainedEvents = false;
+    private final Set<Field> reportedRetainingFields = Collections.synchronizedSet(new HashSet<Field>());
 
     public SimplePluginManager(Server instance, SimpleCommandMap commandMap) {
         server = instance;
         this.commandMap = commandMap;
+        asyncPipeline = new AsyncEventPipeline(this, instance);
+        exceptionReporter = new ExceptionReporter(instance.getLogger());
+        watchdog = new ExecutionWatchdog(instance.getLogger());
 
         defaultPerms.put(true, new HashSet<Permission>());
         defaultPerms.put(false, new HashSet<Permission>());
@@ -112,11 +150,11 @@ public final class SimplePluginManager implements PluginManager {
         }
 
         Map<String, File> plugins = new HashMap<String, File>();
-        Set<String> loadedPlugins = new HashSet<String>();
-        Map<String, Collection<String>> dependencies = new HashMap<String, Collection<String>>();
-        Map<String, Collection<String>> softDependencies = new HashMap<String, Collection<String>>();
+        List<PluginDescriptionFile> found = new ArrayList<PluginDescriptionFile>();
 
         // This is where it figures out all possible plugins
+        List<File> files = new ArrayList<File>();
+        List<PluginLoader> loaders = new ArrayList<PluginLoader>();
         for (File file : directory.listFiles()) {
             PluginLoader loader = null;
             for (Pattern filter : filters) {
@@ -128,9 +166,19 @@ public final class SimplePluginManager implements PluginManager {
 
             if (loader == null) continue;
 
+            files.add(file);
+            loaders.add(loader);
+        }
+
+        // Descriptions are read in parallel, but handled in directory order
+        PluginDescriptionIndex index = PluginDescriptionIndex.load(directory, server.getLogger(), descriptionIndexHashing);
+        List<Future<PluginDescriptionFile>> descriptions = readDescriptions(files, loaders, index);
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+
             PluginDescriptionFile description = null;
             try {
-                description = loader.getPluginDescription(file);
+                description = getDescription(descriptions.get(i));
                 String name = description.getName();
                 if (name.equalsIgnoreCase("bukkit") || name.equalsIgnoreCase("minecraft") || name.equalsIgnoreCase("mojang")) {
                     server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "': Restricted Name");
@@ -158,144 +206,177 @@ public final class SimplePluginManager implements PluginManager {
                     ));
             }
 
-            Collection<String> softDependencySet = description.getSoftDepend();
-            if (softDependencySet != null && !softDependencySet.isEmpty()) {
-                if (softDependencies.containsKey(description.getName())) {
-                    // Duplicates do not matter, they will be removed together if applicable
-                    softDependencies.get(description.getName()).addAll(softDependencySet);
-                } else {
-                    softDependencies.put(description.getName(), new LinkedList<String>(softDependencySet));
+            found.add(description);
+        }
+        index.save();
+
+        PluginDependencyGraph graph = new PluginDependencyGraph(found);
+        dependencyGraph = graph;
+        for (Map.Entry<String, String> entry : graph.getUnknownDependencies().entrySet()) {
+            server.getLogger().log(
+                Level.SEVERE,
+                "Could not load '" + plugins.get(entry.getKey()).getPath() + "' in folder '" + directory.getPath() + "'",
+                new UnknownDependencyException(entry.getValue()));
+        }
+        for (Map.Entry<String, List<String>> entry : graph.getCircularDependencies().entrySet()) {
+            server.getLogger().log(Level.SEVERE, "Could not load '" + plugins.get(entry.getKey()).getPath() + "' in folder '" + directory.getPath() + "': circular dependency detected (" + Joiner.on(" -> ").join(entry.getValue()) + ")");
+        }
+        for (List<String> cycle : graph.getBrokenCycles()) {
+            server.getLogger().info("Ignoring soft dependencies to break dependency cycle " + Joiner.on(" -> ").join(cycle));
+        }
+
+        Set<String> loadedPlugins = new HashSet<String>();
+        for (String name : graph.getLoadOrder()) {
+            File file = plugins.get(name);
+
+            String missing = null;
+            for (String dependency : graph.getDescription(name).getDepend()) {
+                if (!loadedPlugins.contains(dependency)) {
+                    missing = dependency;
+                    break;
                 }
             }
-
-            Collection<String> dependencySet = description.getDepend();
-            if (dependencySet != null && !dependencySet.isEmpty()) {
-                dependencies.put(description.getName(), new LinkedList<String>(dependencySet));
+            if (missing != null) {
+                // A dependency failed to load
+                server.getLogger().log(
+                    Level.SEVERE,
+                    "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'",
+                    new UnknownDependencyException(missing));
+                continue;
             }
 
-            Collection<String> loadBeforeSet = description.getLoadBefore();
-            if (loadBeforeSet != null && !loadBeforeSet.isEmpty()) {
-                for (String loadBeforeTarget : loadBeforeSet) {
-                    if (softDependencies.containsKey(loadBeforeTarget)) {
-                        softDependencies.get(loadBeforeTarget).add(description.getName());
-                    } else {
-                        // softDependencies is never iterated, so 'ghost' plugins aren't an issue
-                        Collection<String> shortSoftDependency = new LinkedList<String>();
-                        shortSoftDependency.add(description.getName());
-                        softDependencies.put(loadBeforeTarget, shortSoftDependency);
-                    }
-                }
+            try {
+                result.add(loadPlugin(file, graph.getDescription(name)));
+                loadedPlugins.add(name);
+            } catch (InvalidPluginException ex) {
+                server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
             }
         }
 
-        while (!plugins.isEmpty()) {
-            boolean missingDependency = true;
-            Iterator<String> pluginIterator = plugins.keySet().iterator();
-
-            while (pluginIterator.hasNext()) {
-                String plugin = pluginIterator.next();
-
-                if (dependencies.containsKey(plugin)) {
-                    Iterator<String> dependencyIterator = dependencies.get(plugin).iterator();
-
-                    while (dependencyIterator.hasNext()) {
-                        String dependency = dependencyIterator.next();
-
-                        // Dependency loaded
-                        if (loadedPlugins.contains(dependency)) {
-                            dependencyIterator.remove();
-
-                        // We have a dependency not found
-                        } else if (!plugins.containsKey(dependency)) {
-                            missingDependency = false;
-                            File file = plugins.get(plugin);
-                            pluginIterator.remove();
-                            softDependencies.remove(plugin);
-                            dependencies.remove(plugin);
-
-                            server.getLogger().log(
-                                Level.SEVERE,
-                                "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'",
-                                new UnknownDependencyException(dependency));
-                            break;
-                        }
-                    }
+        return result.toArray(new Plugin[result.size()]);
+    }
 
-                    if (dependencies.containsKey(plugin) && dependencies.get(plugin).isEmpty()) {
-                        dependencies.remove(plugin);
-                    }
-                }
-                if (softDependencies.containsKey(plugin)) {
-                    Iterator<String> softDependencyIterator = softDependencies.get(plugin).iterator();
+    /**
+     * Starts reading the description of every file on a bounded pool
+     *
+     * @return one future per file, in the order of the files
+     */
+    private List<Future<PluginDescriptionFile>> readDescriptions(List<File> files, List<PluginLoader> loaders, PluginDescriptionIndex index) {
+        List<Future<PluginDescriptionFile>> descriptions = new ArrayList<Future<PluginDescriptionFile>>(files.size());
+        int threads = Math.min(files.size(), descriptionThreads);
+        if (threads <= 1) {
+            for (int i = 0; i < files.size(); i++) {
+                FutureTask<PluginDescriptionFile> task = new FutureTask<PluginDescriptionFile>(new DescriptionReader(loaders.get(i), files.get(i), index, profiler));
+                task.run();
+                descriptions.add(task);
+            }
+            return descriptions;
+        }
 
-                    while (softDependencyIterator.hasNext()) {
-                        String softDependency = softDependencyIterator.next();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Plugin Description Reader - %1$d").setDaemon(true).build());
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                descriptions.add(executor.submit(new DescriptionReader(loaders.get(i), files.get(i), index, profiler)));
+            }
+        } finally {
+            // Already submitted reads still complete
+            executor.shutdown();
+        }
+        return descriptions;
+    }
 
-                        // Soft depend is no longer around
-                        if (!plugins.containsKey(softDependency)) {
-                            softDependencyIterator.remove();
-                        }
-                    }
+    private static PluginDescriptionFile getDescription(Future<PluginDescriptionFile> description) throws InvalidDescriptionException {
+        try {
+            return Uninterruptibles.getUninterruptibly(description);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof InvalidDescriptionException) {
+                throw (InvalidDescriptionException) cause;
+            }
+            Throwables.propagateIfPossible(cause);
+            throw new InvalidDescriptionException(cause);
+        }
+    }
 
-                    if (softDependencies.get(plugin).isEmpty()) {
-                        softDependencies.remove(plugin);
-                    }
-                }
-                if (!(dependencies.containsKey(plugin) || softDependencies.containsKey(plugin)) && plugins.containsKey(plugin)) {
-                    // We're clear to load, no more soft or hard dependencies left
-                    File file = plugins.get(plugin);
-                    pluginIterator.remove();
-                    missingDependency = false;
+    private static final class DescriptionReader implements Callable<PluginDescriptionFile> {
+        private final PluginLoader loader;
+        private final File file;
+        private final PluginDescriptionIndex index;
+        private final StartupProfiler profiler;
+
+        DescriptionReader(PluginLoader loader, File file, PluginDescriptionIndex index, StartupProfiler profiler) {
+            this.loader = loader;
+            this.file = file;
+            this.index = index;
+            this.profiler = profiler;
+        }
 
-                    try {
-                        result.add(loadPlugin(file));
-                        loadedPlugins.add(plugin);
-                        continue;
-                    } catch (InvalidPluginException ex) {
-                        server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
-                    }
-                }
+        public PluginDescriptionFile call() throws InvalidDescriptionException {
+            long start = System.nanoTime();
+            PluginDescriptionFile description = index.get(file, loader);
+            if (description == null) {
+                description = loader.getPluginDescription(file);
+                index.put(file, loader, description);
             }
+            profiler.record(description.getName(), StartupProfiler.Phase.DESCRIPTION, System.nanoTime() - start);
+            return description;
+        }
+    }
 
-            if (missingDependency) {
-                // We now iterate over plugins until something loads
-                // This loop will ignore soft dependencies
-                pluginIterator = plugins.keySet().iterator();
+    /**
+     * Sets the number of threads used to read plugin descriptions in
+     * {@link #loadPlugins(File)}
+     *
+     * @param threads number of threads, 1 to read on the calling thread
+     */
+    public void setDescriptionThreads(int threads) {
+        Validate.isTrue(threads > 0, "Threads must be positive");
+        descriptionThreads = threads;
+    }
 
-                while (pluginIterator.hasNext()) {
-                    String plugin = pluginIterator.next();
+    /**
+     * Gets the number of threads used to read plugin descriptions in
+     * {@link #loadPlugins(File)}
+     *
+     * @return number of threads
+     */
+    public int getDescriptionThreads() {
+        return descriptionThreads;
+    }
 
-                    if (!dependencies.containsKey(plugin)) {
-                        softDependencies.remove(plugin);
-                        missingDependency = false;
-                        File file = plugins.get(plugin);
-                        pluginIterator.remove();
+    /**
+     * Gets the dependency graph the last call to {@link #loadPlugins(File)}
+     * loaded plugins in
+     *
+     * @return the dependency graph, or null if no plugins were loaded from
+     *     a directory yet
+     */
+    public PluginDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
 
-                        try {
-                            result.add(loadPlugin(file));
-                            loadedPlugins.add(plugin);
-                            break;
-                        } catch (InvalidPluginException ex) {
-                            server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
-                        }
-                    }
-                }
-                // We have no plugins left without a depend
-                if (missingDependency) {
-                    softDependencies.clear();
-                    dependencies.clear();
-                    Iterator<File> failedPluginIterator = plugins.values().iterator();
-
-                    while (failedPluginIterator.hasNext()) {
-                        File file = failedPluginIterator.next();
-                        failedPluginIterator.remove();
-                        server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "': circular dependency detected");
-                    }
-                }
-            }
-        }
+    /**
+     * Sets whether the plugin description index of a plugins folder also
+     * compares a hash of each file, rather than only its size and last
+     * modification time
+     * <p>
+     * Hashing reads every file in full, but notices files replaced with
+     * the same size and modification time.
+     *
+     * @param hashing true to hash every file
+     */
+    public void setDescriptionIndexHashing(boolean hashing) {
+        descriptionIndexHashing = hashing;
+    }
 
-        return result.toArray(new Plugin[result.size()]);
+    /**
+     * Gets whether the plugin description index of a plugins folder also
+     * compares a hash of each file
+     *
+     * @return true if every file is hashed
+     */
+    public boolean isDescriptionIndexHashing() {
+        return descriptionIndexHashing;
     }
 
     /**
@@ -310,10 +391,20 @@ public final class SimplePluginManager implements PluginManager {
      * @throws UnknownDependencyException If a required dependency could not
      *     be found
      */
-    public synchronized Plugin loadPlugin(File file) throws InvalidPluginException, UnknownDependencyException {
+    public Plugin loadPlugin(File file) throws InvalidPluginException, UnknownDependencyException {
         Validate.notNull(file, "File cannot be null");
 
-        checkUpdate(file);
+        return loadPlugin(file, null);
+    }
+
+    /**
+     * Loads a plugin, reusing its description if it was read already and the
+     * file was not replaced by an update since
+     */
+    private synchronized Plugin loadPlugin(File file, PluginDescriptionFile description) throws InvalidPluginException, UnknownDependencyException {
+        if (checkUpdate(file)) {
+            description = null;
+        }
 
         Set<Pattern> filters = fileAssociations.keySet();
         Plugin result = null;
@@ -325,27 +416,39 @@ public final class SimplePluginManager implements PluginManager {
             if (match.find()) {
                 PluginLoader loader = fileAssociations.get(filter);
 
-                result = loader.loadPlugin(file);
+                if (description != null && loader instanceof DescribedPluginLoader) {
+                    result = ((DescribedPluginLoader) loader).loadPlugin(file, description);
+                } else {
+                    result = loader.loadPlugin(file);
+                }
             }
         }
 
         if (result != null) {
             plugins.add(result);
             lookupNames.put(result.getDescription().getName(), result);
+            pluginFiles.put(result.getDescription().getName(), file);
         }
 
         return result;
     }
 
-    private void checkUpdate(File file) {
+    /**
+     * Replaces a plugin file with its update, if there is one
+     *
+     * @return true if the file was replaced
+     */
+    private boolean checkUpdate(File file) {
         if (updateDirectory == null || !updateDirectory.isDirectory()) {
-            return;
+            return false;
         }
 
         File updateFile = new File(updateDirectory, file.getName());
         if (updateFile.isFile() && FileUtil.copy(updateFile, file)) {
             updateFile.delete();
+            return true;
         }
+        return false;
     }
 
     /**
@@ -392,13 +495,10 @@ public final class SimplePluginManager implements PluginManager {
         }
     }
 
-    public void enablePlugin(final Plugin plugin) {
+    public void enablePlugin(Plugin plugin) {
+        plugin = getActivePlugin(plugin);
         if (!plugin.isEnabled()) {
-            List<Command> pluginCommands = PluginCommandYamlParser.parse(plugin);
-
-            if (!pluginCommands.isEmpty()) {
-                commandMap.registerAll(plugin.getDescription().getName(), pluginCommands);
-            }
+            registerCommands(plugin);
 
             try {
                 plugin.getPluginLoader().enablePlugin(plugin);
@@ -406,10 +506,292 @@ public final class SimplePluginManager implements PluginManager {
                 server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
             }
 
+            if (plugin instanceof LazyPlugin && plugin.isEnabled()) {
+                registerActivationEvents((LazyPlugin) plugin);
+            }
+
             HandlerList.bakeAll();
         }
     }
 
+    /**
+     * Gets the plugin that replaced a lazy plugin once it was activated
+     */
+    private static Plugin getActivePlugin(Plugin plugin) {
+        if (plugin instanceof LazyPlugin) {
+            Plugin loaded = ((LazyPlugin) plugin).getLoadedPlugin();
+            if (loaded != null) {
+                return loaded;
+            }
+        }
+        return plugin;
+    }
+
+    private void registerActivationEvents(final LazyPlugin plugin) {
+        Listener listener = new Listener() {};
+        // A stub at every priority lets the first event reach each listener
+        // registered while enabling at that listener's own priority
+        EnumMap<EventPriority, EventExecutor> executors = new EnumMap<EventPriority, EventExecutor>(EventPriority.class);
+        for (final EventPriority priority : EventPriority.values()) {
+            executors.put(priority, new EventExecutor() {
+                public void execute(Listener listener, Event event) {
+                    Plugin activated = activatePlugin(plugin);
+                    if (activated == null) {
+                        return;
+                    }
+
+                    // Listeners registered while enabling missed this event
+                    for (RegisteredListener registration : event.getHandlers().getRegisteredListeners(event)) {
+                        if (registration.getPlugin() == activated && registration.getPriority() == priority) {
+                            try {
+                                registration.callEvent(event);
+                            } catch (Throwable ex) {
+                                handleEventException(registration, event, ex);
+                            }
+                        }
+                    }
+                }
+            });
+        }
+
+        for (String name : plugin.getDescription().getActivationEvents()) {
+            Class<? extends Event> type;
+            try {
+                type = Class.forName(name).asSubclass(Event.class);
+            } catch (ClassNotFoundException ex) {
+                server.getLogger().warning("Unknown activation event " + name + " of " + plugin.getDescription().getFullName());
+                continue;
+            } catch (ClassCastException ex) {
+                server.getLogger().warning("Activation event " + name + " of " + plugin.getDescription().getFullName() + " is not an event");
+                continue;
+            }
+            for (Map.Entry<EventPriority, EventExecutor> entry : executors.entrySet()) {
+                registerEvent(type, listener, entry.getKey(), entry.getValue(), plugin);
+            }
+        }
+    }
+
+    public Plugin activatePlugin(Plugin plugin) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        if (!(plugin instanceof LazyPlugin)) {
+            return plugin;
+        }
+
+        LazyPlugin lazy = (LazyPlugin) plugin;
+        synchronized (activationLock) {
+            Plugin active = lazy.getLoadedPlugin();
+            if (active != null) {
+                return active;
+            }
+
+            boolean enabled = lazy.isEnabled();
+            try {
+                active = lazy.load();
+            } catch (Throwable ex) {
+                server.getLogger().log(Level.SEVERE, "Could not activate " + lazy.getDescription().getFullName(), ex);
+                disablePlugin(lazy);
+                return null;
+            }
+
+            synchronized (this) {
+                int index = plugins.indexOf(lazy);
+                if (index != -1) {
+                    plugins.set(index, active);
+                }
+                lookupNames.put(active.getDescription().getName(), active);
+            }
+
+            callOnLoad(active);
+
+            if (enabled) {
+                HandlerList.unregisterAll(lazy);
+                replaceCommands(lazy, active);
+
+                try {
+                    active.getPluginLoader().enablePlugin(active);
+                } catch (Throwable ex) {
+                    server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while enabling " + active.getDescription().getFullName() + " (Is it up to date?)", ex);
+                }
+
+                HandlerList.bakeAll();
+            }
+            return active;
+        }
+    }
+
+    /**
+     * Registers the commands of an activated plugin in place of those of
+     * its lazy plugin
+     */
+    private void replaceCommands(LazyPlugin lazy, Plugin active) {
+        String prefix = active.getDescription().getName().toLowerCase();
+        for (Command command : PluginCommandYamlParser.parse(active)) {
+            Command stub = commandMap.getCommand(prefix + ":" + command.getName().toLowerCase());
+            if (stub instanceof PluginCommand && ((PluginCommand) stub).getPlugin() == lazy) {
+                commandMap.replace(stub, command);
+            } else {
+                commandMap.register(prefix, command);
+            }
+        }
+    }
+
+    private void callOnLoad(Plugin plugin) {
+        long start = System.nanoTime();
+        try {
+            plugin.onLoad();
+        } catch (Throwable ex) {
+            server.getLogger().log(Level.SEVERE, "Error occurred while loading " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
+        }
+        profiler.record(plugin.getDescription().getName(), StartupProfiler.Phase.LOAD, System.nanoTime() - start);
+    }
+
+    private void registerCommands(Plugin plugin) {
+        List<Command> pluginCommands = PluginCommandYamlParser.parse(plugin);
+
+        if (!pluginCommands.isEmpty()) {
+            commandMap.registerAll(plugin.getDescription().getName(), pluginCommands);
+            profiler.recordCommands(plugin.getDescription().getName(), pluginCommands.size());
+        }
+    }
+
+    /**
+     * Enables the given plugins
+     * <p>
+     * Plugins are grouped into layers, where a plugin comes after the
+     * plugins it depends on, soft depends on or loads after. Layers are
+     * enabled one after another. Within a layer, plugins that set
+     * <code>parallel-enable</code> and whose loader is a {@link
+     * ParallelPluginLoader} are enabled on a pool of threads, while the
+     * other plugins are enabled on the calling thread in the given order.
+     * Once the pool is done with a layer, the {@link
+     * org.bukkit.event.server.PluginEnableEvent} of its parallel plugins is
+     * called on the calling thread, in the given order.
+     *
+     * @param plugins Plugins to enable, in load order
+     */
+    public void enablePlugins(Plugin[] plugins) {
+        Validate.noNullElements(plugins, "Plugins cannot be null");
+
+        List<List<Plugin>> layers = getEnableLayers(plugins);
+        int threads = enableThreads;
+        ExecutorService executor = null;
+        try {
+            for (List<Plugin> layer : layers) {
+                List<Plugin> parallel = new ArrayList<Plugin>();
+                List<Future<?>> tasks = new ArrayList<Future<?>>();
+                for (final Plugin plugin : layer) {
+                    if (threads > 1 && !plugin.isEnabled() && plugin.getDescription().isParallelEnable() && !(plugin instanceof LazyPlugin) && plugin.getPluginLoader() instanceof ParallelPluginLoader) {
+                        if (executor == null) {
+                            executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Plugin Enabler - %1$d").setDaemon(true).build());
+                        }
+                        registerCommands(plugin);
+                        parallel.add(plugin);
+                        tasks.add(executor.submit(new Runnable() {
+                            public void run() {
+                                ((ParallelPluginLoader) plugin.getPluginLoader()).enablePluginInParallel(plugin);
+                            }
+                        }));
+                    }
+                }
+
+                for (Plugin plugin : layer) {
+                    if (!parallel.contains(plugin)) {
+                        enablePlugin(plugin);
+                    }
+                }
+
+                // Wait for the whole layer before calling any event
+                List<Plugin> enabled = new ArrayList<Plugin>(parallel.size());
+                for (int i = 0; i < parallel.size(); i++) {
+                    Plugin plugin = parallel.get(i);
+                    try {
+                        Uninterruptibles.getUninterruptibly(tasks.get(i));
+                        enabled.add(plugin);
+                    } catch (ExecutionException ex) {
+                        server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex.getCause());
+                    }
+                }
+
+                for (Plugin plugin : enabled) {
+                    try {
+                        ((ParallelPluginLoader) plugin.getPluginLoader()).completeEnable(plugin);
+                    } catch (Throwable ex) {
+                        server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
+                    }
+                }
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+
+        HandlerList.bakeAll();
+    }
+
+    /**
+     * Groups plugins into layers, keeping plugins that are not enabled in
+     * parallel in the given order
+     */
+    private static List<List<Plugin>> getEnableLayers(Plugin[] plugins) {
+        List<List<Plugin>> layers = new ArrayList<List<Plugin>>();
+        Map<String, Integer> levels = new HashMap<String, Integer>();
+        Map<String, Integer> loadAfter = new HashMap<String, Integer>();
+        int serialLevel = 0;
+
+        for (Plugin plugin : plugins) {
+            PluginDescriptionFile description = plugin.getDescription();
+            int level = 0;
+            for (String dependency : Iterables.concat(description.getDepend(), description.getSoftDepend())) {
+                Integer dependencyLevel = levels.get(dependency);
+                if (dependencyLevel != null) {
+                    level = Math.max(level, dependencyLevel + 1);
+                }
+            }
+            Integer before = loadAfter.get(description.getName());
+            if (before != null) {
+                level = Math.max(level, before + 1);
+            }
+            if (!description.isParallelEnable()) {
+                level = Math.max(level, serialLevel);
+                serialLevel = level;
+            }
+
+            levels.put(description.getName(), level);
+            for (String target : description.getLoadBefore()) {
+                Integer current = loadAfter.get(target);
+                loadAfter.put(target, current == null ? level : Math.max(current, level));
+            }
+            while (layers.size() <= level) {
+                layers.add(new ArrayList<Plugin>());
+            }
+            layers.get(level).add(plugin);
+        }
+        return layers;
+    }
+
+    /**
+     * Sets the number of threads {@link #enablePlugins(Plugin[])} enables
+     * plugins on
+     *
+     * @param threads number of threads, 1 to enable every plugin on the
+     *     calling thread
+     */
+    public void setEnableThreads(int threads) {
+        Validate.isTrue(threads > 0, "Threads must be positive");
+        enableThreads = threads;
+    }
+
+    /**
+     * Gets the number of threads {@link #enablePlugins(Plugin[])} enables
+     * plugins on
+     *
+     * @return number of threads
+     */
+    public int getEnableThreads() {
+        return enableThreads;
+    }
+
     public void disablePlugins() {
         Plugin[] plugins = getPlugins();
         for (int i = plugins.length - 1; i >= 0; i--) {
@@ -417,7 +799,8 @@ public final class SimplePluginManager implements PluginManager {
         }
     }
 
-    public void disablePlugin(final Plugin plugin) {
+    public void disablePlugin(Plugin plugin) {
+        plugin = getActivePlugin(plugin);
         if (plugin.isEnabled()) {
             try {
                 plugin.getPluginLoader().disablePlugin(plugin);
@@ -443,6 +826,9 @@ public final class SimplePluginManager implements PluginManager {
                 server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while unregistering events for " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
             }
 
+            asyncPipeline.shutdown(plugin);
+            exceptionReporter.forgetAll(plugin);
+
             try {
                 server.getMessenger().unregisterIncomingPluginChannel(plugin);
                 server.getMessenger().unregisterOutgoingPluginChannel(plugin);
@@ -452,12 +838,76 @@ public final class SimplePluginManager implements PluginManager {
         }
     }
 
+    public Plugin reloadPlugin(Plugin plugin) throws InvalidPluginException, InvalidDescriptionException, UnknownDependencyException {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        plugin = getActivePlugin(plugin);
+        String name = plugin.getDescription().getName();
+
+        File file;
+        List<String> dependents = new ArrayList<String>();
+        synchronized (this) {
+            file = pluginFiles.get(name);
+            if (file == null || !plugin.equals(lookupNames.get(name))) {
+                throw new IllegalArgumentException("Plugin " + name + " was not loaded from a file");
+            }
+
+            for (Plugin other : plugins) {
+                PluginDescriptionFile description = other.getDescription();
+                if (!other.equals(plugin) && (description.getDepend().contains(name) || description.getSoftDepend().contains(name))) {
+                    dependents.add(other.getName());
+                }
+            }
+        }
+        if (!dependents.isEmpty()) {
+            throw new IllegalStateException("Cannot reload " + name + ", " + Joiner.on(", ").join(dependents) + " may hold references to it");
+        }
+
+        boolean enabled = plugin.isEnabled();
+        disablePlugin(plugin);
+        if (commandMap != null) {
+            commandMap.unregisterAll(plugin);
+        }
+        for (Permission perm : plugin.getDescription().getPermissions()) {
+            removePermission(perm);
+        }
+
+        synchronized (this) {
+            plugins.remove(plugin);
+            lookupNames.remove(name);
+            pluginFiles.remove(name);
+        }
+        profiler.forget(name);
+
+        Plugin result = loadPlugin(file);
+        if (result == null) {
+            throw new InvalidPluginException("No plugin loader accepts " + file);
+        }
+
+        for (Permission perm : result.getDescription().getPermissions()) {
+            try {
+                addPermission(perm);
+            } catch (IllegalArgumentException ex) {
+                server.getLogger().log(Level.WARNING, "Plugin " + result.getDescription().getFullName() + " tried to register permission '" + perm.getName() + "' but it's already registered", ex);
+            }
+        }
+
+        callOnLoad(result);
+
+        if (enabled) {
+            enablePlugin(result);
+        }
+        return result;
+    }
+
     public void clearPlugins() {
         synchronized (this) {
             disablePlugins();
             plugins.clear();
             lookupNames.clear();
+            pluginFiles.clear();
             HandlerList.unregisterAll();
+            asyncPipeline.shutdownAll();
+            exceptionReporter.reset();
             fileAssociations.clear();
             permissions.clear();
             defaultPerms.get(true).clear();
@@ -468,54 +918,367 @@ public final class SimplePluginManager implements PluginManager {
     /**
      * Calls an event with the given details.
      * <p>
-     * This method only synchronizes when the event is not asynchronous.
+     * Synchronous events fired from the primary thread are dispatched
+     * without taking any lock; the baked handler array is read directly. A
+     * synchronous event fired from any other thread is serialized with other
+     * such events, but never with plugin or permission lookups.
      *
      * @param event Event details
      */
     public void callEvent(Event event) {
         if (event.isAsynchronous()) {
-            if (Thread.holdsLock(this)) {
-                throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from inside synchronized code.");
-            }
-            if (server.isPrimaryThread()) {
-                throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from primary server thread.");
-            }
+            checkAsynchronousCall(event);
+            fireEvent(event);
+        } else if (server.isPrimaryThread()) {
             fireEvent(event);
         } else {
-            synchronized (this) {
+            synchronized (offThreadEventLock) {
                 fireEvent(event);
             }
         }
     }
 
+    /**
+     * Calls several events at once. Consecutive events sharing a handler
+     * list form one batch; each listener is visited once per batch, in
+     * priority order, and handles all of its events before the next listener
+     * runs. Batches are dispatched in the order they were fired.
+     * <p>
+     * Synchronization follows {@link #callEvent(Event)}.
+     *
+     * @param events Events to call, in order
+     */
+    public void callEvents(Event[] events) {
+        Validate.notNull(events, "Events cannot be null");
+        if (events.length == 0) {
+            return;
+        }
+
+        boolean async = events[0] != null && events[0].isAsynchronous();
+        for (Event event : events) {
+            Validate.notNull(event, "Events cannot contain null");
+            Validate.isTrue(event.isAsynchronous() == async, "Synchronous and asynchronous events cannot be called in one batch");
+        }
+
+        if (async) {
+            checkAsynchronousCall(events[0]);
+            fireEvents(events);
+        } else if (server.isPrimaryThread()) {
+            fireEvents(events);
+        } else {
+            synchronized (offThreadEventLock) {
+                fireEvents(events);
+            }
+        }
+    }
+
+    /**
+     * Calls an asynchronous event without blocking the calling thread.
+     * <p>
+     * Priority levels run in order. Listeners within a level run in parallel,
+     * each on the executor of its plugin; see {@link
+     * #setAsyncEventThreads(int)} and {@link #setAsyncListenerTimeout(long,
+     * TimeUnit)}.
+     *
+     * @param event Event details
+     * @return a future completed with the event after all listeners ran
+     */
+    public <T extends Event> ListenableFuture<T> callEventAsync(T event) {
+        Validate.notNull(event, "Event cannot be null");
+        Validate.isTrue(event.isAsynchronous(), event.getEventName() + " is not asynchronous");
+
+        return asyncPipeline.submit(event);
+    }
+
+    /**
+     * Sets the number of threads each plugin may use to handle events called
+     * with {@link #callEventAsync(Event)}. Only affects plugins whose
+     * executor has not been created yet.
+     *
+     * @param threads threads per plugin
+     */
+    public void setAsyncEventThreads(int threads) {
+        Validate.isTrue(threads > 0, "Threads must be positive");
+        asyncPipeline.setThreadsPerPlugin(threads);
+    }
+
+    /**
+     * Gets the number of threads each plugin may use to handle events called
+     * with {@link #callEventAsync(Event)}
+     *
+     * @return threads per plugin
+     */
+    public int getAsyncEventThreads() {
+        return asyncPipeline.getThreadsPerPlugin();
+    }
+
+    /**
+     * Sets how long each listener may take to handle an event called with
+     * {@link #callEventAsync(Event)}, counted from when it starts running.
+     * Listeners that take longer are interrupted and the level finishes
+     * without them. A listener also gets this long to start, while queued
+     * behind other listeners of its plugin.
+     *
+     * @param timeout the timeout
+     * @param unit the unit of the timeout
+     */
+    public void setAsyncListenerTimeout(long timeout, TimeUnit unit) {
+        Validate.isTrue(timeout > 0, "Timeout must be positive");
+        Validate.notNull(unit, "Unit cannot be null");
+        asyncPipeline.setTimeout(timeout, unit);
+    }
+
+    /**
+     * Gets how long each listener may take to handle an event called with
+     * {@link #callEventAsync(Event)}
+     *
+     * @param unit the unit to return the timeout in
+     * @return the timeout
+     */
+    public long getAsyncListenerTimeout(TimeUnit unit) {
+        return asyncPipeline.getTimeout(unit);
+    }
+
+    private void checkAsynchronousCall(Event event) {
+        if (Thread.holdsLock(this)) {
+            throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from inside synchronized code.");
+        }
+        if (server.isPrimaryThread()) {
+            throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from primary server thread.");
+        }
+    }
+
+    private void fireEvents(Event[] events) {
+        // Dispatch runs of consecutive events sharing a handler list, so that
+        // events of different types are still seen in the order they were fired
+        List<Event> all = Arrays.asList(events);
+        int start = 0;
+        HandlerList handlers = events[0].getHandlers();
+        for (int i = 1; i <= events.length; i++) {
+            HandlerList next = (i < events.length) ? events[i].getHandlers() : null;
+            if (next != handlers) {
+                fireBatch(handlers, all.subList(start, i));
+                start = i;
+                handlers = next;
+            }
+        }
+    }
+
+    private void fireBatch(HandlerList handlers, List<Event> batch) {
+        RegisteredListener[] listeners = handlers.getRegisteredListeners();
+
+        for (RegisteredListener registration : listeners) {
+            if (!registration.getPlugin().isEnabled()) {
+                continue;
+            }
+
+            EventFilter filter = registration.getFilter();
+            if (registration.isBatchAware()) {
+                List<Event> slice = batch;
+                if (!filter.isEmpty()) {
+                    slice = new ArrayList<Event>(batch.size());
+                    for (Event event : batch) {
+                        if (filter.matches(event)) {
+                            slice.add(event);
+                        }
+                    }
+                    if (slice.isEmpty()) {
+                        continue;
+                    }
+                }
+
+                boolean watched = watchdog.enter(registration.getPlugin(), registration, slice.get(0));
+                try {
+                    registration.callEvents(Collections.unmodifiableList(slice));
+                } catch (Throwable ex) {
+                    handleBatchException(registration, handlers, slice, ex);
+                } finally {
+                    if (watched) {
+                        watchdog.exit();
+                    }
+                }
+            } else {
+                for (Event event : batch) {
+                    if (!filter.isEmpty() && !filter.matches(event)) {
+                        continue;
+                    }
+
+                    boolean watched = watchdog.enter(registration.getPlugin(), registration, event);
+                    try {
+                        registration.callEvent(event);
+                    } catch (Throwable ex) {
+                        handleEventException(registration, event, ex);
+                    } finally {
+                        if (watched) {
+                            watchdog.exit();
+                        }
+                    }
+                }
+            }
+        }
+
+        if (detectRetainedEvents) {
+            for (Event event : batch) {
+                if (event instanceof ReusableEvent) {
+                    checkRetainedEvent(event, listeners);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reports a failed batch call against the event named by a {@link
+     * BatchEventException}, or against the whole batch when the executor
+     * did not name one.
+     */
+    private void handleBatchException(RegisteredListener registration, HandlerList handlers, List<Event> batch, Throwable ex) {
+        Event failed = (ex instanceof BatchEventException) ? ((BatchEventException) ex).getEvent() : null;
+        if (failed != null) {
+            handleEventException(registration, failed, ex);
+            return;
+        }
+
+        String name = batch.get(0).getEventName();
+        for (Event event : batch) {
+            if (!event.getEventName().equals(name)) {
+                name = "batch of " + batch.size() + " events";
+                break;
+            }
+        }
+        handleEventException(registration, handlers, name, ex);
+    }
+
     private void fireEvent(Event event) {
         HandlerList handlers = event.getHandlers();
-        RegisteredListener[] listeners = handlers.getRegisteredListeners();
+        RegisteredListener[] listeners = handlers.getRegisteredListeners(event);
 
         for (RegisteredListener registration : listeners) {
             if (!registration.getPlugin().isEnabled()) {
                 continue;
             }
 
+            boolean watched = watchdog.enter(registration.getPlugin(), registration, event);
             try {
                 registration.callEvent(event);
-            } catch (AuthorNagException ex) {
-                Plugin plugin = registration.getPlugin();
+            } catch (Throwable ex) {
+                handleEventException(registration, event, ex);
+            } finally {
+                if (watched) {
+                    watchdog.exit();
+                }
+            }
+        }
+
+        if (detectRetainedEvents && event instanceof ReusableEvent) {
+            checkRetainedEvent(event, listeners);
+        }
+    }
+
+    void handleEventException(RegisteredListener registration, Event event, Throwable ex) {
+        handleEventException(registration, event.getHandlers(), event.getEventName(), ex);
+    }
+
+    private void handleEventException(RegisteredListener registration, HandlerList handlers, String eventName, Throwable ex) {
+        if (ex instanceof AuthorNagException) {
+            Plugin plugin = registration.getPlugin();
+
+            if (plugin.isNaggable()) {
+                plugin.setNaggable(false);
 
-                if (plugin.isNaggable()) {
-                    plugin.setNaggable(false);
+                server.getLogger().log(Level.SEVERE, String.format(
+                        "Nag author(s): '%s' of '%s' about the following: %s",
+                        plugin.getDescription().getAuthors(),
+                        plugin.getDescription().getFullName(),
+                        ex.getMessage()
+                        ));
+            }
+        } else if (!exceptionReporter.report(registration.getPlugin(), registration, "Could not pass event " + eventName + " to " + registration.getPlugin().getDescription().getFullName(), ex)) {
+            server.getLogger().log(Level.SEVERE, String.format(
+                    "Unregistering %s of %s from %s after more than %d failures in one second",
+                    registration.getListener() == null ? "a listener" : registration.getListener().getClass().getName(),
+                    registration.getPlugin().getDescription().getFullName(),
+                    eventName,
+                    exceptionReporter.getMaxFailuresPerSecond()
+                    ));
+            handlers.unregister(registration);
+            exceptionReporter.forget(registration);
+        }
+    }
+
+    /**
+     * Looks through the fields of every listener that received a reusable
+     * event, reporting any field that still references the event (directly,
+     * or as an element of an array, collection or map).
+     */
+    private void checkRetainedEvent(Event event, RegisteredListener[] listeners) {
+        for (RegisteredListener registration : listeners) {
+            Listener listener = registration.getListener();
+            if (listener == null) {
+                continue;
+            }
+
+            for (Class<?> clazz = listener.getClass(); clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.getType().isPrimitive() || reportedRetainingFields.contains(field)) {
+                        continue;
+                    }
 
-                    server.getLogger().log(Level.SEVERE, String.format(
-                            "Nag author(s): '%s' of '%s' about the following: %s",
-                            plugin.getDescription().getAuthors(),
-                            plugin.getDescription().getFullName(),
-                            ex.getMessage()
+                    Object value;
+                    try {
+                        field.setAccessible(true);
+                        value = field.get(Modifier.isStatic(field.getModifiers()) ? null : listener);
+                    } catch (Throwable ex) {
+                        continue;
+                    }
+
+                    if (references(value, event) && reportedRetainingFields.add(field)) {
+                        server.getLogger().warning(String.format(
+                            "%s keeps a reference to the reusable event %s in field `%s' of %s; reusable events must not be kept after their handler returns",
+                            registration.getPlugin().getDescription().getFullName(),
+                            event.getEventName(),
+                            field.getName(),
+                            clazz.getName()
                             ));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean references(Object value, Event event) {
+        if (value == event) {
+            return true;
+        }
+        try {
+            if (value instanceof Object[]) {
+                for (Object element : (Object[]) value) {
+                    if (element == event) {
+                        return true;
+                    }
+                }
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    if (element == event) {
+                        return true;
+                    }
+                }
+            } else if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    if (entry.getKey() == event || entry.getValue() == event) {
+                        return true;
+                    }
                 }
-            } catch (Throwable ex) {
-                server.getLogger().log(Level.SEVERE, "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getDescription().getFullName(), ex);
             }
+        } catch (RuntimeException ex) {
+            // Concurrently modified or otherwise unreadable; not worth failing the dispatch over
         }
+        return false;
+    }
+
+    public boolean isListened(Class<? extends Event> event) {
+        Validate.notNull(event, "Event cannot be null");
+
+        return EventTypeRegistry.getHandlerList(event).hasListeners();
     }
 
     public void registerEvents(Listener listener, Plugin plugin) {
@@ -523,10 +1286,12 @@ public final class SimplePluginManager implements PluginManager {
             throw new IllegalPluginAccessException("Plugin attempted to register " + listener + " while not enabled");
         }
 
+        int count = 0;
         for (Map.Entry<Class<? extends Event>, Set<RegisteredListener>> entry : plugin.getPluginLoader().createRegisteredListeners(listener, plugin).entrySet()) {
-            getEventListeners(getRegistrationClass(entry.getKey())).registerAll(entry.getValue());
+            EventTypeRegistry.getHandlerList(entry.getKey()).registerAll(entry.getValue());
+            count += entry.getValue().size();
         }
-
+        profiler.recordListeners(plugin.getDescription().getName(), count);
     }
 
     public void registerEvent(Class<? extends Event> event, Listener listener, EventPriority priority, EventExecutor executor, Plugin plugin) {
@@ -546,6 +1311,23 @@ public final class SimplePluginManager implements PluginManager {
      *     cancelled
      */
     public void registerEvent(Class<? extends Event> event, Listener listener, EventPriority priority, EventExecutor executor, Plugin plugin, boolean ignoreCancelled) {
+        registerEvent(event, listener, priority, executor, plugin, ignoreCancelled, EventFilter.NONE);
+    }
+
+    /**
+     * Registers the given event to the specified listener using a directly
+     * passed EventExecutor, only passing events accepted by the filter
+     *
+     * @param event Event class to register
+     * @param listener PlayerListener to register
+     * @param priority Priority of this event
+     * @param executor EventExecutor to register
+     * @param plugin Plugin to register
+     * @param ignoreCancelled Do not call executor if event was already
+     *     cancelled
+     * @param filter Filter restricting the events passed to the executor
+     */
+    public void registerEvent(Class<? extends Event> event, Listener listener, EventPriority priority, EventExecutor executor, Plugin plugin, boolean ignoreCancelled, EventFilter filter) {
         Validate.notNull(listener, "Listener cannot be null");
         Validate.notNull(priority, "Priority cannot be null");
         Validate.notNull(executor, "Executor cannot be null");
@@ -556,35 +1338,11 @@ public final class SimplePluginManager implements PluginManager {
         }
 
         if (useTimings) {
-            getEventListeners(event).register(new TimedRegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
+            EventTypeRegistry.getHandlerList(event).register(new TimedRegisteredListener(listener, executor, priority, plugin, ignoreCancelled, filter));
         } else {
-            getEventListeners(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
-        }
-    }
-
-    private HandlerList getEventListeners(Class<? extends Event> type) {
-        try {
-            Method method = getRegistrationClass(type).getDeclaredMethod("getHandlerList");
-            method.setAccessible(true);
-            return (HandlerList) method.invoke(null);
-        } catch (Exception e) {
-            throw new IllegalPluginAccessException(e.toString());
-        }
-    }
-
-    private Class<? extends Event> getRegistrationClass(Class<? extends Event> clazz) {
-        try {
-            clazz.getDeclaredMethod("getHandlerList");
-            return clazz;
-        } catch (NoSuchMethodException e) {
-            if (clazz.getSuperclass() != null
-                    && !clazz.getSuperclass().equals(Event.class)
-                    && Event.class.isAssignableFrom(clazz.getSuperclass())) {
-                return getRegistrationClass(clazz.getSuperclass().asSubclass(Event.class));
-            } else {
-                throw new IllegalPluginAccessException("Unable to find handler list for event " + clazz.getName());
-            }
+            EventTypeRegistry.getHandlerList(event).register(new RegisteredListener(listener, executor, priority, plugin, ignoreCancelled, filter));
         }
+        profiler.recordListeners(plugin.getDescription().getName(), 1);
     }
 
     public Permission getPermission(String name) {
@@ -611,7 +1369,11 @@ public final class SimplePluginManager implements PluginManager {
     }
 
     public void removePermission(String name) {
-        permissions.remove(name.toLowerCase());
+        Permission perm = permissions.remove(name.toLowerCase());
+        if (perm != null) {
+            defaultPerms.get(true).remove(perm);
+            defaultPerms.get(false).remove(perm);
+        }
     }
 
     public void recalculatePermissionDefaults(Permission perm) {
@@ -719,12 +1481,48 @@ public final class SimplePluginManager implements PluginManager {
         return useTimings;
     }
 
+    public ExceptionReporter getExceptionReporter() {
+        return exceptionReporter;
+    }
+
+    public ExecutionWatchdog getExecutionWatchdog() {
+        return watchdog;
+    }
+
+    public StartupProfiler getStartupProfiler() {
+        return profiler;
+    }
+
     /**
-     * Sets whether or not per event timing code should be used
+     * Sets whether or not per event timing code should be used. This also
+     * enables or disables recording of {@link Timings}.
      *
      * @param use True if per event timing code should be used
      */
     public void useTimings(boolean use) {
         useTimings = use;
+        Timings.setEnabled(use);
+    }
+
+    /**
+     * Returns whether listeners are checked for keeping references to
+     * {@link ReusableEvent}s after dispatch
+     *
+     * @return True if retained reusable events are reported
+     */
+    public boolean detectRetainedEvents() {
+        return detectRetainedEvents;
+    }
+
+    /**
+     * Sets whether listeners are checked for keeping references to
+     * {@link ReusableEvent}s after dispatch. This is a debugging aid; every
+     * listener's fields are inspected after each reusable event, and each
+     * offending field is reported once.
+     *
+     * @param detect True if retained reusable events should be reported
+     */
+    public void detectRetainedEvents(boolean detect) {
+        detectRetainedEvents = detect;
     }
 }
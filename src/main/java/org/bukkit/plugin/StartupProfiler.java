@@ -0,0 +1,278 @@
+package org.bukkit.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+import org.json.simple.JSONValue;
+
+/**
+ * Records where the time goes while plugins are loaded and enabled.
+ * <p>
+ * Times are recorded per plugin and {@link Phase}, in nanoseconds, together
+ * with how often the phase ran. The number of listeners and commands a
+ * plugin registered is counted as well. Recording stays cheap, so the
+ * profiler is always on; reloading a plugin starts its profile over.
+ */
+public final class StartupProfiler {
+    private static final Comparator<Profile> SLOWEST_FIRST = new Comparator<Profile>() {
+        public int compare(Profile a, Profile b) {
+            long difference = b.getTotalTime() - a.getTotalTime();
+            return difference < 0 ? -1 : difference > 0 ? 1 : a.getPlugin().compareTo(b.getPlugin());
+        }
+    };
+
+    private final ConcurrentMap<String, Profile> profiles = new ConcurrentHashMap<String, Profile>();
+
+    /**
+     * A part of loading or enabling a plugin
+     */
+    public enum Phase {
+        /**
+         * Reading the plugin's description. Recorded by the plugin manager
+         * when loading a folder of plugins, or by the plugin loader when a
+         * single file is loaded.
+         */
+        DESCRIPTION("description", true),
+        /**
+         * Creating the plugin's class loader, including loading and
+         * constructing its main class
+         */
+        CLASS_LOADER("classLoader", true),
+        /**
+         * Defining a class of the plugin. Counted as part of the phase the
+         * class was needed in.
+         */
+        CLASS_LOAD("classLoad", false),
+        /**
+         * Calling the constructor of the plugin's main class. Counted as part
+         * of {@link #CLASS_LOADER}.
+         */
+        CONSTRUCTOR("constructor", false),
+        /**
+         * Calling {@link Plugin#onLoad()}
+         */
+        LOAD("load", true),
+        /**
+         * Calling {@link Plugin#onEnable()}
+         */
+        ENABLE("enable", true);
+
+        private final String key;
+        private final boolean total;
+
+        private Phase(String key, boolean total) {
+            this.key = key;
+            this.total = total;
+        }
+    }
+
+    /**
+     * Everything recorded for one plugin
+     */
+    public static final class Profile {
+        private final String plugin;
+        private final AtomicLong[] times = new AtomicLong[Phase.values().length];
+        private final AtomicInteger[] counts = new AtomicInteger[Phase.values().length];
+        private final AtomicInteger listeners = new AtomicInteger();
+        private final AtomicInteger commands = new AtomicInteger();
+
+        private Profile(String plugin) {
+            this.plugin = plugin;
+            for (int i = 0; i < times.length; i++) {
+                times[i] = new AtomicLong();
+                counts[i] = new AtomicInteger();
+            }
+        }
+
+        /**
+         * Gets the name of the plugin
+         *
+         * @return the plugin name
+         */
+        public String getPlugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets the time spent in a phase
+         *
+         * @param phase the phase
+         * @return the time, in nanoseconds
+         */
+        public long getTime(Phase phase) {
+            return times[phase.ordinal()].get();
+        }
+
+        /**
+         * Gets how often a phase ran, such as the number of classes loaded
+         *
+         * @param phase the phase
+         * @return the count
+         */
+        public int getCount(Phase phase) {
+            return counts[phase.ordinal()].get();
+        }
+
+        /**
+         * Gets the time spent loading and enabling the plugin, without
+         * counting nested phases twice
+         *
+         * @return the time, in nanoseconds
+         */
+        public long getTotalTime() {
+            long total = 0;
+            for (Phase phase : Phase.values()) {
+                if (phase.total) {
+                    total += getTime(phase);
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Gets the number of event listeners the plugin registered
+         *
+         * @return the listener count
+         */
+        public int getListenerCount() {
+            return listeners.get();
+        }
+
+        /**
+         * Gets the number of commands registered for the plugin
+         *
+         * @return the command count
+         */
+        public int getCommandCount() {
+            return commands.get();
+        }
+    }
+
+    private Profile getOrCreate(String plugin) {
+        Profile profile = profiles.get(plugin);
+        if (profile == null) {
+            profile = new Profile(plugin);
+            Profile existing = profiles.putIfAbsent(plugin, profile);
+            if (existing != null) {
+                profile = existing;
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Records one run of a phase
+     *
+     * @param plugin the name of the plugin
+     * @param phase the phase that ran
+     * @param nanos the time it took, in nanoseconds
+     */
+    public void record(String plugin, Phase phase, long nanos) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        Validate.notNull(phase, "Phase cannot be null");
+
+        Profile profile = getOrCreate(plugin);
+        profile.times[phase.ordinal()].addAndGet(nanos);
+        profile.counts[phase.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * Records event listeners registered by a plugin
+     *
+     * @param plugin the name of the plugin
+     * @param count the number of listeners
+     */
+    public void recordListeners(String plugin, int count) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        getOrCreate(plugin).listeners.addAndGet(count);
+    }
+
+    /**
+     * Records commands registered for a plugin
+     *
+     * @param plugin the name of the plugin
+     * @param count the number of commands
+     */
+    public void recordCommands(String plugin, int count) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        getOrCreate(plugin).commands.addAndGet(count);
+    }
+
+    /**
+     * Gets the profile of a plugin
+     *
+     * @param plugin the name of the plugin
+     * @return the profile, or null if nothing was recorded for the plugin
+     */
+    public Profile getProfile(String plugin) {
+        return profiles.get(plugin);
+    }
+
+    /**
+     * Gets the profiles of all plugins, slowest first
+     *
+     * @return the profiles
+     */
+    public List<Profile> getProfiles() {
+        List<Profile> result = new ArrayList<Profile>(profiles.values());
+        Collections.sort(result, SLOWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Discards the profile of a plugin
+     *
+     * @param plugin the name of the plugin
+     */
+    public void forget(String plugin) {
+        profiles.remove(plugin);
+    }
+
+    /**
+     * Discards all profiles
+     */
+    public void reset() {
+        profiles.clear();
+    }
+
+    /**
+     * Writes all profiles as JSON, slowest first. Times are in nanoseconds.
+     *
+     * @param writer the writer to write to
+     * @throws IOException if writing fails
+     */
+    public void writeJson(Writer writer) throws IOException {
+        List<Object> plugins = new ArrayList<Object>();
+        for (Profile profile : getProfiles()) {
+            Map<String, Object> node = new LinkedHashMap<String, Object>();
+            node.put("name", profile.getPlugin());
+            node.put("total", profile.getTotalTime());
+            for (Phase phase : Phase.values()) {
+                Map<String, Object> times = new LinkedHashMap<String, Object>();
+                times.put("time", profile.getTime(phase));
+                times.put("count", profile.getCount(phase));
+                node.put(phase.key, times);
+            }
+            node.put("listeners", profile.getListenerCount());
+            node.put("commands", profile.getCommandCount());
+            plugins.add(node);
+        }
+
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("unit", "ns");
+        document.put("plugins", plugins);
+        JSONValue.writeJSONString(document, writer);
+        writer.flush();
+    }
+}
@@ -1,40 +1,114 @@
 package org.bukkit.plugin;
 
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.bukkit.event.Event;
 import org.bukkit.event.EventException;
+import org.bukkit.event.EventFilter;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.timings.Timing;
+import org.bukkit.timings.Timings;
 
 /**
- * Extends RegisteredListener to include timing information
+ * Extends RegisteredListener to include timing information.
+ * <p>
+ * Each call is recorded in the {@link Timings} of the plugin under the exact
+ * class of the event, including asynchronous calls. The totals kept here are
+ * summed over all event classes.
  */
 public class TimedRegisteredListener extends RegisteredListener {
-    private int count;
-    private long totalTime;
-    private Class<? extends Event> eventClass;
-    private boolean multiple = false;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger sampledCount = new AtomicInteger();
+    private final AtomicLong sampledTime = new AtomicLong();
+    private final ConcurrentMap<Class<? extends Event>, Timing> timings = new ConcurrentHashMap<Class<? extends Event>, Timing>();
+    private volatile Class<? extends Event> eventClass;
+    private volatile boolean multiple = false;
 
     public TimedRegisteredListener(final Listener pluginListener, final EventExecutor eventExecutor, final EventPriority eventPriority, final Plugin registeredPlugin, final boolean listenCancelled) {
         super(pluginListener, eventExecutor, eventPriority, registeredPlugin, listenCancelled);
     }
 
+    public TimedRegisteredListener(final Listener pluginListener, final EventExecutor eventExecutor, final EventPriority eventPriority, final Plugin registeredPlugin, final boolean listenCancelled, final EventFilter filter) {
+        super(pluginListener, eventExecutor, eventPriority, registeredPlugin, listenCancelled, filter);
+    }
+
     @Override
     public void callEvent(Event event) throws EventException {
-        if (event.isAsynchronous()) {
+        count.incrementAndGet();
+        Class<? extends Event> newEventClass = event.getClass();
+        if (this.eventClass != newEventClass) {
+            updateEventClass(newEventClass);
+        }
+
+        Timing timing = getTiming(newEventClass);
+        long time;
+        timing.start();
+        try {
             super.callEvent(event);
-            return;
+        } finally {
+            time = timing.stop();
         }
-        count++;
-        Class<? extends Event> newEventClass = event.getClass();
+        if (time >= 0) {
+            sampledCount.incrementAndGet();
+            sampledTime.addAndGet(time);
+        }
+    }
+
+    /**
+     * Times a whole batch as one call, recorded under the closest shared
+     * class of its events. Each event counts as one call of this listener.
+     */
+    @Override
+    protected void callBatch(List<Event> events) throws EventException {
+        count.addAndGet(events.size());
+        Class<? extends Event> batchClass = null;
+        for (Event event : events) {
+            Class<? extends Event> newEventClass = event.getClass();
+            if (this.eventClass != newEventClass) {
+                updateEventClass(newEventClass);
+            }
+            if (batchClass == null) {
+                batchClass = newEventClass;
+            } else if (batchClass != newEventClass) {
+                batchClass = getCommonSuperclass(newEventClass, batchClass).asSubclass(Event.class);
+            }
+        }
+
+        Timing timing = getTiming(batchClass);
+        long time;
+        timing.start();
+        try {
+            super.callBatch(events);
+        } finally {
+            time = timing.stop();
+        }
+        if (time >= 0) {
+            sampledCount.addAndGet(events.size());
+            sampledTime.addAndGet(time);
+        }
+    }
+
+    private Timing getTiming(Class<? extends Event> eventClass) {
+        Timing timing = timings.get(eventClass);
+        if (timing == null) {
+            timing = Timings.ofListener(getPlugin(), eventClass);
+            timings.put(eventClass, timing);
+        }
+        return timing;
+    }
+
+    private synchronized void updateEventClass(Class<? extends Event> newEventClass) {
         if (this.eventClass == null) {
             this.eventClass = newEventClass;
         } else if (!this.eventClass.equals(newEventClass)) {
             multiple = true;
             this.eventClass = getCommonSuperclass(newEventClass, this.eventClass).asSubclass(Event.class);
         }
-        long start = System.nanoTime();
-        super.callEvent(event);
-        totalTime += System.nanoTime() - start;
     }
 
     private static Class<?> getCommonSuperclass(Class<?> class1, Class<?> class2) {
@@ -48,8 +122,9 @@ public class TimedRegisteredListener extends RegisteredListener {
      * Resets the call count and total time for this listener
      */
     public void reset() {
-        count = 0;
-        totalTime = 0;
+        count.set(0);
+        sampledCount.set(0);
+        sampledTime.set(0);
     }
 
     /**
@@ -58,16 +133,22 @@ public class TimedRegisteredListener extends RegisteredListener {
      * @return Times this listener has been called
      */
     public int getCount() {
-        return count;
+        return count.get();
     }
 
     /**
-     * Gets the total time calls to this listener have taken
+     * Gets the total time calls to this listener have taken. Estimated from
+     * the measured calls when timings are sampled.
      *
      * @return Total time for all calls of this listener
      */
     public long getTotalTime() {
-        return totalTime;
+        long sampled = sampledCount.get();
+        long calls = count.get();
+        if (sampled == 0 || sampled >= calls) {
+            return sampledTime.get();
+        }
+        return (long) (sampledTime.get() * ((double) calls / sampled));
     }
 
     /**
@@ -0,0 +1,558 @@
+package org.bukkit.plugin.java;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.event.EventTypeRegistry;
+import org.bukkit.event.HandlerList;
+
+import com.google.common.base.Joiner;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Finds class loaders of disabled plugins that are never garbage collected
+ * <p>
+ * Every plugin class loader is tracked through a weak reference. A {@link
+ * #check() check} requests garbage collection and reports every class loader
+ * of a disabled plugin that is still reachable as leaked, together with a
+ * chain of references from a retaining root to it.
+ * <p>
+ * Checks run only on demand unless a {@link #setCheckDelay(long, TimeUnit)
+ * check delay} is set. A check requests full garbage collections and walks
+ * the heap while the server keeps running, so automatic checks are meant
+ * for diagnosing leaks rather than for every server.
+ * <p>
+ * Roots are the static fields of the classes found while searching, starting
+ * with the Bukkit API and the classes of enabled plugins, and the live
+ * threads. Reaching a class, or an instance of a class, defined by a leaked
+ * class loader counts as reaching the class loader. The search uses
+ * reflection, so references held in fields it may not access are not
+ * followed, and a leak may be reported without a path. Static fields of
+ * classes that are not initialized yet are never read, as that would run
+ * their static initializers; where the runtime cannot tell whether a class
+ * is initialized, only classes with a reachable instance are searched.
+ */
+public final class ClassLoaderLeakDetector {
+    private static final int MAX_SEARCHED_OBJECTS = 500000;
+    private static final int GC_ATTEMPTS = 3;
+    private static final Object unsafe;
+    private static final Method shouldBeInitialized;
+
+    static {
+        Object instance = null;
+        Method method = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            instance = field.get(null);
+            method = type.getMethod("shouldBeInitialized", Class.class);
+        } catch (Throwable ex) {
+            // Unsupported runtime, only classes known to be initialized are searched
+            instance = null;
+            method = null;
+        }
+        unsafe = instance;
+        shouldBeInitialized = method;
+    }
+
+    private final Logger logger;
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<ClassLoader>();
+    private final Set<Tracked> tracked = Collections.newSetFromMap(new ConcurrentHashMap<Tracked, Boolean>());
+    private final Set<Class<?>> rootClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+    private final AtomicBoolean checkPending = new AtomicBoolean(false);
+    private volatile long checkDelayMillis = 0;
+    private ScheduledExecutorService executor = null;
+
+    private static final class Tracked extends WeakReference<ClassLoader> {
+        private final String plugin;
+        private volatile long releasedAt = -1;
+        private volatile boolean reported = false;
+
+        Tracked(String plugin, ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.plugin = plugin;
+        }
+    }
+
+    /**
+     * A class loader of a disabled plugin that is still reachable
+     */
+    public static final class Leak {
+        private final String plugin;
+        private final long releasedAt;
+        private final List<String> path;
+
+        private Leak(String plugin, long releasedAt, List<String> path) {
+            this.plugin = plugin;
+            this.releasedAt = releasedAt;
+            this.path = path;
+        }
+
+        /**
+         * Gets the name of the plugin the class loader belonged to
+         *
+         * @return the plugin name
+         */
+        public String getPlugin() {
+            return plugin;
+        }
+
+        /**
+         * Gets when the plugin was disabled
+         *
+         * @return the time, in milliseconds since the epoch
+         */
+        public long getDisabledTime() {
+            return releasedAt;
+        }
+
+        /**
+         * Gets the references from the retaining root to the class loader.
+         * The first step names the root.
+         *
+         * @return the steps of the path, or an empty list if none was found
+         */
+        public List<String> getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return path.isEmpty() ? plugin + " (no retaining path found)" : plugin + ": " + Joiner.on(" -> ").join(path);
+        }
+    }
+
+    ClassLoaderLeakDetector(Logger logger) {
+        Validate.notNull(logger, "Logger cannot be null");
+        this.logger = logger;
+
+        rootClasses.add(Bukkit.class);
+        rootClasses.add(ConfigurationSerialization.class);
+        rootClasses.add(HandlerList.class);
+        rootClasses.add(EventTypeRegistry.class);
+    }
+
+    /**
+     * Starts tracking a class loader
+     */
+    void track(String plugin, ClassLoader loader) {
+        expunge();
+        tracked.add(new Tracked(plugin, loader, queue));
+    }
+
+    /**
+     * Marks a class loader as no longer used, and schedules a check if
+     * automatic checks are enabled
+     */
+    void release(ClassLoader loader) {
+        for (Tracked reference : tracked) {
+            if (reference.get() == loader) {
+                reference.releasedAt = System.currentTimeMillis();
+            }
+        }
+        scheduleCheck();
+    }
+
+    private void expunge() {
+        Reference<? extends ClassLoader> reference;
+        while ((reference = queue.poll()) != null) {
+            tracked.remove(reference);
+        }
+    }
+
+    private synchronized void scheduleCheck() {
+        long delay = checkDelayMillis;
+        if (delay <= 0 || !checkPending.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Plugin Leak Detector").setDaemon(true).build());
+        }
+        executor.schedule(new Runnable() {
+            public void run() {
+                checkPending.set(false);
+                try {
+                    for (Leak leak : check(true)) {
+                        logger.warning(String.format(
+                                "Class loader of %s is still reachable %d seconds after it was disabled: %s",
+                                leak.getPlugin(),
+                                TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - leak.getDisabledTime()),
+                                leak.getPath().isEmpty() ? "no retaining path found" : Joiner.on(" -> ").join(leak.getPath())));
+                    }
+                } catch (Throwable ex) {
+                    logger.log(Level.WARNING, "Could not check for leaked plugin class loaders", ex);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Requests garbage collection and reports the class loaders of disabled
+     * plugins that are still reachable
+     * <p>
+     * This searches a large part of the heap and may take a while.
+     *
+     * @return the leaks found
+     */
+    public List<Leak> check() {
+        return check(false);
+    }
+
+    private List<Leak> check(boolean onlyNew) {
+        for (int i = 0; i < GC_ATTEMPTS && hasReleased(onlyNew); i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            expunge();
+        }
+
+        Map<ClassLoader, Tracked> leaked = new IdentityHashMap<ClassLoader, Tracked>();
+        List<ClassLoader> live = new ArrayList<ClassLoader>();
+        for (Tracked reference : tracked) {
+            ClassLoader loader = reference.get();
+            if (loader == null) {
+                continue;
+            }
+            if (reference.releasedAt < 0) {
+                live.add(loader);
+            } else if (!onlyNew || !reference.reported) {
+                leaked.put(loader, reference);
+                reference.reported = true;
+            }
+        }
+        if (leaked.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<ClassLoader, List<String>> paths = new PathFinder(leaked.keySet()).search(live);
+        List<Leak> result = new ArrayList<Leak>(leaked.size());
+        for (Map.Entry<ClassLoader, Tracked> entry : leaked.entrySet()) {
+            List<String> path = paths.get(entry.getKey());
+            result.add(new Leak(entry.getValue().plugin, entry.getValue().releasedAt, path == null ? Collections.<String>emptyList() : path));
+        }
+        return result;
+    }
+
+    private boolean hasReleased(boolean onlyNew) {
+        for (Tracked reference : tracked) {
+            if (reference.releasedAt >= 0 && (!onlyNew || !reference.reported) && reference.get() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a class whose static fields are searched for references to leaked
+     * class loaders
+     *
+     * @param clazz the class
+     */
+    public void addRootClass(Class<?> clazz) {
+        Validate.notNull(clazz, "Class cannot be null");
+        rootClasses.add(clazz);
+    }
+
+    /**
+     * Sets how long after a plugin is disabled its class loader is checked
+     * <p>
+     * Automatic checks are disabled by default.
+     *
+     * @param delay the delay, 0 to disable automatic checks
+     * @param unit the unit of the delay
+     */
+    public void setCheckDelay(long delay, TimeUnit unit) {
+        Validate.isTrue(delay >= 0, "Delay cannot be negative");
+        Validate.notNull(unit, "Unit cannot be null");
+        checkDelayMillis = unit.toMillis(delay);
+    }
+
+    /**
+     * Gets how long after a plugin is disabled its class loader is checked
+     *
+     * @param unit the unit to return the delay in
+     * @return the delay, 0 if automatic checks are disabled
+     */
+    public long getCheckDelay(TimeUnit unit) {
+        return unit.convert(checkDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the number of tracked class loaders that were not collected yet,
+     * including those of enabled plugins
+     *
+     * @return the number of class loaders
+     */
+    public int getTrackedCount() {
+        expunge();
+        int count = 0;
+        for (Tracked reference : tracked) {
+            if (reference.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets whether the static initializer of a class has run, false if this
+     * cannot be told
+     */
+    private static boolean isInitialized(Class<?> clazz) {
+        if (shouldBeInitialized == null) {
+            return false;
+        }
+        try {
+            return !((Boolean) shouldBeInitialized.invoke(unsafe, clazz));
+        } catch (Throwable ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Breadth first search from the roots, remembering how each object was
+     * reached
+     */
+    private final class PathFinder {
+        private final Set<ClassLoader> targets;
+        private final Map<Object, Step> steps = new IdentityHashMap<Object, Step>();
+        private final Set<Class<?>> seenClasses = Collections.newSetFromMap(new IdentityHashMap<Class<?>, Boolean>());
+        private final Map<Class<?>, List<Field>> fields = new IdentityHashMap<Class<?>, List<Field>>();
+        private final LinkedList<Object> pending = new LinkedList<Object>();
+        private final LinkedList<Class<?>> pendingClasses = new LinkedList<Class<?>>();
+        private final Map<ClassLoader, List<String>> paths = new IdentityHashMap<ClassLoader, List<String>>();
+
+        PathFinder(Set<ClassLoader> targets) {
+            this.targets = targets;
+        }
+
+        Map<ClassLoader, List<String>> search(List<ClassLoader> live) {
+            for (Class<?> clazz : rootClasses) {
+                queueStatics(clazz, false);
+            }
+            for (ClassLoader loader : live) {
+                visit(loader, null, "class loader of an enabled plugin");
+            }
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                String name = "thread \"" + thread.getName() + "\"";
+                visit(thread, null, name);
+                ClassLoader context = thread.getContextClassLoader();
+                if (context != null) {
+                    visit(context, thread, "contextClassLoader");
+                }
+            }
+
+            while (paths.size() < targets.size() && steps.size() < MAX_SEARCHED_OBJECTS) {
+                // Static fields are roots, so they are searched first
+                if (!pendingClasses.isEmpty()) {
+                    expandStatics(pendingClasses.removeFirst());
+                } else if (!pending.isEmpty()) {
+                    expand(pending.removeFirst());
+                } else {
+                    break;
+                }
+            }
+            return paths;
+        }
+
+        private void queueStatics(Class<?> clazz, boolean hasInstance) {
+            // Superclasses of an initialized class are initialized as well
+            boolean initialized = hasInstance;
+            for (Class<?> current = clazz; current != null && !seenClasses.contains(current); current = current.getSuperclass()) {
+                if (!initialized && !isInitialized(current)) {
+                    // Reading its static fields would initialize it
+                    continue;
+                }
+                initialized = true;
+                seenClasses.add(current);
+                if (!targets.contains(current.getClassLoader())) {
+                    pendingClasses.add(current);
+                }
+            }
+        }
+
+        private void expandStatics(Class<?> clazz) {
+            for (Field field : getFields(clazz, true)) {
+                try {
+                    visit(field.get(null), null, "static " + clazz.getName() + "." + field.getName());
+                } catch (Throwable ex) {
+                    // Not accessible
+                }
+            }
+        }
+
+        private void visit(Object object, Object parent, String edge) {
+            if (object == null || steps.containsKey(object) || isLeaf(object)) {
+                return;
+            }
+            steps.put(object, new Step(parent, edge));
+
+            ClassLoader target = getTarget(object);
+            if (target != null) {
+                if (!paths.containsKey(target)) {
+                    paths.put(target, getPath(object));
+                }
+                return;
+            }
+
+            if (object instanceof Class) {
+                queueStatics((Class<?>) object, false);
+            } else {
+                queueStatics(object.getClass(), true);
+                pending.add(object);
+            }
+        }
+
+        private ClassLoader getTarget(Object object) {
+            if (object instanceof ClassLoader && targets.contains(object)) {
+                return (ClassLoader) object;
+            }
+            Class<?> clazz = object instanceof Class ? (Class<?>) object : object.getClass();
+            ClassLoader loader = clazz.getClassLoader();
+            return targets.contains(loader) ? loader : null;
+        }
+
+        private boolean isLeaf(Object object) {
+            return object instanceof String || object instanceof Number || object instanceof Boolean || object instanceof Character;
+        }
+
+        private void expand(Object object) {
+            Class<?> clazz = object.getClass();
+            if (clazz.isArray()) {
+                if (!clazz.getComponentType().isPrimitive()) {
+                    int length = Array.getLength(object);
+                    for (int i = 0; i < length; i++) {
+                        visit(Array.get(object, i), object, "[" + i + "]");
+                    }
+                }
+                return;
+            }
+
+            if (clazz.getName().startsWith("java.")) {
+                // Fields of the class library are often inaccessible
+                try {
+                    if (object instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+                            visit(entry.getKey(), object, "[key]");
+                            visit(entry.getValue(), object, "[" + describe(entry.getKey()) + "]");
+                        }
+                        return;
+                    }
+                    if (object instanceof Collection) {
+                        for (Object element : (Collection<?>) object) {
+                            visit(element, object, "[element]");
+                        }
+                        return;
+                    }
+                } catch (RuntimeException ex) {
+                    // Modified while searching
+                    return;
+                }
+            }
+
+            for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+                for (Field field : getFields(current, false)) {
+                    try {
+                        visit(field.get(object), object, field.getName());
+                    } catch (Throwable ex) {
+                        // Not accessible
+                    }
+                }
+            }
+        }
+
+        private List<Field> getFields(Class<?> clazz, boolean statics) {
+            List<Field> result = statics ? null : fields.get(clazz);
+            if (result != null) {
+                return result;
+            }
+
+            result = new ArrayList<Field>();
+            Field[] declared;
+            try {
+                declared = clazz.getDeclaredFields();
+            } catch (Throwable ex) {
+                declared = new Field[0];
+            }
+            for (Field field : declared) {
+                if (Modifier.isStatic(field.getModifiers()) != statics || field.getType().isPrimitive()) {
+                    continue;
+                }
+                if (clazz == Reference.class && (field.getName().equals("referent") || field.getName().equals("discovered"))) {
+                    // Weak and soft references do not retain
+                    continue;
+                }
+                try {
+                    field.setAccessible(true);
+                    result.add(field);
+                } catch (RuntimeException ex) {
+                    // Not accessible
+                }
+            }
+            if (!statics) {
+                fields.put(clazz, result);
+            }
+            return result;
+        }
+
+        private List<String> getPath(Object object) {
+            LinkedList<String> path = new LinkedList<String>();
+            for (Object current = object; current != null;) {
+                Step step = steps.get(current);
+                path.addFirst(step.edge + " (" + (current instanceof Class ? "class " + ((Class<?>) current).getName() : current.getClass().getName()) + ")");
+                current = step.parent;
+            }
+            return Collections.unmodifiableList(new ArrayList<String>(path));
+        }
+
+        private String describe(Object key) {
+            if (key instanceof String) {
+                String string = (String) key;
+                return "\"" + (string.length() > 40 ? string.substring(0, 40) + "..." : string) + "\"";
+            }
+            if (key instanceof Number || key instanceof Boolean || key instanceof Character) {
+                return String.valueOf(key);
+            }
+            return key == null ? "null" : key.getClass().getName();
+        }
+    }
+
+    private static final class Step {
+        private final Object parent;
+        private final String edge;
+
+        Step(Object parent, String edge) {
+            this.parent = parent;
+            this.edge = edge;
+        }
+    }
+}
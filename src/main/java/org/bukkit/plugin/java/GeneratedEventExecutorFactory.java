@@ -0,0 +1,337 @@
+package org.bukkit.plugin.java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.EventExecutorFactory;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Generates one small class per handler method that calls the method
+ * directly, avoiding the boxing and exception wrapping of
+ * {@link Method#invoke(Object, Object...)}.
+ * <p>
+ * The generated class is roughly equivalent to:
+ * <pre>
+ * public final class GeneratedEventExecutor$1 implements EventExecutor {
+ *     public void execute(Listener listener, Event event) throws EventException {
+ *         if (!(event instanceof TheEvent)) return;
+ *         try {
+ *             ((TheListener) listener).onEvent((TheEvent) event);
+ *         } catch (Throwable t) {
+ *             throw new EventException(t);
+ *         }
+ *     }
+ * }
+ * </pre>
+ * Classes are defined in the owning plugin's {@link PluginClassLoader}, so
+ * they are unloaded together with the plugin. Methods that cannot be linked
+ * from such a class (non-public methods or classes, listeners from another
+ * class loader) are declined and the caller falls back to reflection.
+ */
+final class GeneratedEventExecutorFactory implements EventExecutorFactory {
+    private static final String CLASS_PREFIX = "org.bukkit.plugin.java.GeneratedEventExecutor$";
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private static final int CLASS_VERSION = 49; // No stack map frames required
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    public EventExecutor createExecutor(Plugin plugin, Method method, Class<? extends Event> eventClass) throws Exception {
+        final Class<?> owner = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(owner.getModifiers()) || owner.isInterface() || !Modifier.isPublic(eventClass.getModifiers())) {
+            return null;
+        }
+
+        final ClassLoader parent = owner.getClassLoader();
+        if (parent == null) {
+            return null;
+        }
+
+        final String name = CLASS_PREFIX + counter.incrementAndGet();
+        final byte[] bytecode = generate(name.replace('.', '/'), method, eventClass);
+        final Class<?> executorClass;
+        if (plugin instanceof JavaPlugin && ((JavaPlugin) plugin).getClassLoader() instanceof PluginClassLoader) {
+            PluginClassLoader loader = (PluginClassLoader) ((JavaPlugin) plugin).getClassLoader();
+            if (!isVisible(loader, owner) || !isVisible(loader, eventClass)) {
+                return null;
+            }
+            executorClass = loader.defineExecutorClass(name, bytecode);
+        } else {
+            ExecutorClassLoader loader = new ExecutorClassLoader(parent);
+            if (!isVisible(loader, eventClass)) {
+                return null;
+            }
+            executorClass = loader.define(name, bytecode);
+        }
+
+        return executorClass.asSubclass(EventExecutor.class).newInstance();
+    }
+
+    private static boolean isVisible(ClassLoader loader, Class<?> clazz) {
+        try {
+            return Class.forName(clazz.getName(), false, loader) == clazz;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        } catch (LinkageError ex) {
+            return false;
+        }
+    }
+
+    private static byte[] generate(String className, Method method, Class<? extends Event> eventClass) throws IOException {
+        final ConstantPool pool = new ConstantPool();
+        final boolean isStatic = Modifier.isStatic(method.getModifiers());
+        final String owner = internalName(method.getDeclaringClass());
+        final String event = internalName(eventClass);
+
+        final int thisClass = pool.classRef(className);
+        final int superClass = pool.classRef("java/lang/Object");
+        final int executorInterface = pool.classRef(internalName(EventExecutor.class));
+        final int codeName = pool.utf8("Code");
+        final int exceptionsName = pool.utf8("Exceptions");
+
+        final int initName = pool.utf8("<init>");
+        final int initDescriptor = pool.utf8("()V");
+        final int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+
+        final int executeName = pool.utf8("execute");
+        final int executeDescriptor = pool.utf8("(" + descriptor(Listener.class) + descriptor(Event.class) + ")V");
+        final int eventRef = pool.classRef(event);
+        final int ownerRef = pool.classRef(owner);
+        final int handlerRef = pool.methodRef(owner, method.getName(), methodDescriptor(method));
+        final int throwableRef = pool.classRef("java/lang/Throwable");
+        final int exceptionRef = pool.classRef(internalName(EventException.class));
+        final int exceptionInit = pool.methodRef(internalName(EventException.class), "<init>", "(Ljava/lang/Throwable;)V");
+
+        // Constructor: super();
+        ByteArrayOutputStream initCode = new ByteArrayOutputStream();
+        DataOutputStream init = new DataOutputStream(initCode);
+        init.writeByte(0x2A); // aload_0
+        init.writeByte(0xB7); // invokespecial
+        init.writeShort(objectInit);
+        init.writeByte(0xB1); // return
+
+        // execute(Listener, Event)
+        ByteArrayOutputStream executeCode = new ByteArrayOutputStream();
+        DataOutputStream execute = new DataOutputStream(executeCode);
+        execute.writeByte(0x2C); // aload_2
+        execute.writeByte(0xC1); // instanceof
+        execute.writeShort(eventRef);
+        execute.writeByte(0x9A); // ifne +4
+        execute.writeShort(4);
+        execute.writeByte(0xB1); // return
+        final int tryStart = execute.size();
+        if (!isStatic) {
+            execute.writeByte(0x2B); // aload_1
+            execute.writeByte(0xC0); // checkcast
+            execute.writeShort(ownerRef);
+        }
+        execute.writeByte(0x2C); // aload_2
+        execute.writeByte(0xC0); // checkcast
+        execute.writeShort(eventRef);
+        execute.writeByte(isStatic ? 0xB8 : 0xB6); // invokestatic / invokevirtual
+        execute.writeShort(handlerRef);
+        final Class<?> returnType = method.getReturnType();
+        if (returnType == long.class || returnType == double.class) {
+            execute.writeByte(0x58); // pop2
+        } else if (returnType != void.class) {
+            execute.writeByte(0x57); // pop
+        }
+        final int tryEnd = execute.size();
+        execute.writeByte(0xB1); // return
+        final int handler = execute.size();
+        execute.writeByte(0x4E); // astore_3
+        execute.writeByte(0xBB); // new
+        execute.writeShort(exceptionRef);
+        execute.writeByte(0x59); // dup
+        execute.writeByte(0x2D); // aload_3
+        execute.writeByte(0xB7); // invokespecial
+        execute.writeShort(exceptionInit);
+        execute.writeByte(0xBF); // athrow
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+        pool.write(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(executorInterface);
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(initName);
+        out.writeShort(initDescriptor);
+        out.writeShort(1);
+        writeCode(out, codeName, 1, 1, initCode.toByteArray(), null);
+
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(executeName);
+        out.writeShort(executeDescriptor);
+        out.writeShort(2);
+        writeCode(out, codeName, 3, 4, executeCode.toByteArray(), new int[] { tryStart, tryEnd, handler, throwableRef });
+        out.writeShort(exceptionsName);
+        out.writeInt(4);
+        out.writeShort(1);
+        out.writeShort(exceptionRef);
+
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeCode(DataOutputStream out, int codeName, int maxStack, int maxLocals, byte[] code, int[] exceptionEntry) throws IOException {
+        out.writeShort(codeName);
+        out.writeInt(12 + code.length + (exceptionEntry == null ? 0 : 8));
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        if (exceptionEntry == null) {
+            out.writeShort(0);
+        } else {
+            out.writeShort(1);
+            for (int value : exceptionEntry) {
+                out.writeShort(value);
+            }
+        }
+        out.writeShort(0); // code attributes
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static String methodDescriptor(Method method) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Class<?> parameter : method.getParameterTypes()) {
+            builder.append(descriptor(parameter));
+        }
+        return builder.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    private static String descriptor(Class<?> clazz) {
+        if (clazz.isArray()) {
+            return internalName(clazz);
+        } else if (!clazz.isPrimitive()) {
+            return "L" + internalName(clazz) + ";";
+        } else if (clazz == void.class) {
+            return "V";
+        } else if (clazz == boolean.class) {
+            return "Z";
+        } else if (clazz == byte.class) {
+            return "B";
+        } else if (clazz == char.class) {
+            return "C";
+        } else if (clazz == short.class) {
+            return "S";
+        } else if (clazz == int.class) {
+            return "I";
+        } else if (clazz == long.class) {
+            return "J";
+        } else if (clazz == float.class) {
+            return "F";
+        } else {
+            return "D";
+        }
+    }
+
+    /**
+     * Minimal class file constant pool, de-duplicating entries
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<String, Integer>();
+        private int count = 1;
+
+        int utf8(String value) throws IOException {
+            Integer index = entries.get("U" + value);
+            if (index == null) {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        int classRef(String internalName) throws IOException {
+            Integer index = entries.get("C" + internalName);
+            if (index == null) {
+                int name = utf8(internalName);
+                out.writeByte(CLASS);
+                out.writeShort(name);
+                index = add("C" + internalName);
+            }
+            return index;
+        }
+
+        int methodRef(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + '.' + name + descriptor;
+            Integer index = entries.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                Integer nameAndType = entries.get("N" + name + descriptor);
+                if (nameAndType == null) {
+                    out.writeByte(NAME_AND_TYPE);
+                    out.writeShort(nameIndex);
+                    out.writeShort(descriptorIndex);
+                    nameAndType = add("N" + name + descriptor);
+                }
+                out.writeByte(METHOD_REF);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = count++;
+            entries.put(key, index);
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+
+    /**
+     * Holds executors for listeners that are not owned by a
+     * {@link PluginClassLoader}
+     */
+    private static final class ExecutorClassLoader extends ClassLoader {
+        ExecutorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytecode) {
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
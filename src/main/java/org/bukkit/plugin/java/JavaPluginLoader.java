@@ -4,14 +4,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
@@ -24,19 +28,25 @@ import org.bukkit.Warning.WarningState;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.event.Event;
-import org.bukkit.event.EventException;
+import org.bukkit.event.EventFilter;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventTypeRegistry;
 import org.bukkit.event.Listener;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.AuthorNagException;
+import org.bukkit.plugin.DescribedPluginLoader;
 import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.EventExecutorFactory;
 import org.bukkit.plugin.InvalidDescriptionException;
 import org.bukkit.plugin.InvalidPluginException;
+import org.bukkit.plugin.LazyPlugin;
+import org.bukkit.plugin.ParallelPluginLoader;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginActivation;
 import org.bukkit.plugin.PluginDescriptionFile;
-import org.bukkit.plugin.PluginLoader;
 import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.StartupProfiler;
 import org.bukkit.plugin.TimedRegisteredListener;
 import org.bukkit.plugin.UnknownDependencyException;
 import org.yaml.snakeyaml.error.YAMLException;
@@ -44,11 +54,22 @@ import org.yaml.snakeyaml.error.YAMLException;
 /**
  * Represents a Java plugin loader, allowing plugins in the form of .jar
  */
-public final class JavaPluginLoader implements PluginLoader {
+public final class JavaPluginLoader implements ParallelPluginLoader, DescribedPluginLoader {
+    private static final int MISSING_CLASSES_LIMIT = 1024;
     final Server server;
     private final Pattern[] fileFilters = new Pattern[] { Pattern.compile("\\.jar$"), };
-    private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
-    private final Map<String, PluginClassLoader> loaders = new LinkedHashMap<String, PluginClassLoader>();
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+    private final Map<String, PluginClassLoader> loaders = new ConcurrentHashMap<String, PluginClassLoader>();
+    private final Map<String, List<PluginClassLoader>> packageLoaders = new ConcurrentHashMap<String, List<PluginClassLoader>>();
+    private final Set<String> missingClasses = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MISSING_CLASSES_LIMIT;
+        }
+    });
+    private volatile int loaderGeneration = 0;
+    private EventExecutorFactory executorFactory = new GeneratedEventExecutorFactory();
+    private final ClassLoaderLeakDetector leakDetector;
 
     /**
      * This class was not meant to be constructed explicitly
@@ -57,6 +78,7 @@ public final class JavaPluginLoader implements PluginLoader {
     public JavaPluginLoader(Server instance) {
         Validate.notNull(instance, "Server cannot be null");
         server = instance;
+        leakDetector = new ClassLoaderLeakDetector(instance.getLogger());
     }
 
     public Plugin loadPlugin(final File file) throws InvalidPluginException {
@@ -67,11 +89,24 @@ public final class JavaPluginLoader implements PluginLoader {
         }
 
         final PluginDescriptionFile description;
+        long start = System.nanoTime();
         try {
             description = getPluginDescription(file);
         } catch (InvalidDescriptionException ex) {
             throw new InvalidPluginException(ex);
         }
+        getProfiler().record(description.getName(), StartupProfiler.Phase.DESCRIPTION, System.nanoTime() - start);
+
+        return loadPlugin(file, description);
+    }
+
+    public Plugin loadPlugin(final File file, final PluginDescriptionFile description) throws InvalidPluginException {
+        Validate.notNull(file, "File cannot be null");
+        Validate.notNull(description, "Description cannot be null");
+
+        if (!file.exists()) {
+            throw new InvalidPluginException(new FileNotFoundException(file.getPath() + " does not exist"));
+        }
 
         final File parentFile = file.getParentFile();
         final File dataFolder = new File(parentFile, description.getName());
@@ -111,18 +146,38 @@ public final class JavaPluginLoader implements PluginLoader {
             ));
         }
 
+        if (description.getActivation() == PluginActivation.LAZY) {
+            return new LazyJavaPlugin(this, description, dataFolder, file);
+        }
+
+        return createPlugin(description, dataFolder, file);
+    }
+
+    /**
+     * Creates the class loader and main class of a plugin
+     */
+    JavaPlugin createPlugin(final PluginDescriptionFile description, final File dataFolder, final File file) throws InvalidPluginException {
         for (final String pluginName : description.getDepend()) {
             if (loaders == null) {
                 throw new UnknownDependencyException(pluginName);
             }
             PluginClassLoader current = loaders.get(pluginName);
 
+            if (current == null) {
+                // A lazy dependency is activated before its dependents
+                Plugin dependency = server.getPluginManager().getPlugin(pluginName);
+                if (dependency instanceof LazyPlugin && server.getPluginManager().activatePlugin(dependency) != null) {
+                    current = loaders.get(pluginName);
+                }
+            }
+
             if (current == null) {
                 throw new UnknownDependencyException(pluginName);
             }
         }
 
         final PluginClassLoader loader;
+        long start = System.nanoTime();
         try {
             loader = new PluginClassLoader(this, getClass().getClassLoader(), description, dataFolder, file);
         } catch (InvalidPluginException ex) {
@@ -130,8 +185,10 @@ public final class JavaPluginLoader implements PluginLoader {
         } catch (Throwable ex) {
             throw new InvalidPluginException(ex);
         }
+        getProfiler().record(description.getName(), StartupProfiler.Phase.CLASS_LOADER, System.nanoTime() - start);
 
-        loaders.put(description.getName(), loader);
+        addLoader(description.getName(), loader);
+        leakDetector.track(description.getName(), loader);
 
         return loader.plugin;
     }
@@ -178,14 +235,31 @@ public final class JavaPluginLoader implements PluginLoader {
         return fileFilters.clone();
     }
 
+    StartupProfiler getProfiler() {
+        return server.getPluginManager().getStartupProfiler();
+    }
+
     Class<?> getClassByName(final String name) {
         Class<?> cachedClass = classes.get(name);
 
         if (cachedClass != null) {
             return cachedClass;
-        } else {
-            for (String current : loaders.keySet()) {
-                PluginClassLoader loader = loaders.get(current);
+        }
+
+        int generation = loaderGeneration;
+        synchronized (missingClasses) {
+            if (missingClasses.contains(name)) {
+                return null;
+            }
+        }
+
+        int index = name.lastIndexOf('.');
+        List<PluginClassLoader> candidates = packageLoaders.get(index == -1 ? "" : name.substring(0, index));
+        if (candidates != null) {
+            for (PluginClassLoader loader : candidates) {
+                if (!loader.hasClass(name)) {
+                    continue;
+                }
 
                 try {
                     cachedClass = loader.findClass(name, false);
@@ -195,12 +269,68 @@ public final class JavaPluginLoader implements PluginLoader {
                 }
             }
         }
+
+        // Jars from a manifest Class-Path are not indexed, so ask their loaders before recording a miss
+        for (PluginClassLoader loader : loaders.values()) {
+            if (!loader.hasManifestClassPath() || (candidates != null && candidates.contains(loader)) || !loader.hasClass(name)) {
+                continue;
+            }
+
+            try {
+                cachedClass = loader.findClass(name, false);
+            } catch (ClassNotFoundException cnfe) {}
+            if (cachedClass != null) {
+                return cachedClass;
+            }
+        }
+
+        synchronized (missingClasses) {
+            // Not cached if a loader was added while looking
+            if (generation == loaderGeneration) {
+                missingClasses.add(name);
+            }
+        }
         return null;
     }
 
+    synchronized void addLoader(String name, PluginClassLoader loader) {
+        loaders.put(name, loader);
+        for (String pkg : loader.getPackageNames()) {
+            List<PluginClassLoader> list = packageLoaders.get(pkg);
+            if (list == null) {
+                list = new CopyOnWriteArrayList<PluginClassLoader>();
+                packageLoaders.put(pkg, list);
+            }
+            list.add(loader);
+        }
+        // The new jar may contain classes that were missing before
+        synchronized (missingClasses) {
+            loaderGeneration++;
+            missingClasses.clear();
+        }
+    }
+
+    private synchronized void removeLoader(String name) {
+        PluginClassLoader loader = loaders.remove(name);
+        if (loader == null) {
+            return;
+        }
+        for (String pkg : loader.getPackageNames()) {
+            List<PluginClassLoader> list = packageLoaders.get(pkg);
+            if (list != null) {
+                list.remove(loader);
+                if (list.isEmpty()) {
+                    packageLoaders.remove(pkg);
+                }
+            }
+        }
+    }
+
     void setClass(final String name, final Class<?> clazz) {
-        if (!classes.containsKey(name)) {
-            classes.put(name, clazz);
+        if (classes.putIfAbsent(name, clazz) == null) {
+            synchronized (missingClasses) {
+                missingClasses.remove(name);
+            }
 
             if (ConfigurationSerializable.class.isAssignableFrom(clazz)) {
                 Class<? extends ConfigurationSerializable> serializable = clazz.asSubclass(ConfigurationSerializable.class);
@@ -253,7 +383,6 @@ public final class JavaPluginLoader implements PluginLoader {
                 continue;
             }
             final Class<? extends Event> eventClass = checkClass.asSubclass(Event.class);
-            method.setAccessible(true);
             Set<RegisteredListener> eventSet = ret.get(eventClass);
             if (eventSet == null) {
                 eventSet = new HashSet<RegisteredListener>();
@@ -283,56 +412,127 @@ public final class JavaPluginLoader implements PluginLoader {
                 }
             }
 
-            EventExecutor executor = new EventExecutor() {
-                public void execute(Listener listener, Event event) throws EventException {
-                    try {
-                        if (!eventClass.isAssignableFrom(event.getClass())) {
-                            return;
-                        }
-                        method.invoke(listener, event);
-                    } catch (InvocationTargetException ex) {
-                        throw new EventException(ex.getCause());
-                    } catch (Throwable t) {
-                        throw new EventException(t);
-                    }
-                }
-            };
+            EventExecutor executor = createExecutor(plugin, method, eventClass);
+            EventFilter filter = EventFilter.of(eh);
             if (useTimings) {
-                eventSet.add(new TimedRegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled()));
+                eventSet.add(new TimedRegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled(), filter));
             } else {
-                eventSet.add(new RegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled()));
+                eventSet.add(new RegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled(), filter));
             }
         }
         return ret;
     }
 
+    private EventExecutor createExecutor(Plugin plugin, Method method, Class<? extends Event> eventClass) {
+        EventExecutorFactory factory = executorFactory;
+        if (factory != null) {
+            try {
+                EventExecutor executor = factory.createExecutor(plugin, method, eventClass);
+                if (executor != null) {
+                    return executor;
+                }
+            } catch (Throwable ex) {
+                plugin.getLogger().log(Level.WARNING, "Could not create an executor for \"" + method.toGenericString() + "\", falling back to reflection", ex);
+            }
+        }
+        return new ReflectiveEventExecutor(method, eventClass);
+    }
+
+    /**
+     * Gets the detector reporting class loaders of disabled plugins that are
+     * never garbage collected
+     *
+     * @return the leak detector
+     */
+    public ClassLoaderLeakDetector getLeakDetector() {
+        return leakDetector;
+    }
+
+    /**
+     * Gets the factory used to create executors for annotated event handler
+     * methods
+     *
+     * @return the executor factory, or null if reflection is always used
+     */
+    public EventExecutorFactory getEventExecutorFactory() {
+        return executorFactory;
+    }
+
+    /**
+     * Sets the factory used to create executors for annotated event handler
+     * methods. Methods the factory declines, or fails to create an executor
+     * for, are called through reflection.
+     * <p>
+     * Only affects listeners registered after this call.
+     *
+     * @param factory the executor factory, or null to always use reflection
+     */
+    public void setEventExecutorFactory(EventExecutorFactory factory) {
+        executorFactory = factory;
+    }
+
     public void enablePlugin(final Plugin plugin) {
-        Validate.isTrue(plugin instanceof JavaPlugin, "Plugin is not associated with this PluginLoader");
+        if (enable(plugin) && !(plugin instanceof LazyJavaPlugin)) {
+            // Perhaps abort here, rather than continue going, but as it stands,
+            // an abort is not possible the way it's currently written
+            server.getPluginManager().callEvent(new PluginEnableEvent(plugin));
+        }
+    }
 
-        if (!plugin.isEnabled()) {
-            plugin.getLogger().info("Enabling " + plugin.getDescription().getFullName());
+    public void enablePluginInParallel(final Plugin plugin) {
+        enable(plugin);
+    }
 
-            JavaPlugin jPlugin = (JavaPlugin) plugin;
+    public void completeEnable(final Plugin plugin) {
+        Validate.isTrue(plugin instanceof JavaPlugin, "Plugin is not associated with this PluginLoader");
 
-            String pluginName = jPlugin.getDescription().getName();
+        server.getPluginManager().callEvent(new PluginEnableEvent(plugin));
+    }
 
-            if (!loaders.containsKey(pluginName)) {
-                loaders.put(pluginName, (PluginClassLoader) jPlugin.getClassLoader());
+    private boolean enable(final Plugin plugin) {
+        if (plugin instanceof LazyJavaPlugin) {
+            LazyJavaPlugin lazy = (LazyJavaPlugin) plugin;
+            if (lazy.isEnabled()) {
+                return false;
             }
+            lazy.getLogger().info("Enabling " + plugin.getDescription().getFullName() + " on first use");
+            lazy.setEnabled(true);
+            return true;
+        }
 
-            try {
-                jPlugin.setEnabled(true);
-            } catch (Throwable ex) {
-                server.getLogger().log(Level.SEVERE, "Error occurred while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
-            }
+        Validate.isTrue(plugin instanceof JavaPlugin, "Plugin is not associated with this PluginLoader");
 
-            // Perhaps abort here, rather than continue going, but as it stands,
-            // an abort is not possible the way it's currently written
-            server.getPluginManager().callEvent(new PluginEnableEvent(plugin));
+        if (plugin.isEnabled()) {
+            return false;
+        }
+
+        plugin.getLogger().info("Enabling " + plugin.getDescription().getFullName());
+
+        JavaPlugin jPlugin = (JavaPlugin) plugin;
+
+        String pluginName = jPlugin.getDescription().getName();
+
+        if (!loaders.containsKey(pluginName)) {
+            addLoader(pluginName, (PluginClassLoader) jPlugin.getClassLoader());
         }
+
+        long start = System.nanoTime();
+        try {
+            jPlugin.setEnabled(true);
+        } catch (Throwable ex) {
+            server.getLogger().log(Level.SEVERE, "Error occurred while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
+        }
+        getProfiler().record(pluginName, StartupProfiler.Phase.ENABLE, System.nanoTime() - start);
+        return true;
     }
 
     public void disablePlugin(Plugin plugin) {
+        if (plugin instanceof LazyJavaPlugin) {
+            // Never activated, so there is nothing to tear down
+            ((LazyJavaPlugin) plugin).setEnabled(false);
+            return;
+        }
+
         Validate.isTrue(plugin instanceof JavaPlugin, "Plugin is not associated with this PluginLoader");
 
         if (plugin.isEnabled()) {
@@ -350,7 +550,7 @@ public final class JavaPluginLoader implements PluginLoader {
                 server.getLogger().log(Level.SEVERE, "Error occurred while disabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
             }
 
-            loaders.remove(jPlugin.getDescription().getName());
+            removeLoader(jPlugin.getDescription().getName());
 
             if (cloader instanceof PluginClassLoader) {
                 PluginClassLoader loader = (PluginClassLoader) cloader;
@@ -359,6 +559,8 @@ public final class JavaPluginLoader implements PluginLoader {
                 for (String name : names) {
                     removeClass(name);
                 }
+                EventTypeRegistry.invalidate(loader);
+                leakDetector.release(loader);
             }
         }
     }
@@ -0,0 +1,169 @@
+package org.bukkit.plugin.java;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.bukkit.Server;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.plugin.InvalidPluginException;
+import org.bukkit.plugin.LazyPlugin;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginBase;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginLoader;
+import org.bukkit.plugin.PluginLogger;
+
+import com.avaje.ebean.EbeanServer;
+
+/**
+ * Stands in for a {@link JavaPlugin} with lazy activation, without creating
+ * its class loader
+ * <p>
+ * Methods that need the plugin itself activate it first.
+ */
+final class LazyJavaPlugin extends PluginBase implements LazyPlugin {
+    private final JavaPluginLoader loader;
+    private final PluginDescriptionFile description;
+    private final File dataFolder;
+    private final File file;
+    private volatile JavaPlugin plugin = null;
+    private volatile boolean enabled = false;
+    private boolean naggable = true;
+    private Logger logger = null;
+
+    LazyJavaPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        this.loader = loader;
+        this.description = description;
+        this.dataFolder = dataFolder;
+        this.file = file;
+    }
+
+    public Plugin load() throws InvalidPluginException {
+        synchronized (this) {
+            if (plugin == null) {
+                plugin = loader.createPlugin(description, dataFolder, file);
+            }
+            return plugin;
+        }
+    }
+
+    public Plugin getLoadedPlugin() {
+        return plugin;
+    }
+
+    private Plugin activate() {
+        Plugin active = getServer().getPluginManager().activatePlugin(this);
+        if (active == null) {
+            throw new IllegalStateException("Could not activate " + description.getFullName());
+        }
+        return active;
+    }
+
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        Plugin active = plugin;
+        return active == null ? enabled : active.isEnabled();
+    }
+
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    public PluginDescriptionFile getDescription() {
+        return description;
+    }
+
+    public FileConfiguration getConfig() {
+        return activate().getConfig();
+    }
+
+    public InputStream getResource(String filename) {
+        return activate().getResource(filename);
+    }
+
+    public void saveConfig() {
+        activate().saveConfig();
+    }
+
+    public void saveDefaultConfig() {
+        activate().saveDefaultConfig();
+    }
+
+    public void saveResource(String resourcePath, boolean replace) {
+        activate().saveResource(resourcePath, replace);
+    }
+
+    public void reloadConfig() {
+        activate().reloadConfig();
+    }
+
+    public PluginLoader getPluginLoader() {
+        return loader;
+    }
+
+    public Server getServer() {
+        return loader.server;
+    }
+
+    public void onDisable() {}
+
+    public void onLoad() {}
+
+    public void onEnable() {}
+
+    public boolean isNaggable() {
+        return naggable;
+    }
+
+    public void setNaggable(boolean canNag) {
+        this.naggable = canNag;
+    }
+
+    public EbeanServer getDatabase() {
+        return activate().getDatabase();
+    }
+
+    public ChunkGenerator getDefaultWorldGenerator(String worldName, String id) {
+        return activate().getDefaultWorldGenerator(worldName, id);
+    }
+
+    public synchronized Logger getLogger() {
+        Plugin active = plugin;
+        if (active != null) {
+            return active.getLogger();
+        }
+        if (logger == null) {
+            logger = new PluginLogger(this);
+        }
+        return logger;
+    }
+
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        Plugin active = activate();
+        PluginCommand target = active instanceof JavaPlugin ? ((JavaPlugin) active).getCommand(command.getName()) : null;
+        if (target == null) {
+            return false;
+        }
+        target.execute(sender, label, args);
+        return true;
+    }
+
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        // Tab completion does not count as use
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return description.getFullName();
+    }
+}
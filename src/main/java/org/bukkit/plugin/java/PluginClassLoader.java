@@ -1,23 +1,53 @@
 package org.bukkit.plugin.java;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.InvalidPluginException;
 import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.StartupProfiler;
 
 /**
  * A ClassLoader for plugins, to allow shared classes across multiple plugins
+ * <p>
+ * Classes may be loaded from several threads at once. Each class name is
+ * defined under the class loading lock the JVM uses for it, so threads
+ * loading different classes do not wait for each other.
  */
 final class PluginClassLoader extends URLClassLoader {
+    private static final boolean parallelCapable;
+
+    static {
+        boolean registered = false;
+        try {
+            // Java 7 and later, called reflectively to still run on Java 6
+            Method method = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+            method.setAccessible(true);
+            registered = (Boolean) method.invoke(null);
+        } catch (Exception ex) {
+            // Loading stays serialized per class loader
+        }
+        parallelCapable = registered;
+    }
+
     private final JavaPluginLoader loader;
-    private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+    private final Set<String> packages;
+    private final boolean manifestClassPath;
     private final PluginDescriptionFile description;
     private final File dataFolder;
     private final File file;
@@ -34,6 +64,23 @@ final class PluginClassLoader extends URLClassLoader {
         this.dataFolder = dataFolder;
         this.file = file;
 
+        JarFile jar = null;
+        try {
+            jar = new JarFile(file);
+            this.packages = readPackages(jar);
+            Manifest manifest = jar.getManifest();
+            this.manifestClassPath = manifest != null && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null;
+        } catch (IOException ex) {
+            throw new InvalidPluginException(ex);
+        } finally {
+            if (jar != null) {
+                try {
+                    jar.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+
         try {
             Class<?> jarClass;
             try {
@@ -49,7 +96,9 @@ final class PluginClassLoader extends URLClassLoader {
                 throw new InvalidPluginException("main class `" + description.getMain() + "' does not extend JavaPlugin", ex);
             }
 
+            long start = System.nanoTime();
             plugin = pluginClass.newInstance();
+            loader.getProfiler().record(description.getName(), StartupProfiler.Phase.CONSTRUCTOR, System.nanoTime() - start);
         } catch (IllegalAccessException ex) {
             throw new InvalidPluginException("No public constructor", ex);
         } catch (InstantiationException ex) {
@@ -57,6 +106,18 @@ final class PluginClassLoader extends URLClassLoader {
         }
     }
 
+    private static Set<String> readPackages(JarFile jar) {
+        Set<String> packages = new HashSet<String>();
+        for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+            String entry = entries.nextElement().getName();
+            if (entry.endsWith(".class")) {
+                int index = entry.lastIndexOf('/');
+                packages.add(index == -1 ? "" : entry.substring(0, index).replace('/', '.'));
+            }
+        }
+        return packages;
+    }
+
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
         return findClass(name, true);
@@ -71,26 +132,70 @@ final class PluginClassLoader extends URLClassLoader {
         if (result == null) {
             if (checkGlobal) {
                 result = loader.getClassByName(name);
+
+                if (result != null) {
+                    classes.put(name, result);
+                    return result;
+                }
             }
 
-            if (result == null) {
-                result = super.findClass(name);
+            synchronized (getLock(name)) {
+                result = classes.get(name);
 
-                if (result != null) {
+                if (result == null) {
+                    long start = System.nanoTime();
+                    result = super.findClass(name);
+                    loader.getProfiler().record(description.getName(), StartupProfiler.Phase.CLASS_LOAD, System.nanoTime() - start);
                     loader.setClass(name, result);
+                    classes.put(name, result);
                 }
             }
-
-            classes.put(name, result);
         }
 
         return result;
     }
 
+    /**
+     * Gets the lock loadClass holds for the given name, so lookups from
+     * other plugins define classes under the same lock
+     */
+    private Object getLock(String name) {
+        // getClassLoadingLock is only called when it exists, on Java 7 and later
+        return parallelCapable ? getClassLoadingLock(name) : this;
+    }
+
+    /**
+     * Checks whether this loader has loaded, or its jar contains, a class,
+     * without throwing for a missing class
+     */
+    boolean hasClass(String name) {
+        return classes.containsKey(name) || findResource(name.replace('.', '/').concat(".class")) != null;
+    }
+
+    Class<?> defineExecutorClass(String name, byte[] bytecode) {
+        return defineClass(name, bytecode, 0, bytecode.length);
+    }
+
     Set<String> getClasses() {
         return classes.keySet();
     }
 
+    /**
+     * Gets the packages of the classes in the plugin jar itself. Jars listed
+     * in the manifest Class-Path are not included.
+     */
+    Set<String> getPackageNames() {
+        return packages;
+    }
+
+    /**
+     * Gets whether the manifest of the plugin jar has a Class-Path, so this
+     * loader may find classes outside of {@link #getPackageNames()}
+     */
+    boolean hasManifestClassPath() {
+        return manifestClassPath;
+    }
+
     synchronized void initialize(JavaPlugin javaPlugin) {
         Validate.notNull(javaPlugin, "Initializing plugin cannot be null");
         Validate.isTrue(javaPlugin.getClass().getClassLoader() == this, "Cannot initialize plugin outside of this class loader");
@@ -0,0 +1,249 @@
+package org.bukkit.timings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A named section of code whose execution time is recorded.
+ * <p>
+ * Timings form a tree, see {@link Timings} for its layout. Code is measured
+ * by calling {@link #start()} and {@link #stop()} around it:
+ * <pre>
+ * timing.start();
+ * try {
+ *     ...
+ * } finally {
+ *     timing.stop();
+ * }
+ * </pre>
+ * Timings started while another is running on the same thread are nested
+ * within it, and their time is subtracted from the self time of the outer
+ * timing. All methods are thread safe.
+ */
+public final class Timing {
+    private final String name;
+    private final Timing parent;
+    private final Timing aggregate;
+    private final ConcurrentMap<String, Timing> children = new ConcurrentHashMap<String, Timing>();
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sampledCount = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong selfTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+    private final TimingHistogram histogram = new TimingHistogram();
+
+    Timing(String name, Timing parent, Timing aggregate) {
+        this.name = name;
+        this.parent = parent;
+        this.aggregate = aggregate;
+    }
+
+    /**
+     * Gets the name of this timing, unique among its siblings
+     *
+     * @return Name of this timing
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the timing this timing is a child of
+     *
+     * @return Parent timing, or null for the root
+     */
+    public Timing getParent() {
+        return parent;
+    }
+
+    /**
+     * Gets the full path of this timing, its name and the names of its
+     * parents separated by slashes
+     *
+     * @return Path of this timing
+     */
+    public String getPath() {
+        if (parent == null || parent.parent == null) {
+            return name;
+        }
+        return parent.getPath() + "/" + name;
+    }
+
+    /**
+     * Gets or creates the child timing with the given name
+     *
+     * @param name Name of the child
+     * @return The child timing
+     */
+    public Timing getChild(String name) {
+        return getChild(name, null);
+    }
+
+    Timing getChild(String name, Timing aggregate) {
+        Validate.notNull(name, "Name cannot be null");
+
+        Timing child = children.get(name);
+        if (child == null) {
+            child = new Timing(name, this, aggregate);
+            Timing existing = children.putIfAbsent(name, child);
+            if (existing != null) {
+                child = existing;
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Gets the current children of this timing
+     *
+     * @return Unmodifiable collection of children
+     */
+    public Collection<Timing> getChildren() {
+        return Collections.unmodifiableCollection(new ArrayList<Timing>(children.values()));
+    }
+
+    /**
+     * Starts measuring this timing on the current thread.
+     * <p>
+     * Does nothing while timings are disabled. Every call must be followed
+     * by a call to {@link #stop()} on the same thread.
+     */
+    public void start() {
+        if (!Timings.isEnabled()) {
+            return;
+        }
+        long call = count.getAndIncrement();
+        if (aggregate != null) {
+            aggregate.count.incrementAndGet();
+        }
+        Timings.getStack().push(this, call);
+    }
+
+    /**
+     * Stops measuring this timing on the current thread
+     *
+     * @return Nanoseconds since the matching {@link #start()}, or -1 if
+     *     this call was not sampled
+     */
+    public long stop() {
+        return Timings.getStack().pop(this);
+    }
+
+    void record(long time, long self) {
+        sampledCount.incrementAndGet();
+        totalTime.addAndGet(time);
+        selfTime.addAndGet(self);
+        long max;
+        while (time > (max = maxTime.get()) && !maxTime.compareAndSet(max, time));
+        histogram.add(time);
+        if (aggregate != null) {
+            aggregate.record(time, self);
+        }
+    }
+
+    /**
+     * Resets this timing and all of its children
+     */
+    public void reset() {
+        count.set(0);
+        sampledCount.set(0);
+        totalTime.set(0);
+        selfTime.set(0);
+        maxTime.set(0);
+        histogram.reset();
+        for (Timing child : children.values()) {
+            child.reset();
+        }
+    }
+
+    /**
+     * Gets how many times this timing was started
+     *
+     * @return Number of calls
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets how many calls were measured. This is lower than
+     * {@link #getCount()} when sampling is enabled.
+     *
+     * @return Number of measured calls
+     */
+    public long getSampledCount() {
+        return sampledCount.get();
+    }
+
+    /**
+     * Gets the total time spent in this timing, in nanoseconds, including
+     * nested timings. Estimated from the measured calls when sampling.
+     *
+     * @return Total time in nanoseconds
+     */
+    public long getTotalTime() {
+        return estimate(totalTime.get());
+    }
+
+    /**
+     * Gets the time spent in this timing, in nanoseconds, excluding nested
+     * timings. Estimated from the measured calls when sampling.
+     *
+     * @return Self time in nanoseconds
+     */
+    public long getSelfTime() {
+        return estimate(selfTime.get());
+    }
+
+    /**
+     * Gets the average time of a call, in nanoseconds
+     *
+     * @return Average time in nanoseconds
+     */
+    public long getAverageTime() {
+        long sampled = sampledCount.get();
+        return sampled == 0 ? 0 : totalTime.get() / sampled;
+    }
+
+    /**
+     * Gets the longest measured call, in nanoseconds
+     *
+     * @return Maximum time in nanoseconds
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Gets the duration below which the given fraction of measured calls
+     * completed, accurate to within 12.5%
+     *
+     * @param percentile Fraction between 0 and 1, such as 0.99
+     * @return Duration in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 1, "Percentile must be between 0 and 1");
+        return Math.min(TimingHistogram.percentile(histogram.snapshot(), percentile), maxTime.get());
+    }
+
+    private long estimate(long measured) {
+        long sampled = sampledCount.get();
+        long calls = count.get();
+        if (sampled == 0 || sampled >= calls) {
+            return measured;
+        }
+        return (long) (measured * ((double) calls / sampled));
+    }
+
+    @Override
+    public String toString() {
+        return "Timing{" + getPath() + "}";
+    }
+}
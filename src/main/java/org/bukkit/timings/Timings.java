@@ -0,0 +1,271 @@
+package org.bukkit.timings;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginIdentifiableCommand;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Entry point of the timings system.
+ * <p>
+ * All timings hang off a single root with three children:
+ * <ul>
+ * <li><code>plugins</code>, with one child per plugin, which holds a child
+ *     per handled event class (<code>event &lt;class&gt;</code>), scheduled
+ *     task class (<code>task &lt;class&gt;</code>) and command
+ *     (<code>command /&lt;name&gt;</code>)
+ * <li><code>events</code>, with one child per event class, aggregating the
+ *     listeners of all plugins
+ * <li><code>server</code>, for implementation code and built in commands
+ * </ul>
+ * Timings are only recorded while enabled. With a sample interval above
+ * one, only one in that many outermost calls is measured, together with
+ * everything nested in it, which keeps the overhead low enough to leave
+ * timings enabled on a production server. Calls are still counted exactly.
+ * <p>
+ * Server implementations should wrap scheduled tasks with
+ * {@link #ofTask(Plugin, Class)} so their time is attributed to the owning
+ * plugin.
+ */
+public final class Timings {
+    private static final Timing root = new Timing("", null, null);
+    private static final Timing plugins = root.getChild("plugins");
+    private static final Timing events = root.getChild("events");
+    private static final Timing server = root.getChild("server");
+    private static final ThreadLocal<Stack> stacks = new ThreadLocal<Stack>() {
+        @Override
+        protected Stack initialValue() {
+            return new Stack();
+        }
+    };
+
+    private static volatile boolean enabled = false;
+    private static volatile int sampleInterval = 1;
+
+    private Timings() {}
+
+    /**
+     * Gets whether timings are being recorded
+     *
+     * @return True if timings are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether timings are being recorded
+     *
+     * @param enabled True to record timings
+     */
+    public static void setEnabled(boolean enabled) {
+        Timings.enabled = enabled;
+    }
+
+    /**
+     * Gets how many outermost calls there are for each measured one
+     *
+     * @return The sample interval, 1 if every call is measured
+     */
+    public static int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets how many outermost calls there are for each measured one
+     *
+     * @param interval The sample interval, 1 to measure every call
+     */
+    public static void setSampleInterval(int interval) {
+        Validate.isTrue(interval > 0, "Sample interval must be positive");
+        sampleInterval = interval;
+    }
+
+    /**
+     * Gets the root of all timings
+     *
+     * @return The root timing
+     */
+    public static Timing getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets the timing of a plugin, holding all timings attributed to it
+     *
+     * @param plugin The plugin
+     * @return Timing of the plugin
+     */
+    public static Timing ofPlugin(Plugin plugin) {
+        Validate.notNull(plugin, "Plugin cannot be null");
+        return plugins.getChild(plugin.getDescription().getName());
+    }
+
+    /**
+     * Gets the timing of an event class, aggregated over all plugins
+     *
+     * @param eventClass The event class
+     * @return Timing of the event class
+     */
+    public static Timing ofEvent(Class<? extends Event> eventClass) {
+        Validate.notNull(eventClass, "Event class cannot be null");
+        return events.getChild(eventClass.getName());
+    }
+
+    /**
+     * Gets the timing of the listeners of a plugin for an event class. Time
+     * recorded here is added to {@link #ofEvent(Class)} as well.
+     *
+     * @param plugin The plugin owning the listeners
+     * @param eventClass The exact class of the handled events
+     * @return Timing of the listeners
+     */
+    public static Timing ofListener(Plugin plugin, Class<? extends Event> eventClass) {
+        return ofPlugin(plugin).getChild("event " + eventClass.getName(), ofEvent(eventClass));
+    }
+
+    /**
+     * Gets the timing of a scheduled task of a plugin
+     *
+     * @param plugin The plugin owning the task
+     * @param taskClass Class of the task
+     * @return Timing of the task
+     */
+    public static Timing ofTask(Plugin plugin, Class<?> taskClass) {
+        Validate.notNull(taskClass, "Task class cannot be null");
+        return ofPlugin(plugin).getChild("task " + taskClass.getName());
+    }
+
+    /**
+     * Gets the timing of a command, attributed to its plugin if it has one
+     *
+     * @param command The command
+     * @return Timing of the command
+     */
+    public static Timing ofCommand(Command command) {
+        Validate.notNull(command, "Command cannot be null");
+        Timing owner = command instanceof PluginIdentifiableCommand ? ofPlugin(((PluginIdentifiableCommand) command).getPlugin()) : server;
+        return owner.getChild("command /" + command.getName());
+    }
+
+    /**
+     * Gets a timing for implementation code
+     *
+     * @param name Name of the timing
+     * @return Timing of the code
+     */
+    public static Timing ofServer(String name) {
+        return server.getChild(name);
+    }
+
+    /**
+     * Resets all timings
+     */
+    public static void reset() {
+        root.reset();
+    }
+
+    /**
+     * Writes all timings as a JSON document
+     *
+     * @param writer Where to write to
+     * @throws IOException If the writer failed
+     */
+    public static void exportJson(Writer writer) throws IOException {
+        TimingsExport.writeJson(root, writer);
+    }
+
+    /**
+     * Writes all timings as CSV, one line per timing that was called
+     *
+     * @param writer Where to write to
+     * @throws IOException If the writer failed
+     */
+    public static void exportCsv(Writer writer) throws IOException {
+        TimingsExport.writeCsv(root, writer);
+    }
+
+    static Stack getStack() {
+        return stacks.get();
+    }
+
+    /**
+     * Timings running on one thread, innermost last
+     */
+    static final class Stack {
+        private Timing[] timings = new Timing[16];
+        private boolean[] sampled = new boolean[16];
+        private long[] starts = new long[16];
+        private long[] nested = new long[16];
+        private int depth;
+
+        void push(Timing timing, long call) {
+            if (depth == timings.length) {
+                int size = depth * 2;
+                timings = copyOf(timings, size);
+                sampled = copyOf(sampled, size);
+                starts = copyOf(starts, size);
+                nested = copyOf(nested, size);
+            }
+
+            boolean measure = depth > 0 ? sampled[depth - 1] : call % sampleInterval == 0;
+            timings[depth] = timing;
+            sampled[depth] = measure;
+            nested[depth] = 0;
+            starts[depth] = measure ? System.nanoTime() : 0;
+            depth++;
+        }
+
+        long pop(Timing timing) {
+            int index = depth - 1;
+            while (index >= 0 && timings[index] != timing) {
+                index--;
+            }
+            if (index < 0) {
+                return -1;
+            }
+
+            // Also drops timings that were started within but never stopped
+            for (int i = index; i < depth; i++) {
+                timings[i] = null;
+            }
+            depth = index;
+
+            if (!sampled[index]) {
+                return -1;
+            }
+            long time = System.nanoTime() - starts[index];
+            timing.record(time, Math.max(0, time - nested[index]));
+            if (index > 0) {
+                nested[index - 1] += time;
+            }
+            return time;
+        }
+
+        int getDepth() {
+            return depth;
+        }
+
+        private static Timing[] copyOf(Timing[] array, int size) {
+            Timing[] copy = new Timing[size];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+
+        private static boolean[] copyOf(boolean[] array, int size) {
+            boolean[] copy = new boolean[size];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+
+        private static long[] copyOf(long[] array, int size) {
+            long[] copy = new long[size];
+            System.arraycopy(array, 0, copy, 0, array.length);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.bukkit.timings;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONValue;
+
+/**
+ * Machine readable forms of the timings tree. Times are in nanoseconds.
+ */
+final class TimingsExport {
+    private static final String[] COLUMNS = { "path", "count", "sampled", "total_ns", "self_ns", "avg_ns", "p50_ns", "p99_ns", "max_ns" };
+    private static final Comparator<Timing> BY_NAME = new Comparator<Timing>() {
+        public int compare(Timing a, Timing b) {
+            return a.getName().compareTo(b.getName());
+        }
+    };
+
+    private TimingsExport() {}
+
+    static void writeJson(Timing root, Writer writer) throws IOException {
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("sampleInterval", Timings.getSampleInterval());
+        document.put("unit", "ns");
+        document.put("timings", toJson(root).get("children"));
+        JSONValue.writeJSONString(document, writer);
+        writer.flush();
+    }
+
+    private static Map<String, Object> toJson(Timing timing) {
+        Map<String, Object> node = new LinkedHashMap<String, Object>();
+        node.put("name", timing.getName());
+        node.put("count", timing.getCount());
+        node.put("sampled", timing.getSampledCount());
+        node.put("total", timing.getTotalTime());
+        node.put("self", timing.getSelfTime());
+        node.put("avg", timing.getAverageTime());
+        node.put("p50", timing.getPercentile(0.5));
+        node.put("p99", timing.getPercentile(0.99));
+        node.put("max", timing.getMaxTime());
+
+        List<Object> children = new ArrayList<Object>();
+        for (Timing child : sorted(timing)) {
+            children.add(toJson(child));
+        }
+        node.put("children", children);
+        return node;
+    }
+
+    static void writeCsv(Timing root, Writer writer) throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(COLUMNS[i]);
+        }
+        writer.write('\n');
+        for (Timing child : sorted(root)) {
+            writeCsvRows(child, writer);
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvRows(Timing timing, Writer writer) throws IOException {
+        if (timing.getCount() > 0) {
+            writer.write(quote(timing.getPath()));
+            long[] values = {
+                timing.getCount(),
+                timing.getSampledCount(),
+                timing.getTotalTime(),
+                timing.getSelfTime(),
+                timing.getAverageTime(),
+                timing.getPercentile(0.5),
+                timing.getPercentile(0.99),
+                timing.getMaxTime()
+            };
+            for (long value : values) {
+                writer.write(',');
+                writer.write(Long.toString(value));
+            }
+            writer.write('\n');
+        }
+        for (Timing child : sorted(timing)) {
+            writeCsvRows(child, writer);
+        }
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<Timing> sorted(Timing timing) {
+        List<Timing> children = new ArrayList<Timing>(timing.getChildren());
+        Collections.sort(children, BY_NAME);
+        return children;
+    }
+}
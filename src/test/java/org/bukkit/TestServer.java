@@ -6,6 +6,8 @@ import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.logging.Logger;
 
+import org.bukkit.command.Command;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.command.SimpleCommandMap;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.SimplePluginManager;
@@ -71,18 +73,37 @@ public class TestServer implements InvocationHandler {
                         }
                     }
                 );
+            methodMap.put(
+                    Server.class.getMethod("getUpdateFolder"),
+                    new MethodHandler() {
+                        public Object handle(TestServer server, Object[] args) {
+                            return "";
+                        }
+                    }
+                );
+            methodMap.put(
+                    Server.class.getMethod("getPluginCommand", String.class),
+                    new MethodHandler() {
+                        public Object handle(TestServer server, Object[] args) {
+                            Command command = server.commandMap.getCommand((String) args[0]);
+                            return command instanceof PluginCommand ? command : null;
+                        }
+                    }
+                );
             methods = methodMap.build();
 
             TestServer server = new TestServer();
             Server instance = Proxy.getProxyClass(Server.class.getClassLoader(), Server.class).asSubclass(Server.class).getConstructor(InvocationHandler.class).newInstance(server);
             Bukkit.setServer(instance);
-            server.pluginManager = new SimplePluginManager(instance, new SimpleCommandMap(instance));
+            server.commandMap = new SimpleCommandMap(instance);
+            server.pluginManager = new SimplePluginManager(instance, server.commandMap);
         } catch (Throwable t) {
             throw new Error(t);
         }
     }
 
     private Thread creatingThread = Thread.currentThread();
+    private SimpleCommandMap commandMap;
     private PluginManager pluginManager;
     private TestServer() {};
 
@@ -0,0 +1,79 @@
+package org.bukkit.configuration;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ConfigPathTest {
+    @Test
+    public void testKeys() {
+        ConfigPath path = ConfigPath.of("a..b.c");
+        assertThat(path.getKeyCount(), is(4));
+        assertThat(path.getKey(1), is(""));
+        assertThat(path.getKey(3), is(sameInstance("c")));
+        assertThat(ConfigPath.of("").getKeyCount(), is(0));
+        assertThat(ConfigPath.of("a/b", '/').toPath('.'), is("a.b"));
+        assertThat(ConfigPath.of("a.b"), is(ConfigPath.of("a.b")));
+    }
+
+    @Test
+    public void testMatchesStringLookups() {
+        MemoryConfiguration config = new MemoryConfiguration();
+        config.set("section.int", 42);
+        config.set("section.string", "value");
+        config.set("section.list", Arrays.asList(1, "2", 3L));
+        config.addDefault("section.long", 7L);
+        config.addDefault("section.sub.boolean", true);
+
+        assertThat(config.getInt(ConfigPath.of("section.int")), is(config.getInt("section.int")));
+        assertThat(config.getInt(ConfigPath.of("section.string")), is(config.getInt("section.string")));
+        assertThat(config.getString(ConfigPath.of("section.int")), is("42"));
+        assertThat(config.getLong(ConfigPath.of("section.long")), is(7L));
+        assertThat(config.getBoolean(ConfigPath.of("section.sub.boolean")), is(true));
+        assertThat(config.getIntegerList(ConfigPath.of("section.list")), is(config.getIntegerList("section.list")));
+        assertThat(config.getDouble(ConfigPath.of("missing.path"), 1.5), is(1.5));
+        assertThat(config.isSet(ConfigPath.of("section.long")), is(false));
+        assertThat(config.contains(ConfigPath.of("section.long")), is(true));
+        assertThat(config.get(ConfigPath.of("")), is((Object) config));
+
+        ConfigurationSection section = config.getConfigurationSection("section");
+        assertThat(section.getString("int"), is(((MemorySection) section).getString(ConfigPath.of("int"))));
+    }
+
+    @Test
+    public void testSectionReplaced() {
+        MemoryConfiguration config = new MemoryConfiguration();
+        ConfigPath path = ConfigPath.of("a.b.c");
+        config.set(path, 1);
+        assertThat(config.getInt(path), is(1));
+        assertThat(config.getInt("a.b.c"), is(1));
+
+        config.set("a", null);
+        assertThat(config.get(path), is(nullValue()));
+
+        config.set("a.b.c", 2);
+        assertThat(config.getInt(path), is(2));
+
+        config.createSection("a.b").set("c", 3);
+        assertThat(config.getInt(path), is(3));
+
+        MemoryConfiguration other = new MemoryConfiguration();
+        other.set("a.b.c", 4);
+        assertThat(other.getInt(path), is(4));
+        assertThat(config.getInt(path), is(3));
+    }
+
+    @Test
+    public void testCustomSeparator() {
+        MemoryConfiguration config = new MemoryConfiguration();
+        config.options().pathSeparator('/');
+        config.addDefault("a/b", "default");
+        config.set(ConfigPath.of("c.d"), "value");
+
+        assertThat(config.getString(ConfigPath.of("a.b")), is("default"));
+        assertThat(config.getString("c/d"), is("value"));
+    }
+}
@@ -1,5 +1,9 @@
 package org.bukkit.configuration.file;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -53,4 +57,49 @@ public class YamlConfigurationTest extends FileConfigurationTest {
 
         assertEquals(expected, result);
     }
+
+    @Test
+    public void testLoadReaderHeader() throws Exception {
+        String[] inputs = {
+            getTestHeaderResult() + "\n" + getTestValuesString(),
+            getTestHeaderResult().replace("\n", "\r\n") + getTestValuesString(),
+            "# only a header",
+            "# header\n\n\n",
+            "\n\n# late header\n#not header\nkey: 1\n",
+            "key: 1\n# after content\n",
+            "#\n# \n# two\nkey: 1",
+            "",
+        };
+
+        for (String input : inputs) {
+            // What load(Reader) passed to loadFromString before it streamed
+            StringBuilder lines = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new StringReader(input));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.append(line).append('\n');
+            }
+            YamlConfiguration expected = getConfig();
+            expected.loadFromString(lines.toString());
+            YamlConfiguration config = getConfig();
+            config.load(new StringReader(input));
+
+            assertEquals(input, expected.options().header(), config.options().header());
+            assertEquals(input, expected.saveToString(), config.saveToString());
+        }
+    }
+
+    @Test
+    public void testSaveWriter() throws Exception {
+        YamlConfiguration config = getConfig();
+        config.options().header(getTestHeaderInput());
+        config.loadFromString(getTestValuesString());
+
+        StringWriter writer = new StringWriter();
+        config.save(writer);
+        assertEquals(config.saveToString(), writer.toString());
+
+        writer = new StringWriter();
+        getConfig().save(writer);
+        assertEquals("", writer.toString());
+    }
 }
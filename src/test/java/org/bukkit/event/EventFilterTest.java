@@ -0,0 +1,102 @@
+package org.bukkit.event;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.After;
+import org.junit.Test;
+
+public class EventFilterTest {
+    private static final EventExecutor executor = new EventExecutor() {
+        public void execute(Listener listener, Event event) {}
+    };
+
+    private final Listener listener = new Listener() {};
+    private final TestPlugin plugin = new TestPlugin("Test");
+
+    @Test
+    public void testCauseFilter() {
+        EventFilter filter = EventFilter.of(Collections.<String>emptyList(), Collections.<Material>emptyList(), Collections.<EntityType>emptyList(), Arrays.asList("COMMAND"));
+
+        assertThat(filter.matches(new PlayerTeleportEvent(null, null, null, TeleportCause.COMMAND)), is(true));
+        assertThat(filter.matches(new PlayerTeleportEvent(null, null, null, TeleportCause.PLUGIN)), is(false));
+        assertThat(filter.matches(new TestEvent(false)), is(false));
+    }
+
+    @Test
+    public void testInvalidateDropsCauseMethods() {
+        EventFilter filter = EventFilter.of(Collections.<String>emptyList(), Collections.<Material>emptyList(), Collections.<EntityType>emptyList(), Arrays.asList("COMMAND"));
+        filter.matches(new TestEvent(false));
+        assertThat(EventFilter.causeMethods, hasKey((Object) TestEvent.class));
+
+        EventTypeRegistry.invalidate(new URLClassLoader(new URL[0]));
+        assertThat(EventFilter.causeMethods, hasKey((Object) TestEvent.class));
+
+        EventTypeRegistry.invalidate(TestEvent.class.getClassLoader());
+        assertThat(EventFilter.causeMethods, not(hasKey((Object) TestEvent.class)));
+    }
+
+    @Test
+    public void testWorldFilterWithoutWorld() {
+        EventFilter filter = EventFilter.of(Arrays.asList("pvp"), Collections.<Material>emptyList(), Collections.<EntityType>emptyList(), Collections.<String>emptyList());
+
+        assertThat(filter.matches(new TestEvent(false)), is(false));
+        assertThat(EventFilter.NONE.matches(new TestEvent(false)), is(true));
+    }
+
+    @Test
+    public void testIndexedDispatch() {
+        HandlerList handlers = PlayerTeleportEvent.getHandlerList();
+        RegisteredListener unfiltered = new RegisteredListener(listener, executor, EventPriority.HIGH, plugin, false);
+        RegisteredListener commands = new RegisteredListener(listener, executor, EventPriority.NORMAL, plugin, false,
+                EventFilter.of(Collections.<String>emptyList(), Collections.<Material>emptyList(), Collections.<EntityType>emptyList(), Arrays.asList("COMMAND")));
+        RegisteredListener players = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false,
+                EventFilter.of(Collections.<String>emptyList(), Collections.<Material>emptyList(), Arrays.asList(EntityType.PLAYER), Collections.<String>emptyList()));
+        handlers.register(unfiltered);
+        handlers.register(commands);
+        handlers.register(players);
+
+        assertThat(handlers.getRegisteredListeners(new PlayerTeleportEvent(null, null, null, TeleportCause.PLUGIN)), is(arrayContaining(players, unfiltered)));
+        assertThat(handlers.getRegisteredListeners(new PlayerTeleportEvent(null, null, null, TeleportCause.COMMAND)), is(arrayContaining(players, commands, unfiltered)));
+        // Cached lookups stay correct
+        assertThat(handlers.getRegisteredListeners(new PlayerTeleportEvent(null, null, null, TeleportCause.PLUGIN)), is(arrayContaining(players, unfiltered)));
+
+        handlers.unregister(commands);
+        assertThat(handlers.getRegisteredListeners(new PlayerTeleportEvent(null, null, null, TeleportCause.COMMAND)), is(arrayContaining(players, unfiltered)));
+    }
+
+    @Test
+    public void testGranularityDispatch() {
+        HandlerList handlers = PlayerMoveEvent.getHandlerList();
+        RegisteredListener any = new RegisteredListener(listener, executor, EventPriority.NORMAL, plugin, false);
+        RegisteredListener block = new RegisteredListener(listener, executor, EventPriority.NORMAL, plugin, false, EventFilter.NONE.withGranularity(MovementGranularity.BLOCK));
+        RegisteredListener chunk = new RegisteredListener(listener, executor, EventPriority.NORMAL, plugin, false, EventFilter.NONE.withGranularity(MovementGranularity.CHUNK));
+        handlers.register(any);
+        handlers.register(block);
+        handlers.register(chunk);
+
+        Location origin = new Location(null, 0.2, 64, 0.2);
+        assertThat(handlers.getRegisteredListeners(new PlayerMoveEvent(null, origin, new Location(null, 0.8, 64, 0.2, 90, 0))), is(arrayContaining(any)));
+        assertThat(handlers.getRegisteredListeners(new PlayerMoveEvent(null, origin, new Location(null, 1.2, 64, 0.2))), is(arrayContaining(any, block)));
+        assertThat(handlers.getRegisteredListeners(new PlayerMoveEvent(null, origin, new Location(null, -0.2, 64, 0.2))), is(arrayContaining(any, block, chunk)));
+    }
+
+    @After
+    public void tearDown() {
+        HandlerList.unregisterAll(listener);
+    }
+}
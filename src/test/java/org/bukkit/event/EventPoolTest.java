@@ -0,0 +1,84 @@
+package org.bukkit.event;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.bukkit.Location;
+import org.bukkit.TravelAgent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerPortalEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+import org.junit.Test;
+
+public class EventPoolTest {
+    private final EventPool<PlayerMoveEvent> pool = new EventPool<PlayerMoveEvent>(1) {
+        @Override
+        protected PlayerMoveEvent create() {
+            return new PlayerMoveEvent(null, null, null);
+        }
+    };
+
+    @Test
+    public void testReuse() {
+        PlayerMoveEvent event = pool.acquire();
+        pool.release(event);
+        assertThat(pool.acquire(), is(sameInstance(event)));
+    }
+
+    @Test
+    public void testNestedAcquire() {
+        PlayerMoveEvent first = pool.acquire();
+        PlayerMoveEvent second = pool.acquire();
+        assertThat(second, is(not(sameInstance(first))));
+
+        pool.release(second);
+        pool.release(first);
+        // Only one idle instance is kept
+        assertThat(pool.acquire(), is(sameInstance(second)));
+        assertThat(pool.acquire(), is(not(sameInstance(first))));
+    }
+
+    @Test
+    public void testReset() {
+        Location from = new Location(null, 0, 0, 0);
+        Location to = new Location(null, 1, 0, 0);
+        PlayerMoveEvent event = pool.acquire().reinitialize(null, from, to);
+        event.setCancelled(true);
+        assertThat(event.getFrom(), is(from));
+        assertThat(event.getTo(), is(to));
+
+        pool.release(event);
+        assertThat(event.getFrom(), is(nullValue()));
+        assertThat(event.getTo(), is(nullValue()));
+        assertThat(event.isCancelled(), is(false));
+    }
+
+    @Test
+    public void testReinitializeSubtypes() {
+        Location from = new Location(null, 0, 0, 0);
+        Location to = new Location(null, 1, 0, 0);
+        PlayerTeleportEvent teleport = new PlayerTeleportEvent(null, null, null).reinitialize(null, from, to, TeleportCause.COMMAND);
+        assertThat(teleport.getCause(), is(TeleportCause.COMMAND));
+        assertThat(teleport.getTo(), is(to));
+
+        TravelAgent agent = (TravelAgent) Proxy.newProxyInstance(TravelAgent.class.getClassLoader(), new Class<?>[] { TravelAgent.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                throw new UnsupportedOperationException(String.valueOf(method));
+            }
+        });
+        PlayerPortalEvent portal = new PlayerPortalEvent(null, null, null, null).reinitialize(null, from, to, agent, TeleportCause.NETHER_PORTAL);
+        portal.useTravelAgent(false);
+        assertThat(portal.getCause(), is(TeleportCause.NETHER_PORTAL));
+        assertThat(portal.getPortalTravelAgent(), is(sameInstance(agent)));
+
+        portal.reset();
+        portal.reinitialize(null, from, to, agent);
+        assertThat(portal.getCause(), is(TeleportCause.UNKNOWN));
+        assertThat(portal.useTravelAgent(), is(true));
+    }
+}
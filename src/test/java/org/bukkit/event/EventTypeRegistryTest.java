@@ -0,0 +1,116 @@
+package org.bukkit.event;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.bukkit.event.player.PlayerEvent;
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.junit.Test;
+
+public class EventTypeRegistryTest {
+    public static class InheritingEvent extends TestEvent {
+        public InheritingEvent() {
+            super(false);
+        }
+    }
+
+    public static class CountingEvent extends Event {
+        private static final HandlerList handlers = new HandlerList();
+        static int lookups = 0;
+
+        @Override
+        public HandlerList getHandlers() {
+            return handlers;
+        }
+
+        public static HandlerList getHandlerList() {
+            lookups++;
+            return handlers;
+        }
+    }
+
+    public static class FailingEvent extends Event {
+        static int lookups = 0;
+
+        @Override
+        public HandlerList getHandlers() {
+            throw new UnsupportedOperationException();
+        }
+
+        public static HandlerList getHandlerList() {
+            lookups++;
+            throw new IllegalStateException("No handlers");
+        }
+    }
+
+    @Test
+    public void testOwnHandlerList() {
+        assertThat(EventTypeRegistry.getHandlerList(TestEvent.class), is(sameInstance(TestEvent.getHandlerList())));
+        assertThat(EventTypeRegistry.getRegistrationClass(TestEvent.class), is((Object) TestEvent.class));
+    }
+
+    @Test
+    public void testInheritedHandlerList() {
+        assertThat(EventTypeRegistry.getHandlerList(InheritingEvent.class), is(sameInstance(TestEvent.getHandlerList())));
+        assertThat(EventTypeRegistry.getRegistrationClass(InheritingEvent.class), is((Object) TestEvent.class));
+    }
+
+    @Test
+    public void testMissingHandlerListCached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                EventTypeRegistry.getHandlerList(PlayerEvent.class);
+                fail("No exception thrown");
+            } catch (IllegalPluginAccessException ex) {
+                assertThat(ex.getMessage(), is("Unable to find handler list for event " + PlayerEvent.class.getName()));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidate() {
+        HandlerList handlers = EventTypeRegistry.getHandlerList(InheritingEvent.class);
+        EventTypeRegistry.invalidate(InheritingEvent.class.getClassLoader());
+        assertThat(EventTypeRegistry.getHandlerList(InheritingEvent.class), is(sameInstance(handlers)));
+    }
+
+    @Test
+    public void testInvalidateDropsResolutions() {
+        ClassLoader loader = CountingEvent.class.getClassLoader();
+        EventTypeRegistry.invalidate(loader);
+        CountingEvent.lookups = 0;
+        FailingEvent.lookups = 0;
+
+        EventTypeRegistry.getHandlerList(CountingEvent.class);
+        EventTypeRegistry.getHandlerList(CountingEvent.class);
+        assertFails(FailingEvent.class);
+        assertFails(FailingEvent.class);
+        assertThat(CountingEvent.lookups, is(1));
+        assertThat(FailingEvent.lookups, is(1));
+
+        // Another loader leaves the cache alone
+        EventTypeRegistry.invalidate(new URLClassLoader(new URL[0]));
+        EventTypeRegistry.getHandlerList(CountingEvent.class);
+        assertFails(FailingEvent.class);
+        assertThat(CountingEvent.lookups, is(1));
+        assertThat(FailingEvent.lookups, is(1));
+
+        // Both the resolution and the cached failure are looked up again
+        EventTypeRegistry.invalidate(loader);
+        EventTypeRegistry.getHandlerList(CountingEvent.class);
+        assertFails(FailingEvent.class);
+        assertThat(CountingEvent.lookups, is(2));
+        assertThat(FailingEvent.lookups, is(2));
+    }
+
+    private static void assertFails(Class<? extends Event> type) {
+        try {
+            EventTypeRegistry.getHandlerList(type);
+            fail("No exception thrown");
+        } catch (IllegalPluginAccessException ex) {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.bukkit.event;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.After;
+import org.junit.Test;
+
+public class HandlerListTest {
+    private static final EventExecutor executor = new EventExecutor() {
+        public void execute(Listener listener, Event event) {}
+    };
+
+    private final HandlerList first = new HandlerList();
+    private final HandlerList second = new HandlerList();
+    private final TestPlugin plugin = new TestPlugin("Indexed");
+    private final TestPlugin other = new TestPlugin("Other");
+    private final Listener listener = new Listener() {};
+    private final Listener otherListener = new Listener() {};
+
+    @After
+    public void tearDown() {
+        HandlerList.unregisterAll(plugin);
+        HandlerList.unregisterAll(other);
+    }
+
+    @Test(timeout = 10000)
+    public void testReadWhileLocked() throws InterruptedException {
+        final RegisteredListener a = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false);
+        first.register(a);
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                synchronized (first) {
+                    locked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            }
+        };
+        writer.start();
+        locked.await();
+        try {
+            // Would block if a reader could fall into the synchronized bake
+            assertThat(first.getRegisteredListeners(), is(arrayContaining(a)));
+            assertThat(second.getRegisteredListeners(), is(emptyArray()));
+        } finally {
+            release.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testUnregisterPlugin() {
+        RegisteredListener a = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false);
+        RegisteredListener b = new RegisteredListener(listener, executor, EventPriority.HIGH, plugin, false);
+        RegisteredListener c = new RegisteredListener(otherListener, executor, EventPriority.NORMAL, other, false);
+        first.register(a);
+        first.register(c);
+        second.register(b);
+
+        assertThat(HandlerList.getRegisteredListeners(plugin), containsInAnyOrder(a, b));
+        assertThat(HandlerList.getRegisteredListeners(other), contains(c));
+
+        HandlerList.unregisterAll(plugin);
+        assertThat(first.getRegisteredListeners(), is(arrayContaining(c)));
+        assertThat(second.getRegisteredListeners(), is(emptyArray()));
+        assertThat(HandlerList.getRegisteredListeners(plugin), is(empty()));
+        assertThat(HandlerList.getRegisteredListeners(other), contains(c));
+    }
+
+    @Test
+    public void testUnregisterListener() {
+        RegisteredListener a = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false);
+        RegisteredListener b = new RegisteredListener(otherListener, executor, EventPriority.LOW, plugin, false);
+        first.register(a);
+        first.register(b);
+        second.register(new RegisteredListener(listener, executor, EventPriority.MONITOR, plugin, false));
+
+        HandlerList.unregisterAll(listener);
+        assertThat(first.getRegisteredListeners(), is(arrayContaining(b)));
+        assertThat(second.getRegisteredListeners(), is(emptyArray()));
+        assertThat(HandlerList.getRegisteredListeners(plugin), contains(b));
+
+        first.unregister(b);
+        assertThat(HandlerList.getRegisteredListeners(plugin), is(empty()));
+    }
+
+    @Test
+    public void testUnregisterPluginFromOneList() {
+        RegisteredListener a = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false);
+        RegisteredListener b = new RegisteredListener(listener, executor, EventPriority.LOW, plugin, false);
+        first.register(a);
+        second.register(b);
+
+        first.unregister(plugin);
+        assertThat(first.getRegisteredListeners(), is(emptyArray()));
+        assertThat(second.getRegisteredListeners(), is(arrayContaining(b)));
+        assertThat(HandlerList.getRegisteredListeners(plugin), contains(b));
+
+        // Registering again after unregistering is indexed again
+        first.register(a);
+        HandlerList.unregisterAll(listener);
+        assertThat(first.getRegisteredListeners(), is(emptyArray()));
+        assertThat(second.getRegisteredListeners(), is(emptyArray()));
+    }
+}
@@ -1,7 +1,7 @@
 package org.bukkit.event;
 
 
-public class TestEvent extends Event {
+public class TestEvent extends Event implements ConcurrentEvent {
     private static final HandlerList handlers = new HandlerList();
 
     public TestEvent(boolean async) {
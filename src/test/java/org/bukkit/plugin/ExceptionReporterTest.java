@@ -0,0 +1,78 @@
+package org.bukkit.plugin;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ExceptionReporterTest {
+    private final Logger logger = Logger.getAnonymousLogger();
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+    private final ExceptionReporter reporter = new ExceptionReporter(logger);
+    private final TestPlugin plugin = new TestPlugin("Test");
+    private final Object source = new Object();
+
+    {
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+    }
+
+    @Test
+    public void testCountLoggedWhenForgotten() {
+        reportFailures(3);
+        assertThat(messages, contains("Failure"));
+
+        reporter.forget(source);
+        assertThat(messages, hasSize(2));
+        assertThat(messages.get(1), startsWith("Failure (failed 2 more times in the last 0 seconds: "));
+
+        // Nothing is left to log
+        reporter.forgetAll(plugin);
+        assertThat(messages, hasSize(2));
+    }
+
+    @Test(timeout = 10000)
+    public void testCountLoggedAfterBurst() throws Exception {
+        reporter.setReportInterval(100, TimeUnit.MILLISECONDS);
+        reportFailures(3);
+        assertThat(messages, contains("Failure"));
+
+        // No failure follows the burst, so the count is logged in the background
+        while (messages.size() < 2) {
+            Thread.sleep(10);
+        }
+        assertThat(messages.get(1), startsWith("Failure (failed 2 more times in the last 0 seconds: "));
+        assertThat(reporter.getFailures(plugin).get(0).getSuppressedCount(), is(0));
+    }
+
+    private void reportFailures(int times) {
+        for (int i = 0; i < times; i++) {
+            reporter.report(plugin, source, "Failure", new IllegalStateException());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        reporter.reset();
+    }
+}
@@ -0,0 +1,76 @@
+package org.bukkit.plugin;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.TestServer;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.TestEvent;
+import org.junit.After;
+import org.junit.Test;
+
+public class ExecutionWatchdogTest {
+    public static class SlowListener implements Listener {
+        public void onTest(TestEvent event) {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    private static final PluginManager pm = TestServer.getInstance().getPluginManager();
+
+    @After
+    public void tearDown() {
+        pm.getExecutionWatchdog().stop();
+        pm.getExecutionWatchdog().clearReports();
+        pm.clearPlugins();
+    }
+
+    @Test(timeout = 10000)
+    public void testSlowListenerReported() throws Exception {
+        final SlowListener listener = new SlowListener();
+        final TestPlugin plugin = new TestPlugin("Slow");
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                ((SlowListener) listener).onTest((TestEvent) event);
+            }
+        }, plugin);
+
+        ExecutionWatchdog watchdog = pm.getExecutionWatchdog();
+        watchdog.setSampleInterval(5, TimeUnit.MILLISECONDS);
+        watchdog.start(Thread.currentThread(), 50, TimeUnit.MILLISECONDS);
+        pm.callEvent(new TestEvent(false));
+        watchdog.stop();
+
+        List<ExecutionWatchdog.Report> reports = watchdog.getReports();
+        assertThat(reports, hasSize(1));
+        ExecutionWatchdog.Report report = reports.get(0);
+        assertThat(report.getPlugin(), is((Plugin) plugin));
+        assertThat(report.getSource(), is("listener " + SlowListener.class.getName()));
+        assertThat(report.getMethod(), startsWith(SlowListener.class.getName() + ".onTest("));
+        assertThat(report.getSampleCount(), is(greaterThan(0)));
+        assertThat(report.getDuration(TimeUnit.MILLISECONDS), is(greaterThanOrEqualTo(50L)));
+        assertThat(report.toString(), containsString("Slow v1.0 ran for at least"));
+    }
+
+    @Test
+    public void testOtherThreadsIgnored() throws Exception {
+        ExecutionWatchdog watchdog = pm.getExecutionWatchdog();
+        assertThat(watchdog.enter(null, "unwatched", null), is(false));
+
+        Thread other = new Thread();
+        watchdog.start(other, 1, TimeUnit.MILLISECONDS);
+        assertThat(watchdog.isRunning(), is(true));
+        assertThat(watchdog.enter(null, "unwatched", null), is(false));
+        watchdog.stop();
+        assertThat(watchdog.isRunning(), is(false));
+    }
+}
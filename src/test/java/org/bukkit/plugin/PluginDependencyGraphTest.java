@@ -0,0 +1,91 @@
+package org.bukkit.plugin;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PluginDependencyGraphTest {
+    @Test
+    public void testLoadOrder() throws Exception {
+        PluginDependencyGraph graph = graph(
+                "name: A\ndepend: [B]\nsoftdepend: [Missing]",
+                "name: B",
+                "name: C\nloadbefore: [B]",
+                "name: D\nsoftdepend: [A]");
+
+        assertThat(graph.getLoadOrder(), contains("C", "B", "A", "D"));
+        assertThat(graph.getDependencies("A"), containsInAnyOrder("B"));
+        assertThat(graph.getDependencies("B"), containsInAnyOrder("C"));
+        assertThat(graph.getUnknownDependencies().isEmpty(), is(true));
+        assertThat(graph.getBrokenCycles(), is(empty()));
+    }
+
+    @Test
+    public void testLayers() throws Exception {
+        PluginDependencyGraph graph = graph(
+                "name: A\ndepend: [B, C]",
+                "name: B",
+                "name: C\nsoftdepend: [B]",
+                "name: D");
+
+        List<List<String>> layers = graph.getLayers();
+        assertThat(layers, hasSize(3));
+        assertThat(layers.get(0), contains("B", "D"));
+        assertThat(layers.get(1), contains("C"));
+        assertThat(layers.get(2), contains("A"));
+    }
+
+    @Test
+    public void testUnknownDependency() throws Exception {
+        PluginDependencyGraph graph = graph(
+                "name: A\ndepend: [B]",
+                "name: B\ndepend: [Missing]",
+                "name: C\nsoftdepend: [B]");
+
+        assertThat(graph.getLoadOrder(), contains("C"));
+        assertThat(graph.getUnknownDependencies().get("B"), is("Missing"));
+        assertThat(graph.getUnknownDependencies().get("A"), is("B"));
+        assertThat(graph.getDependencies("A"), is(empty()));
+    }
+
+    @Test
+    public void testSoftCycleBroken() throws Exception {
+        PluginDependencyGraph graph = graph(
+                "name: A\nsoftdepend: [B]",
+                "name: B\ndepend: [A]",
+                "name: C\ndepend: [B]");
+
+        assertThat(graph.getLoadOrder(), contains("A", "B", "C"));
+        assertThat(graph.getBrokenCycles(), contains((List<String>) Arrays.asList("A", "B", "A")));
+        assertThat(graph.getDependencies("A"), is(empty()));
+        assertThat(graph.getCircularDependencies().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testHardCycle() throws Exception {
+        PluginDependencyGraph graph = graph(
+                "name: A\ndepend: [B]",
+                "name: B\ndepend: [A]",
+                "name: C\ndepend: [B]",
+                "name: D\nsoftdepend: [C]");
+
+        assertThat(graph.getLoadOrder(), contains("D"));
+        assertThat(graph.getCircularDependencies().keySet(), contains("A", "B", "C"));
+        assertThat(graph.getCircularDependencies().get("C"), contains("B", "A", "B"));
+        assertThat(graph.getLayers(), hasSize(1));
+    }
+
+    private static PluginDependencyGraph graph(String... descriptions) throws Exception {
+        List<PluginDescriptionFile> list = new ArrayList<PluginDescriptionFile>();
+        for (String description : descriptions) {
+            list.add(new PluginDescriptionFile(new StringReader(description + "\nversion: 1\nmain: test.Main\n")));
+        }
+        return new PluginDependencyGraph(list);
+    }
+}
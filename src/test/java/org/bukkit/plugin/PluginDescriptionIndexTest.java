@@ -0,0 +1,98 @@
+package org.bukkit.plugin;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.logging.Logger;
+
+import org.bukkit.TestServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PluginDescriptionIndexTest {
+    private static final Logger logger = Logger.getLogger(PluginDescriptionIndexTest.class.getName());
+    private static final PluginLoader loader = new PluginManagerTest.DescriptionTestLoader(TestServer.getInstance());
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedFileIndexed() throws Exception {
+        File plugin = indexed("name: Indexed\nversion: 2.0\nmain: test.Main\ndepend: [Other]\n");
+
+        PluginDescriptionFile description = PluginDescriptionIndex.load(folder.getRoot(), logger, false).get(plugin, loader);
+        assertThat(description, is(notNullValue()));
+        assertThat(description.getFullName(), is("Indexed v2.0"));
+        assertThat(description.getDepend(), contains("Other"));
+    }
+
+    @Test
+    public void testChangedFileNotIndexed() throws Exception {
+        File plugin = indexed("name: Changed\nversion: 1.0\nmain: test.Main\n");
+        assertTrue(plugin.setLastModified(plugin.lastModified() - 10000));
+
+        assertThat(PluginDescriptionIndex.load(folder.getRoot(), logger, false).get(plugin, loader), is(nullValue()));
+    }
+
+    @Test
+    public void testHashedFileIndexed() throws Exception {
+        File plugin = folder.newFile("hashed.test");
+        write(plugin, "name: Hashed\nversion: 1.0\nmain: test.Main\n");
+
+        PluginDescriptionIndex index = PluginDescriptionIndex.load(folder.getRoot(), logger, true);
+        index.put(plugin, loader, new PluginDescriptionFile(new StringReader("name: Hashed\nversion: 1.0\nmain: test.Main\n")));
+        index.save();
+
+        assertThat(PluginDescriptionIndex.load(folder.getRoot(), logger, true).get(plugin, loader), is(notNullValue()));
+    }
+
+    @Test
+    public void testCorruptIndexIgnored() throws Exception {
+        File plugin = folder.newFile("corrupt.test");
+        write(plugin, "name: Corrupt\nversion: 1.0\nmain: test.Main\n");
+        write(new File(folder.getRoot(), PluginDescriptionIndex.FILE_NAME), "plugins: [\n\t{");
+
+        PluginDescriptionIndex index = PluginDescriptionIndex.load(folder.getRoot(), logger, false);
+        assertThat(index.get(plugin, loader), is(nullValue()));
+        index.put(plugin, loader, loader.getPluginDescription(plugin));
+        index.save();
+
+        assertThat(PluginDescriptionIndex.load(folder.getRoot(), logger, false).get(plugin, loader).getName(), is("Corrupt"));
+    }
+
+    @Test
+    public void testRemovedFileDropped() throws Exception {
+        File plugin = indexed("name: Removed\nversion: 1.0\nmain: test.Main\n");
+        assertTrue(plugin.delete());
+
+        PluginDescriptionIndex.load(folder.getRoot(), logger, false).save();
+        write(plugin, "name: Removed\nversion: 1.0\nmain: test.Main\n");
+        assertThat(PluginDescriptionIndex.load(folder.getRoot(), logger, false).get(plugin, loader), is(nullValue()));
+    }
+
+    private File indexed(String contents) throws Exception {
+        File plugin = folder.newFile("plugin.test");
+        write(plugin, contents);
+
+        PluginDescriptionIndex index = PluginDescriptionIndex.load(folder.getRoot(), logger, false);
+        assertThat(index.get(plugin, loader), is(nullValue()));
+        index.put(plugin, loader, loader.getPluginDescription(plugin));
+        index.save();
+        return plugin;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -3,15 +3,253 @@ package org.bukkit.plugin;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.bukkit.Server;
 import org.bukkit.TestServer;
+import org.bukkit.event.AsyncCancellable;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.CancellationState;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
 import org.bukkit.event.TestEvent;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.permissions.Permission;
 
+import org.yaml.snakeyaml.error.YAMLException;
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class PluginManagerTest {
+    public static class CancellableTestEvent extends Event implements AsyncCancellable {
+        private static final HandlerList handlers = new HandlerList();
+        private final CancellationState cancel = new CancellationState();
+
+        public CancellableTestEvent() {
+            super(true);
+        }
+
+        public boolean isCancelled() {
+            return cancel.isCancelled();
+        }
+
+        public void setCancelled(boolean cancel) {
+            this.cancel.setCancelled(cancel);
+        }
+
+        public CancellationState getCancellationState() {
+            return cancel;
+        }
+
+        @Override
+        public HandlerList getHandlers() {
+            return handlers;
+        }
+
+        public static HandlerList getHandlerList() {
+            return handlers;
+        }
+    }
+
+    public static class DescriptionTestLoader implements DescribedPluginLoader {
+        static final List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+        static final List<String> read = Collections.synchronizedList(new ArrayList<String>());
+
+        public DescriptionTestLoader(Server server) {}
+
+        public PluginDescriptionFile getPluginDescription(File file) throws InvalidDescriptionException {
+            read.add(file.getName());
+            try {
+                // Later files are read faster, so they finish out of order
+                Thread.sleep(file.getName().equals("a.test") ? 50 : 0);
+                return new PluginDescriptionFile(new FileReader(file));
+            } catch (IOException ex) {
+                throw new InvalidDescriptionException(ex);
+            } catch (YAMLException ex) {
+                throw new InvalidDescriptionException(ex);
+            } catch (InterruptedException ex) {
+                throw new InvalidDescriptionException(ex);
+            }
+        }
+
+        public Plugin loadPlugin(File file) throws InvalidPluginException {
+            try {
+                return loadPlugin(file, getPluginDescription(file));
+            } catch (InvalidDescriptionException ex) {
+                throw new InvalidPluginException(ex);
+            }
+        }
+
+        public Plugin loadPlugin(File file, final PluginDescriptionFile description) {
+            TestPlugin plugin = new TestPlugin(description.getName()) {
+                @Override
+                public PluginDescriptionFile getDescription() {
+                    return description;
+                }
+            };
+            plugin.setEnabled(false);
+            loaded.add(plugin.getDescription().getName());
+            return plugin;
+        }
+
+        public Pattern[] getPluginFileFilters() {
+            return new Pattern[] { Pattern.compile("\\.test$") };
+        }
+
+        public Map<Class<? extends Event>, Set<RegisteredListener>> createRegisteredListeners(Listener listener, Plugin plugin) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void enablePlugin(Plugin plugin) {}
+
+        public void disablePlugin(Plugin plugin) {}
+    }
+
+    static class ParallelTestLoader implements ParallelPluginLoader {
+        final List<String> log = Collections.synchronizedList(new ArrayList<String>());
+
+        public void enablePluginInParallel(Plugin plugin) {
+            log.add("enable " + plugin.getName() + (Thread.currentThread().getName().startsWith("Plugin Enabler") ? " pool" : " main"));
+            ((TestPlugin) plugin).setEnabled(true);
+        }
+
+        public void completeEnable(Plugin plugin) {
+            log.add("complete " + plugin.getName());
+        }
+
+        public void enablePlugin(Plugin plugin) {
+            enablePluginInParallel(plugin);
+            completeEnable(plugin);
+        }
+
+        public Plugin loadPlugin(File file) throws InvalidPluginException {
+            throw new UnsupportedOperationException();
+        }
+
+        public PluginDescriptionFile getPluginDescription(File file) throws InvalidDescriptionException {
+            throw new UnsupportedOperationException();
+        }
+
+        public Pattern[] getPluginFileFilters() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Map<Class<? extends Event>, Set<RegisteredListener>> createRegisteredListeners(Listener listener, Plugin plugin) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void disablePlugin(Plugin plugin) {}
+    }
+
+    static class ParallelTestPlugin extends TestPlugin {
+        private final PluginDescriptionFile description;
+        private final PluginLoader loader;
+
+        ParallelTestPlugin(PluginLoader loader, String description) throws InvalidDescriptionException {
+            super(null);
+            this.description = new PluginDescriptionFile(new StringReader(description + "\nversion: 1\nmain: test.Main\n"));
+            this.loader = loader;
+            setEnabled(false);
+        }
+
+        @Override
+        public PluginDescriptionFile getDescription() {
+            return description;
+        }
+
+        @Override
+        public PluginLoader getPluginLoader() {
+            return loader;
+        }
+
+        @Override
+        public void onLoad() {}
+    }
+
+    interface ActivationHook {
+        void enabled(Plugin plugin);
+    }
+
+    static class LazyTestPlugin extends ParallelTestPlugin implements LazyPlugin {
+        /**
+         * Called with each loaded plugin when it is enabled
+         */
+        static volatile ActivationHook activationHook = null;
+        private final String yaml;
+        private Plugin loaded = null;
+
+        LazyTestPlugin(PluginLoader loader, String description) throws InvalidDescriptionException {
+            super(loader, description);
+            this.yaml = description;
+        }
+
+        public Plugin load() throws InvalidPluginException {
+            try {
+                loaded = new ParallelTestPlugin(getPluginLoader(), yaml) {
+                    @Override
+                    public void setEnabled(boolean enabled) {
+                        super.setEnabled(enabled);
+                        ActivationHook hook = activationHook;
+                        if (enabled && hook != null) {
+                            hook.enabled(this);
+                        }
+                    }
+                };
+            } catch (InvalidDescriptionException ex) {
+                throw new InvalidPluginException(ex);
+            }
+            return loaded;
+        }
+
+        public Plugin getLoadedPlugin() {
+            return loaded;
+        }
+    }
+
+    public static class LazyTestLoader extends ParallelTestLoader {
+        static final String DESCRIPTION = "name: Lazy\nactivation: lazy\nactivation-events: [" + TestEvent.class.getName() + "]";
+
+        public LazyTestLoader(Server server) {}
+
+        @Override
+        public Plugin loadPlugin(File file) throws InvalidPluginException {
+            try {
+                return new LazyTestPlugin(this, DESCRIPTION);
+            } catch (InvalidDescriptionException ex) {
+                throw new InvalidPluginException(ex);
+            }
+        }
+
+        @Override
+        public PluginDescriptionFile getPluginDescription(File file) throws InvalidDescriptionException {
+            return new LazyTestPlugin(this, DESCRIPTION).getDescription();
+        }
+
+        @Override
+        public Pattern[] getPluginFileFilters() {
+            return new Pattern[] { Pattern.compile("\\.lazy$") };
+        }
+    }
+
     private class MutableObject {
         volatile Object value = null;
     }
@@ -20,6 +258,9 @@ public class PluginManagerTest {
 
     private final MutableObject store = new MutableObject();
 
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testAsyncSameThread() {
         final Event event = new TestEvent(true);
@@ -123,6 +364,414 @@ public class PluginManagerTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testSyncPrimaryNotBlockedByMonitor() throws InterruptedException {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread secondThread = new Thread(
+            new Runnable() {
+                public void run() {
+                    synchronized (pm) {
+                        locked.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException ex) {
+                            store.value = ex;
+                        }
+                    }
+                }
+            }
+        );
+        secondThread.start();
+        locked.await();
+        try {
+            pm.callEvent(new TestEvent(false));
+        } finally {
+            release.countDown();
+            secondThread.join();
+        }
+        if (store.value != null) {
+            throw new RuntimeException((Throwable) store.value);
+        }
+    }
+
+    @Test
+    public void testIsListened() {
+        final Listener listener = new Listener() {};
+        assertThat(pm.isListened(TestEvent.class), is(false));
+
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {}
+        }, new TestPlugin("Test"));
+        assertThat(pm.isListened(TestEvent.class), is(true));
+
+        TestEvent.getHandlerList().unregister(listener);
+        assertThat(pm.isListened(TestEvent.class), is(false));
+    }
+
+    @Test
+    public void testCallEvents() {
+        final List<String> calls = new ArrayList<String>();
+        final Event first = new TestEvent(false);
+        final Event second = new TestEvent(false);
+        final Listener listener = new Listener() {};
+        final TestPlugin plugin = new TestPlugin("Test");
+
+        pm.registerEvent(TestEvent.class, listener, EventPriority.LOW, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                calls.add("low:" + (event == first ? 1 : 2));
+            }
+        }, plugin);
+        pm.registerEvent(TestEvent.class, listener, EventPriority.HIGH, new BatchEventExecutor() {
+            public void execute(Listener listener, Event event) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void executeBatch(Listener listener, List<Event> events) {
+                assertThat(events, is(Arrays.asList(first, second)));
+                calls.add("high:batch");
+            }
+        }, plugin);
+
+        pm.callEvents(new Event[] { first, second });
+        assertThat(calls, is(Arrays.asList("low:1", "low:2", "high:batch")));
+    }
+
+    @Test
+    public void testCallEventsKeepsOrderAcrossTypes() {
+        final List<String> calls = new ArrayList<String>();
+        final Event first = new TestEvent(false);
+        final Event second = new TestEvent(false);
+        final Event third = new TestEvent(false);
+        final Listener listener = new Listener() {};
+        final TestPlugin plugin = new TestPlugin("Test");
+
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                calls.add("test:" + (event == first ? 1 : event == second ? 2 : 3));
+            }
+        }, plugin);
+        pm.registerEvent(BlockBreakEvent.class, listener, EventPriority.NORMAL, new BatchEventExecutor() {
+            public void execute(Listener listener, Event event) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void executeBatch(Listener listener, List<Event> events) {
+                calls.add("break:" + events.size());
+            }
+        }, plugin);
+
+        pm.callEvents(new Event[] { first, second, new BlockBreakEvent(null, null), new BlockBreakEvent(null, null), third });
+        assertThat(calls, is(Arrays.asList("test:1", "test:2", "break:2", "test:3")));
+    }
+
+    @Test(timeout = 10000)
+    public void testCallEventAsyncParallelLevel() throws Exception {
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final Listener listener = new Listener() {};
+        EventExecutor executor = new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                synchronized (threads) {
+                    threads.add(Thread.currentThread());
+                }
+                bothRunning.countDown();
+                try {
+                    // Only completes if the other listener of this level runs at the same time
+                    assertThat(bothRunning.await(5, TimeUnit.SECONDS), is(true));
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        };
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, executor, new TestPlugin("First"));
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, executor, new TestPlugin("Second"));
+
+        TestEvent event = new TestEvent(true);
+        assertThat(pm.callEventAsync(event).get(), is(sameInstance(event)));
+        assertThat(threads, hasSize(2));
+        assertThat(threads, not(hasItem(Thread.currentThread())));
+    }
+
+    @Test(timeout = 10000)
+    public void testCallEventAsyncSerialLevel() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        final Listener listener = new Listener() {};
+        EventExecutor executor = new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                AsyncPlayerPreLoginEvent login = (AsyncPlayerPreLoginEvent) event;
+                assertThat(running.incrementAndGet(), is(1));
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                calls.add(login.getKickMessage());
+                login.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, login.getKickMessage() + "+");
+                running.decrementAndGet();
+            }
+        };
+        // Not a ConcurrentEvent, so listeners of one level must not overlap
+        pm.registerEvent(AsyncPlayerPreLoginEvent.class, listener, EventPriority.NORMAL, executor, new TestPlugin("First"));
+        pm.registerEvent(AsyncPlayerPreLoginEvent.class, listener, EventPriority.NORMAL, executor, new TestPlugin("Second"));
+
+        AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent("Player", null, null);
+        assertThat(pm.callEventAsync(event).get().getKickMessage(), is("++"));
+        assertThat(calls, is(Arrays.asList("", "+")));
+    }
+
+    @Test(timeout = 10000)
+    public void testCallEventAsyncMergesCancellation() throws Exception {
+        final CountDownLatch firstCancelled = new CountDownLatch(1);
+        final List<Boolean> seen = Collections.synchronizedList(new ArrayList<Boolean>());
+        final Listener listener = new Listener() {};
+        pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                ((Cancellable) event).setCancelled(true);
+                firstCancelled.countDown();
+            }
+        }, new TestPlugin("First"));
+        pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                try {
+                    assertThat(firstCancelled.await(5, TimeUnit.SECONDS), is(true));
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+                // Still sees the state the level started with
+                seen.add(((Cancellable) event).isCancelled());
+            }
+        }, new TestPlugin("Second"));
+        pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.HIGH, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                seen.add(((Cancellable) event).isCancelled());
+            }
+        }, new TestPlugin("Third"));
+        pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.HIGH, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                fail("Cancelled event passed to a listener ignoring cancelled events");
+            }
+        }, new TestPlugin("Fourth"), true);
+
+        CancellableTestEvent event = new CancellableTestEvent();
+        assertThat(pm.callEventAsync(event).get().isCancelled(), is(true));
+        assertThat(seen, is(Arrays.asList(false, true)));
+    }
+
+    @Test(timeout = 10000)
+    public void testCallEventAsyncTimeoutPerListener() throws Exception {
+        final Listener listener = new Listener() {};
+        final TestPlugin plugin = new TestPlugin("Single");
+        final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+        ((SimplePluginManager) pm).setAsyncEventThreads(1);
+        ((SimplePluginManager) pm).setAsyncListenerTimeout(300, TimeUnit.MILLISECONDS);
+        try {
+            EventExecutor slow = new EventExecutor() {
+                public void execute(Listener listener, Event event) {
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    finished.add("slow");
+                }
+            };
+            // Both share one thread, so the second is queued behind the first
+            pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.NORMAL, slow, plugin);
+            pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.NORMAL, slow, plugin);
+            pm.registerEvent(CancellableTestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+                public void execute(Listener listener, Event event) {
+                    ((Cancellable) event).setCancelled(true);
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            }, new TestPlugin("Stuck"));
+
+            CancellableTestEvent event = new CancellableTestEvent();
+            assertThat(pm.callEventAsync(event).get().isCancelled(), is(false));
+            assertThat(finished, is(Arrays.asList("slow", "slow")));
+        } finally {
+            ((SimplePluginManager) pm).setAsyncEventThreads(4);
+            ((SimplePluginManager) pm).setAsyncListenerTimeout(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testFailuresAggregated() {
+        final Listener listener = new Listener() {};
+        final TestPlugin plugin = new TestPlugin("Test");
+        pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                throw new IllegalStateException("Listener failure");
+            }
+        }, plugin);
+
+        ExceptionReporter reporter = pm.getExceptionReporter();
+        for (int i = 0; i < 5; i++) {
+            pm.callEvent(new TestEvent(false));
+        }
+        assertThat(reporter.getFailures(plugin), hasSize(1));
+        ExceptionReporter.Failure failure = reporter.getFailures(plugin).get(0);
+        assertThat(failure.getCount(), is(5L));
+        assertThat(failure.getSuppressedCount(), is(4));
+        assertThat(failure.getSite(), startsWith(IllegalStateException.class.getName() + " at "));
+
+        reporter.setMaxFailuresPerSecond(2);
+        try {
+            for (int i = 0; i < 3; i++) {
+                pm.callEvent(new TestEvent(false));
+            }
+            assertThat(pm.isListened(TestEvent.class), is(false));
+            assertThat(reporter.getFailures(plugin), is(empty()));
+        } finally {
+            reporter.setMaxFailuresPerSecond(0);
+        }
+    }
+
+    @Test
+    public void testLoadPluginsParallelDescriptions() throws Exception {
+        File directory = folder.newFolder("plugins");
+        write(new File(directory, "a.test"), "name: A\nversion: 1\nmain: test.A\ndepend: [B]\n");
+        write(new File(directory, "b.test"), "name: B\nversion: 1\nmain: test.B\n");
+        write(new File(directory, "c.test"), "name: C\nversion: 1\nmain: test.C\nloadbefore: [B]\n");
+        write(new File(directory, "broken.test"), "name: [\n");
+
+        DescriptionTestLoader.loaded.clear();
+        DescriptionTestLoader.read.clear();
+        ((SimplePluginManager) pm).registerInterface(DescriptionTestLoader.class);
+        Plugin[] plugins = pm.loadPlugins(directory);
+
+        assertThat(plugins.length, is(3));
+        assertThat(DescriptionTestLoader.loaded, is(Arrays.asList("C", "B", "A")));
+        // Loading reuses the descriptions read in parallel
+        assertThat(DescriptionTestLoader.read, containsInAnyOrder("a.test", "b.test", "c.test", "broken.test"));
+    }
+
+    @Test
+    public void testReloadPlugin() throws Exception {
+        File directory = folder.newFolder("plugins");
+        write(new File(directory, "a.test"), "name: A\nversion: 1\nmain: test.A\n");
+        write(new File(directory, "b.test"), "name: B\nversion: 1\nmain: test.B\nsoftdepend: [A]\npermissions:\n  b.use: {}\n");
+
+        ((SimplePluginManager) pm).registerInterface(DescriptionTestLoader.class);
+        pm.loadPlugins(directory);
+        Plugin b = pm.getPlugin("B");
+        write(new File(directory, "b.test"), "name: B\nversion: 2\nmain: test.B\nsoftdepend: [A]\n");
+        pm.addPermission(new Permission("b.use"));
+
+        Plugin reloaded = pm.reloadPlugin(b);
+        assertThat(reloaded, is(not(sameInstance(b))));
+        assertThat(reloaded.getDescription().getVersion(), is("2"));
+        assertThat(pm.getPlugin("B"), is(sameInstance(reloaded)));
+        assertThat(pm.getPlugins().length, is(2));
+        assertThat(pm.getPermission("b.use"), is(nullValue()));
+
+        try {
+            pm.reloadPlugin(pm.getPlugin("A"));
+            fail("Reloaded a plugin that B soft depends on");
+        } catch (IllegalStateException ex) {
+            assertThat(ex.getMessage(), containsString("B"));
+        }
+    }
+
+    @Test
+    public void testEnablePluginsInLayers() throws Exception {
+        ParallelTestLoader loader = new ParallelTestLoader();
+        Plugin[] plugins = new Plugin[] {
+            new ParallelTestPlugin(loader, "name: A\nparallel-enable: true"),
+            new ParallelTestPlugin(loader, "name: B\nparallel-enable: true\ndepend: [A]"),
+            new ParallelTestPlugin(loader, "name: C"),
+            new ParallelTestPlugin(loader, "name: D\nparallel-enable: true\nloadbefore: [B]"),
+        };
+
+        ((SimplePluginManager) pm).enablePlugins(plugins);
+
+        for (Plugin plugin : plugins) {
+            assertThat(plugin.isEnabled(), is(true));
+        }
+        assertThat(loader.log, hasSize(8));
+        assertThat(loader.log.subList(0, 4), containsInAnyOrder("enable A pool", "enable D pool", "enable C main", "complete C"));
+        assertThat(loader.log.subList(4, 8), contains("complete A", "complete D", "enable B pool", "complete B"));
+    }
+
+    @Test
+    public void testLazyActivationOnEvent() throws Exception {
+        File directory = folder.newFolder("plugins");
+        write(new File(directory, "lazy.lazy"), "");
+
+        ((SimplePluginManager) pm).registerInterface(LazyTestLoader.class);
+        Plugin[] plugins = pm.loadPlugins(directory);
+        assertThat(plugins.length, is(1));
+        LazyPlugin lazy = (LazyPlugin) plugins[0];
+        assertThat(lazy.getDescription().getActivation(), is(PluginActivation.LAZY));
+
+        pm.enablePlugin(lazy);
+        assertThat(lazy.isEnabled(), is(true));
+        assertThat(lazy.getLoadedPlugin(), is(nullValue()));
+        assertThat(pm.isListened(TestEvent.class), is(true));
+
+        pm.callEvent(new TestEvent(false));
+
+        Plugin active = lazy.getLoadedPlugin();
+        assertThat(active, is(notNullValue()));
+        assertThat(active.isEnabled(), is(true));
+        assertThat(pm.getPlugin("Lazy"), is(sameInstance(active)));
+        assertThat(pm.getPlugins()[0], is(sameInstance(active)));
+        assertThat(pm.isListened(TestEvent.class), is(false));
+        assertThat(pm.activatePlugin(lazy), is(sameInstance(active)));
+    }
+
+    @Test
+    public void testLazyActivationReplaysByPriority() throws Exception {
+        final List<String> calls = new ArrayList<String>();
+        final Listener listener = new Listener() {};
+        pm.registerEvent(TestEvent.class, listener, EventPriority.HIGH, record(calls, "other:HIGH"), new TestPlugin("Other"));
+        LazyTestPlugin.activationHook = new ActivationHook() {
+            public void enabled(Plugin plugin) {
+                pm.registerEvent(TestEvent.class, listener, EventPriority.MONITOR, record(calls, "lazy:MONITOR"), plugin);
+                pm.registerEvent(TestEvent.class, listener, EventPriority.NORMAL, record(calls, "lazy:NORMAL"), plugin);
+            }
+        };
+
+        try {
+            File directory = folder.newFolder("plugins");
+            write(new File(directory, "lazy.lazy"), "");
+            ((SimplePluginManager) pm).registerInterface(LazyTestLoader.class);
+            LazyPlugin lazy = (LazyPlugin) pm.loadPlugins(directory)[0];
+            pm.enablePlugin(lazy);
+
+            pm.callEvent(new TestEvent(false));
+            assertThat(lazy.getLoadedPlugin(), is(notNullValue()));
+            assertThat(calls, contains("lazy:NORMAL", "other:HIGH", "lazy:MONITOR"));
+
+            calls.clear();
+            pm.callEvent(new TestEvent(false));
+            assertThat(calls, contains("lazy:NORMAL", "other:HIGH", "lazy:MONITOR"));
+        } finally {
+            LazyTestPlugin.activationHook = null;
+        }
+    }
+
+    private static EventExecutor record(final List<String> calls, final String name) {
+        return new EventExecutor() {
+            public void execute(Listener listener, Event event) {
+                calls.add(name);
+            }
+        };
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(contents);
+        } finally {
+            writer.close();
+        }
+    }
+
     @Test
     public void testRemovePermissionByNameLower() {
         this.testRemovePermissionByName("lower");
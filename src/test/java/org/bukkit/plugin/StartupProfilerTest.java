@@ -0,0 +1,72 @@
+package org.bukkit.plugin;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.plugin.StartupProfiler.Phase;
+import org.bukkit.plugin.StartupProfiler.Profile;
+import org.json.simple.JSONValue;
+import org.junit.Test;
+
+public class StartupProfilerTest {
+    @Test
+    public void testTotalSkipsNestedPhases() {
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.record("A", Phase.DESCRIPTION, 10);
+        profiler.record("A", Phase.CLASS_LOADER, 100);
+        profiler.record("A", Phase.CLASS_LOAD, 30);
+        profiler.record("A", Phase.CLASS_LOAD, 20);
+        profiler.record("A", Phase.CONSTRUCTOR, 40);
+        profiler.record("A", Phase.ENABLE, 1000);
+        profiler.recordListeners("A", 3);
+        profiler.recordCommands("A", 2);
+
+        Profile profile = profiler.getProfile("A");
+        assertThat(profile.getTotalTime(), is(1110L));
+        assertThat(profile.getCount(Phase.CLASS_LOAD), is(2));
+        assertThat(profile.getTime(Phase.CLASS_LOAD), is(50L));
+        assertThat(profile.getListenerCount(), is(3));
+        assertThat(profile.getCommandCount(), is(2));
+    }
+
+    @Test
+    public void testSlowestFirst() {
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.record("Fast", Phase.ENABLE, 5);
+        profiler.record("Slow", Phase.LOAD, 50);
+        profiler.record("Medium", Phase.DESCRIPTION, 20);
+
+        List<Profile> profiles = profiler.getProfiles();
+        assertThat(profiles, hasSize(3));
+        assertThat(profiles.get(0).getPlugin(), is("Slow"));
+        assertThat(profiles.get(1).getPlugin(), is("Medium"));
+        assertThat(profiles.get(2).getPlugin(), is("Fast"));
+
+        profiler.forget("Slow");
+        assertThat(profiler.getProfile("Slow"), is(nullValue()));
+        profiler.reset();
+        assertThat(profiler.getProfiles(), is(empty()));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        StartupProfiler profiler = new StartupProfiler();
+        profiler.record("A", Phase.CLASS_LOAD, 7);
+        profiler.recordListeners("A", 4);
+
+        StringWriter writer = new StringWriter();
+        profiler.writeJson(writer);
+        Map<?, ?> document = (Map<?, ?>) JSONValue.parse(writer.toString());
+        assertThat(document.get("unit"), is((Object) "ns"));
+
+        Map<?, ?> plugin = (Map<?, ?>) ((List<?>) document.get("plugins")).get(0);
+        assertThat(plugin.get("name"), is((Object) "A"));
+        assertThat(plugin.get("listeners"), is((Object) 4L));
+        assertThat(((Map<?, ?>) plugin.get("classLoad")).get("count"), is((Object) 1L));
+        assertThat(((Map<?, ?>) plugin.get("classLoad")).get("time"), is((Object) 7L));
+    }
+}
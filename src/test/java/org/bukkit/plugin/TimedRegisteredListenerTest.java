@@ -3,6 +3,9 @@ package org.bukkit.plugin;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.bukkit.event.Event;
 import org.bukkit.event.EventException;
 import org.bukkit.event.EventPriority;
@@ -53,4 +56,28 @@ public class TimedRegisteredListenerTest {
         trl.callEvent(moveEvent);
         assertThat(trl.getEventClass(), is((Object) Event.class));
     }
+
+    @Test
+    public void testBatchTimed() throws EventException {
+        Listener listener = new Listener() {};
+        final int[] batches = new int[1];
+        EventExecutor executor = new BatchEventExecutor() {
+            public void execute(Listener listener, Event event) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void executeBatch(Listener listener, List<Event> events) {
+                batches[0]++;
+            }
+        };
+        TestPlugin plugin = new TestPlugin("Test");
+
+        TimedRegisteredListener trl = new TimedRegisteredListener(listener, executor, EventPriority.NORMAL, plugin, false);
+        trl.callEvents(Arrays.<Event>asList(new PlayerMoveEvent(null, null, null), new PlayerInteractEvent(null, null, null, null, null)));
+
+        assertThat(batches[0], is(1));
+        assertThat(trl.getCount(), is(2));
+        assertThat(trl.getEventClass(), is((Object) PlayerEvent.class));
+        assertThat(trl.hasMultiple(), is(true));
+    }
 }
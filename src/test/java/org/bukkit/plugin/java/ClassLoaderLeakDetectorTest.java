@@ -0,0 +1,93 @@
+package org.bukkit.plugin.java;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ClassLoaderLeakDetectorTest {
+    static final Map<String, Object> cache = new HashMap<String, Object>();
+    static final Class<?> uninitialized = Uninitialized.class;
+    static boolean initialized = false;
+
+    static class Uninitialized {
+        static final Object value = new Object();
+
+        static {
+            initialized = true;
+        }
+    }
+
+    private final ClassLoaderLeakDetector detector = new ClassLoaderLeakDetector(Logger.getLogger(ClassLoaderLeakDetectorTest.class.getName()));
+
+    @Test
+    public void testAutomaticChecksDisabled() {
+        assertThat(detector.getCheckDelay(TimeUnit.SECONDS), is(0L));
+        detector.setCheckDelay(30, TimeUnit.SECONDS);
+        assertThat(detector.getCheckDelay(TimeUnit.MILLISECONDS), is(30000L));
+    }
+
+    @Test
+    public void testRetainingPath() {
+        detector.setCheckDelay(0, TimeUnit.SECONDS);
+        detector.addRootClass(ClassLoaderLeakDetectorTest.class);
+
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        detector.track("Leaky", loader);
+        cache.put("loader", loader);
+        detector.release(loader);
+        loader = null;
+
+        List<ClassLoaderLeakDetector.Leak> leaks = detector.check();
+        assertThat(leaks, hasSize(1));
+        assertThat(leaks.get(0).getPlugin(), is("Leaky"));
+        assertThat(leaks.get(0).getPath(), hasSize(2));
+        assertThat(leaks.get(0).getPath().get(0), startsWith("static " + ClassLoaderLeakDetectorTest.class.getName() + ".cache"));
+        assertThat(leaks.get(0).getPath().get(1), startsWith("[\"loader\"] (" + URLClassLoader.class.getName()));
+
+        cache.clear();
+        assertThat(detector.check(), is(empty()));
+        assertThat(detector.getTrackedCount(), is(0));
+    }
+
+    @Test
+    public void testStaticsNotInitialized() {
+        detector.setCheckDelay(0, TimeUnit.SECONDS);
+        detector.addRootClass(ClassLoaderLeakDetectorTest.class);
+
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        detector.track("Leaky", loader);
+        cache.put("loader", loader);
+        detector.release(loader);
+        loader = null;
+
+        assertThat(detector.check(), hasSize(1));
+        assertThat(initialized, is(false));
+    }
+
+    @Test
+    public void testEnabledNotReported() {
+        ClassLoader loader = new URLClassLoader(new URL[0]);
+        detector.setCheckDelay(0, TimeUnit.SECONDS);
+        detector.track("Enabled", loader);
+
+        assertThat(detector.check(), is(empty()));
+        assertThat(detector.getTrackedCount(), is(1));
+        // Keeps the class loader reachable until here
+        assertThat(loader, is(notNullValue()));
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+    }
+}
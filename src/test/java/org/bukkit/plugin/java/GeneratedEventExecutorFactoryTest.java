@@ -0,0 +1,85 @@
+package org.bukkit.plugin.java;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+import org.bukkit.event.TestEvent;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.TestPlugin;
+import org.junit.Test;
+
+public class GeneratedEventExecutorFactoryTest {
+    public static class PublicListener implements Listener {
+        int calls;
+
+        public void onTest(TestEvent event) {
+            calls++;
+        }
+
+        public long onTestWithResult(TestEvent event) {
+            calls++;
+            return calls;
+        }
+
+        public void onTestThrowing(TestEvent event) {
+            throw new IllegalStateException("Handler failure");
+        }
+
+        void onTestPackagePrivate(TestEvent event) {
+            calls++;
+        }
+    }
+
+    private final GeneratedEventExecutorFactory factory = new GeneratedEventExecutorFactory();
+    private final TestPlugin plugin = new TestPlugin("Test");
+
+    private EventExecutor create(String method) throws Exception {
+        return factory.createExecutor(plugin, PublicListener.class.getDeclaredMethod(method, TestEvent.class), TestEvent.class);
+    }
+
+    @Test
+    public void testDirectCall() throws Exception {
+        PublicListener listener = new PublicListener();
+        EventExecutor executor = create("onTest");
+
+        assertThat(executor, is(notNullValue()));
+        assertThat(executor, is(not(instanceOf(ReflectiveEventExecutor.class))));
+        executor.execute(listener, new TestEvent(false));
+        assertThat(listener.calls, is(1));
+
+        executor = create("onTestWithResult");
+        executor.execute(listener, new TestEvent(false));
+        assertThat(listener.calls, is(2));
+    }
+
+    @Test
+    public void testIgnoresOtherEvents() throws Exception {
+        PublicListener listener = new PublicListener();
+        EventExecutor executor = create("onTest");
+
+        Event other = new BlockBreakEvent(null, null);
+        executor.execute(listener, other);
+        assertThat(listener.calls, is(0));
+    }
+
+    @Test
+    public void testWrapsExceptions() throws Exception {
+        EventExecutor executor = create("onTestThrowing");
+        try {
+            executor.execute(new PublicListener(), new TestEvent(false));
+        } catch (EventException ex) {
+            assertThat(ex.getCause(), is(instanceOf(IllegalStateException.class)));
+            return;
+        }
+        fail("No exception thrown");
+    }
+
+    @Test
+    public void testDeclinesInaccessibleMethods() throws Exception {
+        assertThat(create("onTestPackagePrivate"), is(nullValue()));
+    }
+}
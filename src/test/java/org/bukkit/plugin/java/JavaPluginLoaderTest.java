@@ -0,0 +1,325 @@
+package org.bukkit.plugin.java;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.bukkit.TestServer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.plugin.LazyPlugin;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.SimplePluginManager;
+import org.bukkit.plugin.StartupProfiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JavaPluginLoaderTest {
+    private static final String PLUGIN = "org/bukkit/plugin/java/JavaPlugin";
+    private static final String OBJECT = "java/lang/Object";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @SuppressWarnings("deprecation")
+    private final JavaPluginLoader loader = new JavaPluginLoader(TestServer.getInstance());
+
+    @Test
+    public void testLookupByPackage() throws Exception {
+        PluginClassLoader first = createLoader("First", null, "first.Shared");
+        PluginClassLoader second = createLoader("Second", null);
+        loader.addLoader("First", first);
+        loader.addLoader("Second", second);
+
+        Class<?> shared = Class.forName("first.Shared", false, second);
+        assertThat(shared.getClassLoader(), is((ClassLoader) first));
+        assertThat(loader.getClassByName("first.Shared"), is((Object) shared));
+        assertThat(loader.getClassByName("first.Missing"), is(nullValue()));
+        assertThat(loader.getClassByName("unknown.Missing"), is(nullValue()));
+    }
+
+    @Test
+    public void testMissCachedUntilLoaderAdded() throws Exception {
+        loader.addLoader("First", createLoader("First", null));
+        assertThat(loader.getClassByName("late.Added"), is(nullValue()));
+        assertThat(loader.getClassByName("late.Added"), is(nullValue()));
+
+        PluginClassLoader late = createLoader("Late", null, "late.Added");
+        loader.addLoader("Late", late);
+        Class<?> added = loader.getClassByName("late.Added");
+        assertThat(added, is(notNullValue()));
+        assertThat(added.getClassLoader(), is((ClassLoader) late));
+    }
+
+    @Test
+    public void testManifestClassPath() throws Exception {
+        jar(new File(folder.getRoot(), "library.jar"), null, "library.Library");
+        PluginClassLoader withLibrary = createLoader("WithLibrary", "library.jar");
+        loader.addLoader("WithLibrary", withLibrary);
+
+        Class<?> library = loader.getClassByName("library.Library");
+        assertThat(library, is(notNullValue()));
+        assertThat(library.getClassLoader(), is((ClassLoader) withLibrary));
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentLoading() throws Exception {
+        final int classCount = 50;
+        String[] classes = new String[classCount];
+        for (int i = 0; i < classCount; i++) {
+            classes[i] = "concurrent.Class" + i;
+        }
+        final PluginClassLoader concurrent = createLoader("Concurrent", null, classes);
+        loader.addLoader("Concurrent", concurrent);
+
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Class<?>>>> results = new ArrayList<Future<List<Class<?>>>>();
+            for (int t = 0; t < threads; t++) {
+                final boolean direct = t % 2 == 0;
+                final List<String> names = new ArrayList<String>();
+                Collections.addAll(names, classes);
+                Collections.shuffle(names);
+                results.add(executor.submit(new Callable<List<Class<?>>>() {
+                    public List<Class<?>> call() throws Exception {
+                        start.await();
+                        List<Class<?>> loaded = new ArrayList<Class<?>>();
+                        for (String name : names) {
+                            // Half of the threads come in through other plugins' lookups
+                            loaded.add(direct ? concurrent.loadClass(name) : loader.getClassByName(name));
+                        }
+                        return loaded;
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<List<Class<?>>> result : results) {
+                for (Class<?> clazz : result.get()) {
+                    assertThat(clazz, is(notNullValue()));
+                    assertThat(clazz.getClassLoader(), is((ClassLoader) concurrent));
+                    assertThat(clazz, is(sameInstance((Object) concurrent.loadClass(clazz.getName()))));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLazyActivationOnCommand() throws Exception {
+        File file = new File(folder.getRoot(), "Commanded.jar");
+        pluginJar(file, "commanded.Main", "name: Commanded\nversion: 1.0\nmain: commanded.Main\nactivation: lazy\n"
+                + "commands:\n  commanded-test:\n    usage: /<command> usage\n");
+
+        SimplePluginManager pm = (SimplePluginManager) TestServer.getInstance().getPluginManager();
+        pm.registerInterface(JavaPluginLoader.class);
+        try {
+            Plugin plugin = pm.loadPlugin(file);
+            assertThat(plugin, is(instanceOf(LazyJavaPlugin.class)));
+            pm.enablePlugin(plugin);
+            PluginCommand stub = TestServer.getInstance().getPluginCommand("commanded-test");
+            assertThat(stub.getPlugin(), is(plugin));
+            assertThat(((LazyPlugin) plugin).getLoadedPlugin(), is(nullValue()));
+
+            List<String> messages = new ArrayList<String>();
+            stub.execute(sender(messages), "commanded-test", new String[0]);
+
+            Plugin active = ((LazyPlugin) plugin).getLoadedPlugin();
+            assertThat(active, is(instanceOf(JavaPlugin.class)));
+            assertThat(active.isEnabled(), is(true));
+            assertThat(TestServer.getInstance().getPluginCommand("commanded-test").getPlugin(), is(active));
+            // The activated plugin does not handle the command, so it shows the usage
+            assertThat(messages, contains("/commanded-test usage"));
+        } finally {
+            pm.clearPlugins();
+        }
+    }
+
+    @Test
+    public void testLoadPluginsReusesDescriptions() throws Exception {
+        File directory = folder.newFolder("plugins");
+        pluginJar(new File(directory, "Described.jar"), "described.Main", "name: Described\nversion: 1.0\nmain: described.Main\n");
+
+        SimplePluginManager pm = (SimplePluginManager) TestServer.getInstance().getPluginManager();
+        pm.registerInterface(JavaPluginLoader.class);
+        try {
+            Plugin[] plugins = pm.loadPlugins(directory);
+            assertThat(plugins.length, is(1));
+            assertThat(plugins[0], is(instanceOf(JavaPlugin.class)));
+            assertThat(plugins[0].getDescription(), is(sameInstance(pm.getDependencyGraph().getDescription("Described"))));
+        } finally {
+            pm.clearPlugins();
+        }
+    }
+
+    @Test
+    public void testDescriptionProfiledOnce() throws Exception {
+        File directory = folder.newFolder("plugins");
+        pluginJar(new File(directory, "Indexed.jar"), "indexed.Main", "name: Indexed\nversion: 1.0\nmain: indexed.Main\n");
+        File direct = new File(folder.getRoot(), "Direct.jar");
+        pluginJar(direct, "direct.Main", "name: Direct\nversion: 1.0\nmain: direct.Main\n");
+
+        SimplePluginManager pm = (SimplePluginManager) TestServer.getInstance().getPluginManager();
+        pm.registerInterface(JavaPluginLoader.class);
+        try {
+            assertThat(pm.loadPlugins(directory).length, is(1));
+            assertThat(pm.loadPlugin(direct), is(notNullValue()));
+
+            StartupProfiler profiler = pm.getStartupProfiler();
+            assertThat(profiler.getProfile("Indexed").getCount(StartupProfiler.Phase.DESCRIPTION), is(1));
+            assertThat(profiler.getProfile("Direct").getCount(StartupProfiler.Phase.DESCRIPTION), is(1));
+        } finally {
+            pm.clearPlugins();
+        }
+    }
+
+    private static CommandSender sender(final List<String> messages) {
+        return (CommandSender) Proxy.newProxyInstance(CommandSender.class.getClassLoader(), new Class<?>[] { CommandSender.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("sendMessage") && args[0] instanceof String) {
+                    messages.add((String) args[0]);
+                    return null;
+                }
+                throw new UnsupportedOperationException(String.valueOf(method));
+            }
+        });
+    }
+
+    private PluginClassLoader createLoader(String name, String classPath, String... classes) throws Exception {
+        String main = name.toLowerCase() + ".Main";
+        File file = new File(folder.getRoot(), name + ".jar");
+        String[] entries = new String[classes.length + 1];
+        entries[0] = main;
+        System.arraycopy(classes, 0, entries, 1, classes.length);
+        jar(file, classPath, entries);
+
+        PluginDescriptionFile description = new PluginDescriptionFile(name, "1.0", main);
+        return new PluginClassLoader(loader, getClass().getClassLoader(), description, new File(folder.getRoot(), name), file);
+    }
+
+    /**
+     * Writes a jar of empty classes, where classes named Main extend
+     * JavaPlugin
+     */
+    static void jar(File file, String classPath, String... classes) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest);
+        try {
+            for (String name : classes) {
+                String internalName = name.replace('.', '/');
+                out.putNextEntry(new JarEntry(internalName + ".class"));
+                out.write(emptyClass(internalName, name.endsWith(".Main") ? PLUGIN : OBJECT));
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a plugin jar with the given plugin.yml and an empty main class
+     */
+    static void pluginJar(File file, String main, String description) throws IOException {
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+        try {
+            out.putNextEntry(new JarEntry("plugin.yml"));
+            out.write(description.getBytes("UTF-8"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry(main.replace('.', '/') + ".class"));
+            out.write(emptyClass(main.replace('.', '/'), PLUGIN));
+            out.closeEntry();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Generates a public class with only a public no-args constructor
+     */
+    static byte[] emptyClass(String name, String superName) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+
+        out.writeShort(10); // constant pool count
+        out.writeByte(1); // #1 utf8
+        out.writeUTF(name);
+        out.writeByte(7); // #2 class #1
+        out.writeShort(1);
+        out.writeByte(1); // #3 utf8
+        out.writeUTF(superName);
+        out.writeByte(7); // #4 class #3
+        out.writeShort(3);
+        out.writeByte(1); // #5 utf8
+        out.writeUTF("<init>");
+        out.writeByte(1); // #6 utf8
+        out.writeUTF("()V");
+        out.writeByte(12); // #7 name and type #5 #6
+        out.writeShort(5);
+        out.writeShort(6);
+        out.writeByte(10); // #8 method #4 #7
+        out.writeShort(4);
+        out.writeShort(7);
+        out.writeByte(1); // #9 utf8
+        out.writeUTF("Code");
+
+        out.writeShort(0x0021); // public super
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(1); // methods
+
+        out.writeShort(0x0001); // public
+        out.writeShort(5);
+        out.writeShort(6);
+        out.writeShort(1);
+        out.writeShort(9);
+        out.writeInt(17);
+        out.writeShort(1); // max stack
+        out.writeShort(1); // max locals
+        out.writeInt(5);
+        out.writeByte(0x2A); // aload_0
+        out.writeByte(0xB7); // invokespecial
+        out.writeShort(8);
+        out.writeByte(0xB1); // return
+        out.writeShort(0); // exception table
+        out.writeShort(0); // code attributes
+
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
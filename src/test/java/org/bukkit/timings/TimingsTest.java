@@ -0,0 +1,140 @@
+package org.bukkit.timings;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.Listener;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.TestEvent;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.TestPlugin;
+import org.bukkit.plugin.TimedRegisteredListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingsTest {
+    private final TestPlugin plugin = new TestPlugin("TimingsTest");
+
+    @Before
+    public void setUp() {
+        Timings.reset();
+        Timings.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        Timings.setEnabled(false);
+        Timings.setSampleInterval(1);
+        Timings.reset();
+    }
+
+    @Test
+    public void testNesting() throws InterruptedException {
+        Timing outer = Timings.ofTask(plugin, Runnable.class);
+        Timing inner = Timings.ofListener(plugin, TestEvent.class);
+
+        outer.start();
+        inner.start();
+        Thread.sleep(20);
+        long innerTime = inner.stop();
+        long outerTime = outer.stop();
+
+        assertThat(innerTime, is(greaterThanOrEqualTo(20000000L)));
+        assertThat(outerTime, is(greaterThanOrEqualTo(innerTime)));
+        assertThat(outer.getSelfTime(), is(outerTime - innerTime));
+        assertThat(inner.getSelfTime(), is(innerTime));
+        assertThat(Timings.ofEvent(TestEvent.class).getCount(), is(1L));
+        assertThat(Timings.ofEvent(TestEvent.class).getTotalTime(), is(innerTime));
+    }
+
+    @Test
+    public void testUnbalancedStop() {
+        Timing outer = Timings.ofServer("outer");
+        Timing leaked = Timings.ofServer("leaked");
+
+        outer.start();
+        leaked.start();
+        assertThat(outer.stop(), is(greaterThanOrEqualTo(0L)));
+        assertThat(leaked.stop(), is(-1L));
+        assertThat(Timings.getStack().getDepth(), is(0));
+    }
+
+    @Test
+    public void testSampling() {
+        Timings.setSampleInterval(4);
+        Timing outer = Timings.ofServer("sampled");
+        Timing inner = Timings.ofServer("nested");
+
+        for (int i = 0; i < 40; i++) {
+            outer.start();
+            inner.start();
+            inner.stop();
+            outer.stop();
+        }
+
+        assertThat(outer.getCount(), is(40L));
+        assertThat(outer.getSampledCount(), is(10L));
+        assertThat(inner.getCount(), is(40L));
+        assertThat(inner.getSampledCount(), is(10L));
+    }
+
+    @Test
+    public void testDisabled() {
+        Timings.setEnabled(false);
+        Timing timing = Timings.ofServer("disabled");
+        timing.start();
+        assertThat(timing.stop(), is(-1L));
+        assertThat(timing.getCount(), is(0L));
+    }
+
+    @Test
+    public void testPercentiles() {
+        long[] values = { 1, 7, 8, 100, 1000, 123456789L, Long.MAX_VALUE };
+        for (long value : values) {
+            long upper = TimingHistogram.upperBound(TimingHistogram.indexOf(value));
+            assertThat(upper, is(greaterThanOrEqualTo(value)));
+            assertThat((double) upper, is(lessThanOrEqualTo(value * 1.125 + 1)));
+        }
+
+        long[] counts = new long[TimingHistogram.BUCKETS];
+        counts[TimingHistogram.indexOf(10)] = 99;
+        counts[TimingHistogram.indexOf(1000000)] = 1;
+        assertThat(TimingHistogram.percentile(counts, 0.5), is(TimingHistogram.upperBound(TimingHistogram.indexOf(10))));
+        assertThat(TimingHistogram.percentile(counts, 1), is(TimingHistogram.upperBound(TimingHistogram.indexOf(1000000))));
+    }
+
+    @Test
+    public void testAsyncListenerTimed() throws Exception {
+        TimedRegisteredListener listener = new TimedRegisteredListener(new Listener() {}, new EventExecutor() {
+            public void execute(Listener listener, Event event) {}
+        }, EventPriority.NORMAL, plugin, false);
+
+        listener.callEvent(new TestEvent(true));
+        listener.callEvent(new TestEvent(false));
+
+        assertThat(listener.getCount(), is(2));
+        assertThat(Timings.ofListener(plugin, TestEvent.class).getSampledCount(), is(2L));
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        Timing timing = Timings.ofListener(plugin, TestEvent.class);
+        timing.start();
+        timing.stop();
+
+        StringWriter csv = new StringWriter();
+        Timings.exportCsv(csv);
+        assertThat(csv.toString(), startsWith("path,count,sampled,"));
+        assertThat(csv.toString(), containsString("\nplugins/TimingsTest/event " + TestEvent.class.getName() + ",1,1,"));
+        assertThat(csv.toString(), containsString("\nevents/" + TestEvent.class.getName() + ",1,1,"));
+
+        StringWriter json = new StringWriter();
+        Timings.exportJson(json);
+        assertThat(json.toString(), startsWith("{\"sampleInterval\":1,"));
+        assertThat(json.toString(), containsString("\"name\":\"TimingsTest\""));
+    }
+}